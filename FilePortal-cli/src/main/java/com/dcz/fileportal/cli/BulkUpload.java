@@ -0,0 +1,315 @@
+package com.dcz.fileportal.cli;
+
+import com.dcz.fileportal.UploadEngine;
+import com.dcz.fileportal.UploadResult;
+import com.dcz.fileportal.cache.UploadResultCache;
+import com.dcz.fileportal.network.CachingDns;
+import com.dcz.fileportal.network.TimeoutInterceptor;
+import com.dcz.fileportal.network.TrustAllManager;
+import com.dcz.fileportal.options.AccessOption;
+import com.dcz.fileportal.options.ModeOption;
+import com.dcz.fileportal.options.RetryPolicy;
+import com.dcz.fileportal.store.FileKeyValueStore;
+import com.dcz.fileportal.store.KeyValueStore;
+import com.dcz.fileportal.store.MemoryKeyValueStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+
+/**
+ * Upload every file under the given paths with {@link UploadEngine},from a server rather than a phone.
+ * <p>
+ * The directories are walked lazily and the files are handed to a fixed pool of threads,with a bounded number of
+ * files waiting,so memory stays flat however many files there are.Each file is printed to stdout as a tab separated
+ * line {@code status millis url-or-error path},where status is UPLOADED,CACHED or FAILED,and a summary is
+ * printed to stderr at the end.The exit code is 1 if any file failed.
+ */
+public class BulkUpload {
+
+    private static final String USAGE = "Usage: bulk-upload --uid <uid> --api-key <key> --package <name> [options] <path>...\n"
+            + "  --threads <n>            Files uploaded at once,default 32.\n"
+            + "  --chunk-size <bytes>     Upload files larger than this in chunks,default 0 for never.\n"
+            + "  --chunk-concurrency <n>  Chunks of a file in flight at once,default 4.\n"
+            + "  --access <1|2>           1 to verify the token on download,2 not to,default 1.\n"
+            + "  --mode <0|1>             0 to delete files later,1 to keep them,default 1.\n"
+            + "  --max-attempts <n>       Attempts of each request,default 3.\n"
+            + "  --state <file>           Keep tokens and chunk progress in this file to resume after a restart.\n"
+            + "  --server <url>           Send the requests to this server instead,e.g. a staging one.\n"
+            + "  --insecure               Don't verify the certificate of the server.";
+    //Files waiting for a thread,per thread.
+    private static final int QUEUE_PER_THREAD = 4;
+
+    private final Options mOptions;
+    private final UploadEngine mEngine;
+    private final RetryPolicy mRetryPolicy;
+    private final ExecutorService mWorkers;
+    private final Semaphore mPending;
+    private final AtomicLong mUploaded = new AtomicLong();
+    private final AtomicLong mCached = new AtomicLong();
+    private final AtomicLong mFailed = new AtomicLong();
+    private final AtomicLong mBytes = new AtomicLong();
+
+    BulkUpload(Options options) {
+        mOptions = options;
+        mRetryPolicy = new RetryPolicy.Builder().setMaxAttempts(options.maxAttempts).build();
+        KeyValueStore store = options.state == null ? new MemoryKeyValueStore() : new FileKeyValueStore(options.state);
+        ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        mEngine = new UploadEngine.Builder(newClient(options), store, options.packageName)
+                .setRefreshExecutor(refresher)
+                //Identical files in the tree are sent once.
+                .setResultCache(new UploadResultCache())
+                .build();
+        mWorkers = Executors.newFixedThreadPool(options.threads);
+        mPending = new Semaphore(options.threads * QUEUE_PER_THREAD);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        System.exit(new BulkUpload(options).run() == 0 ? 0 : 1);
+    }
+
+    /**
+     * Upload the files and wait for them.
+     *
+     * @return Count of the failed files.
+     */
+    long run() throws InterruptedException {
+        final long start = System.nanoTime();
+        mEngine.warmConnections();
+        for (Path path : mOptions.paths) {
+            try {
+                Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (attrs.isRegularFile()) submit(file.toFile());
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        fail(file.toFile(), 0, e);
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                fail(path.toFile(), 0, e);
+            }
+        }
+        mWorkers.shutdown();
+        mWorkers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        printSummary(System.nanoTime() - start);
+        return mFailed.get();
+    }
+
+    private void submit(final File file) {
+        //Wait while the pool is behind,rather than queueing the whole tree.
+        mPending.acquireUninterruptibly();
+        mWorkers.execute(() -> {
+            final long start = System.nanoTime();
+            try {
+                UploadResult result = mEngine.upload(file, mOptions.uid, mOptions.apiKey, mOptions.access, mOptions.mode,
+                        mOptions.chunkSize, mOptions.chunkConcurrency, mRetryPolicy, null);
+                (result.isCached() ? mCached : mUploaded).incrementAndGet();
+                if (!result.isCached()) mBytes.addAndGet(file.length());
+                print(result.isCached() ? "CACHED" : "UPLOADED", start, result.getUrl(), file);
+            } catch (Exception e) {
+                fail(file, start, e);
+            } finally {
+                mPending.release();
+            }
+        });
+    }
+
+    private void fail(File file, long start, Exception e) {
+        mFailed.incrementAndGet();
+        print("FAILED", start, e.toString(), file);
+    }
+
+    private static void print(String status, long start, String detail, File file) {
+        long millis = start == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        //println is synchronized,so lines of concurrent files don't interleave.
+        System.out.println(status + '\t' + millis + '\t' + detail.replace('\t', ' ') + '\t' + file.getPath());
+    }
+
+    private void printSummary(long elapsedNanos) {
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+        long files = mUploaded.get() + mCached.get() + mFailed.get();
+        System.err.println(String.format(Locale.ROOT,
+                "%d files in %.1fs:%d uploaded,%d cached,%d failed. %.1f files/s,%.2f MB/s sent.",
+                files, seconds, mUploaded.get(), mCached.get(), mFailed.get(),
+                files / seconds, mBytes.get() / seconds / (1024 * 1024)));
+    }
+
+    /**
+     * A client for many concurrent uploads to one host:enough calls and idle connections for all threads,
+     * cached addresses,and the timeouts of the retry policy.
+     */
+    private static OkHttpClient newClient(Options options) {
+        int maxRequests = options.threads * Math.max(1, options.chunkConcurrency);
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequests);
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(options.threads, 5, TimeUnit.MINUTES))
+                .dns(new CachingDns())
+                .addInterceptor(new TimeoutInterceptor())
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+        if (options.server != null) {
+            final HttpUrl server = options.server;
+            builder.addInterceptor(chain -> {
+                Request request = chain.request();
+                HttpUrl url = request.url().newBuilder()
+                        .scheme(server.scheme())
+                        .host(server.host())
+                        .port(server.port())
+                        .build();
+                return chain.proceed(request.newBuilder().url(url).build());
+            });
+        }
+        if (options.insecure) {
+            TrustAllManager trustAllManager = new TrustAllManager();
+            builder.sslSocketFactory(TrustAllManager.createTrustAllSSLFactory(trustAllManager), trustAllManager)
+                    .hostnameVerifier(TrustAllManager.createTrustAllHostnameVerifier());
+        }
+        return builder.build();
+    }
+
+    static class Options {
+        String uid;
+        String apiKey;
+        String packageName;
+        int threads = 32;
+        long chunkSize;
+        int chunkConcurrency = 4;
+        String access = AccessOption.ACCESS_VERIFY;
+        String mode = ModeOption.MODE_STAY;
+        int maxAttempts = 3;
+        File state;
+        HttpUrl server;
+        boolean insecure;
+        final List<Path> paths = new ArrayList<>();
+
+        /**
+         * @throws IllegalArgumentException The arguments are invalid.
+         */
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (!arg.startsWith("--")) {
+                    options.paths.add(Paths.get(arg));
+                    continue;
+                }
+                if ("--insecure".equals(arg)) {
+                    options.insecure = true;
+                    continue;
+                }
+                if ("--help".equals(arg)) {
+                    throw new IllegalArgumentException("");
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value of " + arg);
+                }
+                String value = args[++i];
+                switch (arg) {
+                    case "--uid":
+                        options.uid = value;
+                        break;
+                    case "--api-key":
+                        options.apiKey = value;
+                        break;
+                    case "--package":
+                        options.packageName = value;
+                        break;
+                    case "--threads":
+                        options.threads = positive(arg, value);
+                        break;
+                    case "--chunk-size":
+                        options.chunkSize = Long.parseLong(value);
+                        if (options.chunkSize < 0) throw new IllegalArgumentException("Chunk size must not be negative");
+                        break;
+                    case "--chunk-concurrency":
+                        options.chunkConcurrency = positive(arg, value);
+                        break;
+                    case "--access":
+                        if (!AccessOption.ACCESS_VERIFY.equals(value) && !AccessOption.ACCESS_NO_VERIFY.equals(value)) {
+                            throw new IllegalArgumentException("Access must be 1 or 2");
+                        }
+                        options.access = value;
+                        break;
+                    case "--mode":
+                        if (!ModeOption.MODE_DELETE.equals(value) && !ModeOption.MODE_STAY.equals(value)) {
+                            throw new IllegalArgumentException("Mode must be 0 or 1");
+                        }
+                        options.mode = value;
+                        break;
+                    case "--max-attempts":
+                        options.maxAttempts = positive(arg, value);
+                        break;
+                    case "--state":
+                        options.state = new File(value);
+                        break;
+                    case "--server":
+                        options.server = HttpUrl.parse(value);
+                        if (options.server == null) throw new IllegalArgumentException("Invalid server url " + value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            }
+            if (options.uid == null || options.apiKey == null || options.packageName == null) {
+                throw new IllegalArgumentException("--uid,--api-key and --package are required");
+            }
+            if (options.paths.isEmpty()) {
+                throw new IllegalArgumentException("No path to upload");
+            }
+            return options;
+        }
+
+        private static int positive(String name, String value) {
+            int number;
+            try {
+                number = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(name + " must be a number");
+            }
+            if (number < 1) throw new IllegalArgumentException(name + " must be at least 1");
+            return number;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.dcz.fileportal;
+
+import androidx.annotation.Nullable;
+
+import com.dcz.fileportal.network.bean.ChunkRecord;
+
+/**
+ * Storage of the progress of chunked uploads.
+ */
+interface ChunkRecordStore {
+
+    @Nullable
+    ChunkRecord get(String key);
+
+    void put(String key, ChunkRecord record);
+
+    void remove(String key);
+}
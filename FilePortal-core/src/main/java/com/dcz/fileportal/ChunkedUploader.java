@@ -0,0 +1,250 @@
+package com.dcz.fileportal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dcz.fileportal.exceptions.HttpStatusException;
+import com.dcz.fileportal.exceptions.UploadFailedException;
+import com.dcz.fileportal.network.BandwidthLimiter;
+import com.dcz.fileportal.network.FileRangeRequestBody;
+import com.dcz.fileportal.network.ResponseDecoder;
+import com.dcz.fileportal.network.ThrottledRequestBody;
+import com.dcz.fileportal.network.TransferListener;
+import com.dcz.fileportal.network.bean.ChunkRecord;
+import com.dcz.fileportal.network.bean.Response;
+import com.dcz.fileportal.options.RetryPolicy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.FormBody;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+import static com.dcz.fileportal.Constants.NET_KEY_ACCESS;
+import static com.dcz.fileportal.Constants.NET_KEY_CHUNK;
+import static com.dcz.fileportal.Constants.NET_KEY_CHUNK_SIZE;
+import static com.dcz.fileportal.Constants.NET_KEY_COUNT;
+import static com.dcz.fileportal.Constants.NET_KEY_INDEX;
+import static com.dcz.fileportal.Constants.NET_KEY_MD_UPPER;
+import static com.dcz.fileportal.Constants.NET_KEY_MODE;
+import static com.dcz.fileportal.Constants.NET_KEY_OFFSET;
+import static com.dcz.fileportal.Constants.NET_KEY_SIZE;
+import static com.dcz.fileportal.Constants.NET_KEY_TOKEN;
+import static com.dcz.fileportal.Constants.RET_SUCCESS;
+
+/**
+ * Upload a file as fixed-size chunks,so that files beyond the size limit of a single request can be uploaded and an
+ * interrupted upload resumes from the acknowledged chunks instead of byte zero.
+ * <p>
+ * Protocol:
+ * <ul>
+ * <li>Chunk {@code i} covers bytes {@code [i * chunkSize, min((i + 1) * chunkSize, size))} and is posted to the chunk
+ * api with its index and offset.Up to {@code concurrency} chunks are in flight at once over separate connections,
+ * dispatched in ascending index order,but they may be acknowledged in any order.</li>
+ * <li>The server stores chunks by index and reassembles them in index order,never in arrival order.</li>
+ * <li>Once every chunk is acknowledged a commit request is sent.The server answers with the url of the file,
+ * or with the indices of missing chunks which are then uploaded again before committing once more.</li>
+ * </ul>
+ * The record is written as soon as a chunk is acknowledged,so that no acknowledged chunk is sent again after the
+ * process dies.
+ */
+class ChunkedUploader {
+
+    private static final MediaType MEDIA_TYPE_CHUNK = MediaType.parse("application/octet-stream");
+    //Commit attempts answered with missing chunks before giving up.
+    private static final int MAX_COMMIT_ATTEMPTS = 3;
+
+    private final OkHttpClient mClient;
+    private final ResponseDecoder mDecoder;
+    private final ChunkRecordStore mStore;
+    private final BandwidthLimiter mBandwidthLimiter;
+    private final String mChunkUrl;
+    private final String mCommitUrl;
+
+    /**
+     * @param bandwidthLimiter Limiter shared by all uploads.
+     */
+    ChunkedUploader(OkHttpClient client, ResponseDecoder decoder, ChunkRecordStore store, BandwidthLimiter bandwidthLimiter,
+                    String chunkUrl, String commitUrl) {
+        mClient = client;
+        mDecoder = decoder;
+        mStore = store;
+        mBandwidthLimiter = bandwidthLimiter;
+        mChunkUrl = chunkUrl;
+        mCommitUrl = commitUrl;
+    }
+
+    /**
+     * Upload the chunks not acknowledged yet,then commit the file.
+     *
+     * @param file             The file to be uploaded.
+     * @param fileMD5          The MD5 hash of the file.
+     * @param token            verification token.
+     * @param accessVerify     Whether token is needed to access the file.
+     * @param mode             The strategy of keeping files.
+     * @param chunkSize        Size of each chunk in bytes.
+     * @param concurrency      Max chunks in flight at once,capped by the max requests per host of the client.
+     * @param retryPolicy      Timeouts of the requests,null for the ones of the client.
+     * @param bandwidthLimiter Limiter of this upload in addition to the shared one,null for none.
+     * @param transferListener The listener of transferred bytes.
+     * @return The url of the uploaded file.
+     * @throws IOException           Network failure,the acknowledged chunks are kept for next time.
+     * @throws UploadFailedException The server refused a chunk or the commit.
+     */
+    @NonNull
+    String upload(@NonNull File file, String fileMD5, String token, String accessVerify, String mode, long chunkSize,
+                  int concurrency, @Nullable RetryPolicy retryPolicy, @Nullable BandwidthLimiter bandwidthLimiter,
+                  @Nullable TransferListener transferListener) throws IOException, UploadFailedException {
+        final long length = file.length();
+        final String key = recordKey(fileMD5, accessVerify, mode);
+        ChunkRecord record = mStore.get(key);
+        if (record == null || !record.matches(fileMD5, length, chunkSize)) {
+            record = new ChunkRecord(fileMD5, length, chunkSize);
+        }
+        final int permits = Math.max(1, Math.min(concurrency, mClient.dispatcher().getMaxRequestsPerHost()));
+        final BandwidthLimiter[] limiters = bandwidthLimiter == null ? new BandwidthLimiter[]{mBandwidthLimiter}
+                : new BandwidthLimiter[]{mBandwidthLimiter, bandwidthLimiter};
+        for (int attempt = 0; attempt < MAX_COMMIT_ATTEMPTS; attempt++) {
+            uploadChunks(file, token, accessVerify, mode, key, record, permits, retryPolicy, limiters, transferListener);
+            Response.CommitBean commitInfo = commit(fileMD5, token, accessVerify, mode, record, retryPolicy);
+            if (commitInfo.getUrl() != null) {
+                mStore.remove(key);
+                return commitInfo.getUrl();
+            }
+            if (commitInfo.getMissing() == null || commitInfo.getMissing().isEmpty()) {
+                break;
+            }
+            //The server lost some chunks(e.g. expired),forget them and upload again.
+            synchronized (record) {
+                record.unack(commitInfo.getMissing());
+                mStore.put(key, record);
+            }
+        }
+        throw new UploadFailedException();
+    }
+
+    /**
+     * Upload the chunks not acknowledged yet,keeping up to {@code permits} of them in flight.
+     */
+    private void uploadChunks(File file, String token, String accessVerify, String mode, String key,
+                              ChunkRecord record, int permits, @Nullable RetryPolicy retryPolicy,
+                              BandwidthLimiter[] limiters, @Nullable TransferListener transferListener)
+            throws IOException, UploadFailedException {
+        final long length = record.getLength();
+        final AtomicLong transferred = new AtomicLong(record.getAckedBytes());
+        final Semaphore semaphore = new Semaphore(permits);
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        for (int index = 0; index < record.getChunkCount(); index++) {
+            if (record.isAcked(index)) continue;
+            semaphore.acquireUninterruptibly();
+            if (failure.get() != null) {
+                semaphore.release();
+                break;
+            }
+            final int chunkIndex = index;
+            FileRangeRequestBody.Listener listener = transferListener == null ? null : bytes ->
+                    transferListener.onTransferred(transferred.addAndGet(bytes), length);
+            MultipartBody body = new MultipartBody.Builder()
+                    .setType(MultipartBody.FORM)
+                    .addFormDataPart(NET_KEY_MD_UPPER, record.getMd5())
+                    .addFormDataPart(NET_KEY_TOKEN, token)
+                    .addFormDataPart(NET_KEY_ACCESS, accessVerify)
+                    .addFormDataPart(NET_KEY_MODE, mode)
+                    .addFormDataPart(NET_KEY_SIZE, String.valueOf(length))
+                    .addFormDataPart(NET_KEY_OFFSET, String.valueOf(record.getChunkOffset(chunkIndex)))
+                    .addFormDataPart(NET_KEY_INDEX, String.valueOf(chunkIndex))
+                    .addFormDataPart(NET_KEY_CHUNK, file.getName(), new ThrottledRequestBody(new FileRangeRequestBody(file,
+                            record.getChunkOffset(chunkIndex), record.getChunkLength(chunkIndex), MEDIA_TYPE_CHUNK, listener), limiters))
+                    .build();
+            Request request = new Request.Builder()
+                    .url(mChunkUrl)
+                    .post(body)
+                    .tag(retryPolicy)
+                    .build();
+            mClient.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                    failure.compareAndSet(null, e);
+                    semaphore.release();
+                }
+
+                @Override
+                public void onResponse(@NonNull Call call, @NonNull okhttp3.Response response) {
+                    try (okhttp3.Response r = response) {
+                        if (!r.isSuccessful()) {
+                            failure.compareAndSet(null, new HttpStatusException(r.code()));
+                            return;
+                        }
+                        Response<?> chunkResponse = r.body() != null ? mDecoder.decodeStatus(r.body()) : null;
+                        if (chunkResponse != null && chunkResponse.getRet() == RET_SUCCESS) {
+                            synchronized (record) {
+                                record.ack(chunkIndex);
+                                mStore.put(key, record);
+                            }
+                        } else {
+                            failure.compareAndSet(null, new UploadFailedException());
+                        }
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        semaphore.release();
+                    }
+                }
+            });
+        }
+        //Wait for the chunks in flight.
+        semaphore.acquireUninterruptibly(permits);
+        semaphore.release(permits);
+        Exception e = failure.get();
+        if (e instanceof IOException) throw (IOException) e;
+        if (e != null) throw new UploadFailedException();
+    }
+
+    /**
+     * Ask the server to reassemble the chunks in index order.
+     */
+    @NonNull
+    private Response.CommitBean commit(String fileMD5, String token, String accessVerify, String mode, ChunkRecord record,
+                                       @Nullable RetryPolicy retryPolicy) throws IOException, UploadFailedException {
+        RequestBody requestBody = new FormBody.Builder()
+                .add(NET_KEY_MD_UPPER, fileMD5)
+                .add(NET_KEY_TOKEN, token)
+                .add(NET_KEY_ACCESS, accessVerify)
+                .add(NET_KEY_MODE, mode)
+                .add(NET_KEY_SIZE, String.valueOf(record.getLength()))
+                .add(NET_KEY_CHUNK_SIZE, String.valueOf(record.getChunkSize()))
+                .add(NET_KEY_COUNT, String.valueOf(record.getChunkCount()))
+                .build();
+        Request request = new Request.Builder()
+                .url(mCommitUrl)
+                .post(requestBody)
+                .tag(retryPolicy)
+                .build();
+        try (okhttp3.Response response = mClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new HttpStatusException(response.code());
+            }
+            if (response.body() != null) {
+                Response<Response.CommitBean> commitResponse = mDecoder.decodeCommit(response.body());
+                if (commitResponse != null && commitResponse.getData() != null
+                        && (commitResponse.getRet() == RET_SUCCESS || commitResponse.getData().getMissing() != null)) {
+                    return commitResponse.getData();
+                }
+            }
+        }
+        throw new UploadFailedException();
+    }
+
+    private static String recordKey(String fileMD5, String accessVerify, String mode) {
+        return fileMD5 + "_" + accessVerify + "_" + mode;
+    }
+}
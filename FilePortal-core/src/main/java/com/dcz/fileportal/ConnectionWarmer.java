@@ -0,0 +1,63 @@
+package com.dcz.fileportal;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+/**
+ * Open a connection to the hosts of the given endpoints ahead of the first upload,
+ * so DNS,TCP and TLS setup is paid before the user is waiting.The connections are kept in the client's pool.
+ */
+class ConnectionWarmer {
+
+    private final OkHttpClient mClient;
+
+    ConnectionWarmer(OkHttpClient client) {
+        mClient = client;
+    }
+
+    /**
+     * Connect to the hosts of all the endpoints of the backend server.
+     *
+     * @return The number of hosts connected.
+     */
+    int warmBackend() {
+        return warm(Constants.API_TOKEN, Constants.API_PRE_UPLOAD, Constants.API_PRE_UPLOAD_BATCH,
+                Constants.API_UPLOAD, Constants.API_UPLOAD_CHUNK, Constants.API_UPLOAD_COMMIT);
+    }
+
+    /**
+     * @param urls Endpoints to be called later,one connection is opened per distinct host.
+     * @return The number of hosts connected.
+     */
+    int warm(@NonNull String... urls) {
+        Set<HttpUrl> origins = new LinkedHashSet<>();
+        for (String url : urls) {
+            HttpUrl httpUrl = HttpUrl.parse(url);
+            if (httpUrl != null) {
+                origins.add(httpUrl.newBuilder().encodedPath("/").query(null).fragment(null).build());
+            }
+        }
+        int connected = 0;
+        for (HttpUrl origin : origins) {
+            //Any response will do,the connection is what we are after.
+            Request request = new Request.Builder()
+                    .url(origin)
+                    .head()
+                    .build();
+            try {
+                mClient.newCall(request).execute().close();
+                connected++;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return connected;
+    }
+}
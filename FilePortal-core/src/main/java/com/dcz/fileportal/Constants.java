@@ -15,11 +15,29 @@ class Constants {
     static final String NET_KEY_ACCESS = "access";
     static final String NET_KEY_TOKEN = "token";
     static final String NET_KEY_MODE = "mode";
+    //batched pre upload
+    static final String API_PRE_UPLOAD_BATCH = "https://fs.cocomobi.com/api/v1/preUploadBatch";
+    static final String NET_KEY_MD5S = "md5s";
     //upload
     static final String API_UPLOAD = "https://fs.cocomobi.com/api/v1/upload";
     static final String NET_KEY_FILE = "file";
     static final String NET_KEY_MD_UPPER = "MD";
+    //chunked upload
+    static final String API_UPLOAD_CHUNK = "https://fs.cocomobi.com/api/v1/uploadChunk";
+    static final String NET_KEY_CHUNK = "chunk";
+    static final String NET_KEY_OFFSET = "offset";
+    static final String NET_KEY_INDEX = "index";
+    static final String NET_KEY_SIZE = "size";
+    static final String API_UPLOAD_COMMIT = "https://fs.cocomobi.com/api/v1/uploadCommit";
+    static final String NET_KEY_CHUNK_SIZE = "chunkSize";
+    static final String NET_KEY_COUNT = "count";
     //Shared preference
     static final String SHARED_PREFS_NAME = "file_portal_prefs";
     static final String PREFS_TOKEN_JSON = "prefs_token_json";
+    static final String PREFS_TOKEN_JSON_PREFIX = "prefs_token_json_";
+    static final String PREFS_CHUNK_RECORD_PREFIX = "prefs_chunk_record_";
+    //Cache files
+    static final String HASH_INDEX_FILE_NAME = "file_portal_hash_index.json";
+    //Files
+    static final String JOURNAL_FILE_NAME = "file_portal_journal.json";
 }
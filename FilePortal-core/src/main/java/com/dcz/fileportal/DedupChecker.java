@@ -0,0 +1,83 @@
+package com.dcz.fileportal;
+
+import androidx.annotation.NonNull;
+
+import com.dcz.fileportal.exceptions.UploadFailedException;
+import com.dcz.fileportal.network.ResponseDecoder;
+import com.dcz.fileportal.network.bean.Response;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import okhttp3.FormBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+import static com.dcz.fileportal.Constants.NET_KEY_ACCESS;
+import static com.dcz.fileportal.Constants.NET_KEY_MD5S;
+import static com.dcz.fileportal.Constants.NET_KEY_MODE;
+import static com.dcz.fileportal.Constants.NET_KEY_TOKEN;
+import static com.dcz.fileportal.Constants.RET_SUCCESS;
+
+/**
+ * Ask the backend server which of many files it already has,with a single round-trip.
+ */
+class DedupChecker {
+
+    //MD5s sent in one request at most.
+    static final int MAX_MD5_COUNT = 100;
+
+    private final OkHttpClient mClient;
+    private final ResponseDecoder mDecoder;
+    private final String mUrl;
+
+    DedupChecker(OkHttpClient client, ResponseDecoder decoder, String url) {
+        mClient = client;
+        mDecoder = decoder;
+        mUrl = url;
+    }
+
+    /**
+     * @param token        token.
+     * @param md5s         MD5 hashes of the files,no more than {@link #MAX_MD5_COUNT}.
+     * @param accessVerify Whether token is needed to access the files.
+     * @param mode         The strategy of keeping files.
+     * @return MD5 -> url of the files which exist on the backend server.
+     * @throws IOException           Network failure.
+     * @throws UploadFailedException The server refused the check.
+     */
+    @NonNull
+    Map<String, String> check(String token, Collection<String> md5s, String accessVerify, String mode)
+            throws IOException, UploadFailedException {
+        StringBuilder joined = new StringBuilder(md5s.size() * 33);
+        for (String md5 : md5s) {
+            if (joined.length() > 0) joined.append(',');
+            joined.append(md5);
+        }
+        RequestBody requestBody = new FormBody.Builder()
+                .add(NET_KEY_MD5S, joined.toString())
+                .add(NET_KEY_TOKEN, token)
+                .add(NET_KEY_ACCESS, accessVerify)
+                .add(NET_KEY_MODE, mode)
+                .build();
+        Request request = new Request.Builder()
+                .url(mUrl)
+                .post(requestBody)
+                .build();
+        try (okhttp3.Response response = mClient.newCall(request).execute()) {
+            if (response.isSuccessful() && response.body() != null) {
+                Response<Response.BatchPreUploadBean> checkInfo = mDecoder.decodeBatchPreUpload(response.body());
+                if (checkInfo != null && checkInfo.getRet() == RET_SUCCESS) {
+                    if (checkInfo.getData() == null || checkInfo.getData().getUrls() == null) {
+                        return Collections.emptyMap();
+                    }
+                    return checkInfo.getData().getUrls();
+                }
+            }
+        }
+        throw new UploadFailedException();
+    }
+}
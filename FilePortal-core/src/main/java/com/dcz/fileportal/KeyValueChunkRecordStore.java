@@ -0,0 +1,45 @@
+package com.dcz.fileportal;
+
+import androidx.annotation.Nullable;
+
+import com.dcz.fileportal.network.bean.ChunkRecord;
+import com.dcz.fileportal.store.KeyValueStore;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+/**
+ * Keep the progress of chunked uploads in a key-value store,e.g. shared preference,so that it survives process death.
+ */
+class KeyValueChunkRecordStore implements ChunkRecordStore {
+
+    private final KeyValueStore mStore;
+    private final Gson mGson;
+
+    KeyValueChunkRecordStore(KeyValueStore store, Gson gson) {
+        mStore = store;
+        mGson = gson;
+    }
+
+    @Nullable
+    @Override
+    public ChunkRecord get(String key) {
+        String json = mStore.getString(Constants.PREFS_CHUNK_RECORD_PREFIX + key);
+        if (json == null) return null;
+        try {
+            return mGson.fromJson(json, ChunkRecord.class);
+        } catch (JsonSyntaxException e) {
+            //Broken record,start over.
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String key, ChunkRecord record) {
+        mStore.putString(Constants.PREFS_CHUNK_RECORD_PREFIX + key, mGson.toJson(record));
+    }
+
+    @Override
+    public void remove(String key) {
+        mStore.remove(Constants.PREFS_CHUNK_RECORD_PREFIX + key);
+    }
+}
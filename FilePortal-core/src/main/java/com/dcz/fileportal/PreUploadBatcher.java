@@ -0,0 +1,77 @@
+package com.dcz.fileportal;
+
+import com.dcz.fileportal.scheduler.UploadScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Group hashed files of a batch for {@link DedupChecker}.
+ * Only one group is checked at a time,files hashed meanwhile wait for the next group.So groups grow large when
+ * hashing outpaces the network and stay small when it doesn't,without holding back the pipeline.
+ *
+ * @param <T> Type of the hashed file.
+ */
+class PreUploadBatcher<T> {
+
+    interface GroupHandler<T> {
+        /**
+         * Called on the network stage.
+         *
+         * @param group No more than {@link DedupChecker#MAX_MD5_COUNT} items.
+         */
+        void handle(List<T> group);
+
+        /**
+         * Called if the network stage rejected the group,e.g. it has been shut down.
+         *
+         * @param group The pending items.
+         */
+        void reject(List<T> group);
+    }
+
+    private final UploadScheduler mScheduler;
+    private final int mPriority;
+    private final GroupHandler<T> mHandler;
+    private final List<T> mPending = new ArrayList<>();
+    private boolean mDraining;
+
+    PreUploadBatcher(UploadScheduler scheduler, int priority, GroupHandler<T> handler) {
+        mScheduler = scheduler;
+        mPriority = priority;
+        mHandler = handler;
+    }
+
+    void add(T item) {
+        synchronized (mPending) {
+            mPending.add(item);
+            if (mDraining) return;
+            mDraining = true;
+        }
+        mScheduler.executeNetwork(mPriority, this::drain, () -> {
+            List<T> rejected;
+            synchronized (mPending) {
+                rejected = new ArrayList<>(mPending);
+                mPending.clear();
+                mDraining = false;
+            }
+            mHandler.reject(rejected);
+        });
+    }
+
+    private void drain() {
+        while (true) {
+            List<T> group;
+            synchronized (mPending) {
+                if (mPending.isEmpty()) {
+                    mDraining = false;
+                    return;
+                }
+                int size = Math.min(mPending.size(), DedupChecker.MAX_MD5_COUNT);
+                group = new ArrayList<>(mPending.subList(0, size));
+                mPending.subList(0, size).clear();
+            }
+            mHandler.handle(group);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.dcz.fileportal;
+
+import androidx.annotation.NonNull;
+
+import com.dcz.fileportal.exceptions.UploadFailedException;
+import com.dcz.fileportal.options.RetryPolicy;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run the requests of one upload task under its {@link RetryPolicy}.
+ * The deadline is shared by all requests of the task,the attempts are counted per request.
+ */
+class Retrier {
+
+    private final RetryPolicy mPolicy;
+    private final long mDeadlineNanos;
+    private int mRetries;
+
+    Retrier(@NonNull RetryPolicy policy) {
+        mPolicy = policy;
+        mDeadlineNanos = policy.getDeadlineMs() == 0 ? Long.MAX_VALUE
+                : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(policy.getDeadlineMs());
+    }
+
+    /**
+     * Run the attempt until it succeeds,fails with an error not worth retrying,runs out of attempts
+     * or the next retry would start after the deadline.
+     *
+     * @param attempt The request.
+     * @return The result of the successful attempt.
+     * @throws IOException           The last failure,or the wait before a retry was interrupted.
+     * @throws UploadFailedException The backend server refused the request.
+     */
+    <T> T call(@NonNull Attempt<T> attempt) throws IOException, UploadFailedException {
+        for (int attempts = 1; ; attempts++) {
+            try {
+                return attempt.run();
+            } catch (IOException | UploadFailedException e) {
+                if (attempts >= mPolicy.getMaxAttempts() || !mPolicy.isRetryable(e)) throw e;
+                long backoffNanos = TimeUnit.MILLISECONDS.toNanos(mPolicy.backoffMs(attempts));
+                if (mDeadlineNanos - System.nanoTime() < backoffNanos) throw e;
+                sleep(backoffNanos);
+                mRetries++;
+            }
+        }
+    }
+
+    /**
+     * @return Retries made so far.
+     */
+    int getRetries() {
+        return mRetries;
+    }
+
+    private static void sleep(long nanos) throws InterruptedIOException {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+
+    interface Attempt<T> {
+        T run() throws IOException, UploadFailedException;
+    }
+}
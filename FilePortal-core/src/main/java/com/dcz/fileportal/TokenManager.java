@@ -0,0 +1,215 @@
+package com.dcz.fileportal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dcz.fileportal.exceptions.InvalidTimeException;
+import com.dcz.fileportal.network.ResponseDecoder;
+import com.dcz.fileportal.network.bean.Response;
+import com.dcz.fileportal.store.KeyValueStore;
+import com.dcz.fileportal.utils.Utils;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import okhttp3.FormBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+import static com.dcz.fileportal.Constants.NET_KEY_PKG;
+import static com.dcz.fileportal.Constants.NET_KEY_SIGNATURE;
+import static com.dcz.fileportal.Constants.NET_KEY_UID;
+import static com.dcz.fileportal.Constants.RET_SUCCESS;
+
+/**
+ * Tokens of every user,kept in memory and backed by a key-value store,e.g. shared preference.
+ * <p>
+ * Concurrent callers missing the token of the same user share a single request.A token close to
+ * {@code date_expired} is renewed in the background while it is still handed out,so that uploads don't wait on it.
+ */
+class TokenManager {
+
+    //Renew a token this long before it expires.
+    private static final long REFRESH_AHEAD_MS = 5 * 60 * 1000;
+    //Wait this long before renewing the token again after a renewal failed.
+    private static final long REFRESH_RETRY_MS = 30 * 1000;
+
+    private final OkHttpClient mClient;
+    private final Gson mGson;
+    private final ResponseDecoder mDecoder;
+    private final KeyValueStore mStore;
+    private final Executor mRefreshExecutor;
+    private final String mUrl;
+    private final ConcurrentHashMap<String, TokenEntry> mTokens = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, FutureTask<TokenEntry>> mInFlight = new ConcurrentHashMap<>();
+    //When the token of the user may be renewed again after a failed renewal.
+    private final ConcurrentHashMap<String, Long> mRefreshRetryAt = new ConcurrentHashMap<>();
+
+    /**
+     * @param client          OkHttp client.
+     * @param gson            Gson instance,which persists the tokens.
+     * @param decoder         Decoder of the token responses.
+     * @param store           Where tokens are persisted.
+     * @param refreshExecutor Runs the background renewal.
+     * @param url             The token api.
+     */
+    TokenManager(OkHttpClient client, Gson gson, ResponseDecoder decoder, KeyValueStore store, Executor refreshExecutor,
+                 String url) {
+        mClient = client;
+        mGson = gson;
+        mDecoder = decoder;
+        mStore = store;
+        mRefreshExecutor = refreshExecutor;
+        mUrl = url;
+    }
+
+    /**
+     * If there is a valid token for the user,use it directly.Otherwise get a new token from backend server.
+     *
+     * @param uid         The unique uid of current user.
+     * @param apiKey      Api key registered by developer for Marvel File System.
+     * @param packageName Package name of the app.
+     * @return A token,or null if failed to get one.
+     */
+    @Nullable
+    String getToken(@NonNull final String uid, @NonNull final String apiKey, @NonNull final String packageName) {
+        TokenEntry entry = mTokens.get(uid);
+        if (entry == null) {
+            entry = loadToken(uid);
+            if (entry != null) mTokens.put(uid, entry);
+        }
+        final long now = System.currentTimeMillis();
+        if (entry != null && now < entry.expireTimestamp) {
+            if (now > entry.expireTimestamp - REFRESH_AHEAD_MS) {
+                refreshInBackground(uid, apiKey, packageName, now);
+            }
+            return entry.token;
+        }
+        //No valid token found,then fetch a token from backend server.
+        entry = fetchShared(uid, apiKey, packageName, false);
+        return entry == null ? null : entry.token;
+    }
+
+    private void refreshInBackground(final String uid, final String apiKey, final String packageName, long now) {
+        if (mInFlight.containsKey(uid)) return;
+        Long retryAt = mRefreshRetryAt.get(uid);
+        if (retryAt != null && now < retryAt) return;
+        mRefreshExecutor.execute(() -> {
+            if (fetchShared(uid, apiKey, packageName, true) == null) {
+                //Failed or joined a request in flight,don't renew again on every call.
+                mRefreshRetryAt.put(uid, System.currentTimeMillis() + REFRESH_RETRY_MS);
+            } else {
+                mRefreshRetryAt.remove(uid);
+            }
+        });
+    }
+
+    /**
+     * Fetch the token of the user,joining the request in flight if any.
+     *
+     * @param background Don't wait for a request in flight,it will cache the token anyway.
+     */
+    @Nullable
+    private TokenEntry fetchShared(final String uid, final String apiKey, final String packageName, boolean background) {
+        FutureTask<TokenEntry> task = new FutureTask<>(() -> fetchToken(uid, apiKey, packageName));
+        FutureTask<TokenEntry> inFlight = mInFlight.putIfAbsent(uid, task);
+        if (inFlight == null) {
+            try {
+                task.run();
+            } finally {
+                mInFlight.remove(uid, task);
+            }
+            inFlight = task;
+        } else if (background) {
+            return null;
+        }
+        try {
+            return inFlight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Nullable
+    private TokenEntry fetchToken(String uid, String apiKey, String packageName) {
+        String sourceParams = uid + apiKey + packageName;
+        String signature = Utils.md5(sourceParams);
+        RequestBody requestBody = new FormBody.Builder()
+                .add(NET_KEY_UID, uid)
+                .add(NET_KEY_SIGNATURE, signature)
+                .add(NET_KEY_PKG, packageName)
+                .build();
+        Request request = new Request.Builder()
+                .url(mUrl)
+                .post(requestBody)
+                .build();
+        try (okhttp3.Response response = mClient.newCall(request).execute()) {
+            if (response.isSuccessful() && response.body() != null) {
+                Response<Response.TokenBean> tokenResponse = mDecoder.decodeToken(response.body());
+                if (tokenResponse != null && tokenResponse.getRet() == RET_SUCCESS && tokenResponse.getData() != null) {
+                    //Cache the token info
+                    Response.TokenBean tokenInfo = tokenResponse.getData();
+                    tokenInfo.setUid(uid);
+                    TokenEntry entry = new TokenEntry(tokenInfo.getToken(), expireTimestampOf(tokenInfo));
+                    mTokens.put(uid, entry);
+                    mStore.putString(Constants.PREFS_TOKEN_JSON_PREFIX + uid, mGson.toJson(tokenInfo));
+                    return entry;
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Get the token persisted for the user,including the one kept by earlier versions for a single user.
+     */
+    @Nullable
+    private TokenEntry loadToken(String uid) {
+        String tokenJson = mStore.getString(Constants.PREFS_TOKEN_JSON_PREFIX + uid);
+        if (tokenJson == null) tokenJson = mStore.getString(Constants.PREFS_TOKEN_JSON);
+        if (tokenJson == null) return null;//No cached token info found.
+        Response.TokenBean tokenInfo;
+        try {
+            tokenInfo = mGson.fromJson(tokenJson, Response.TokenBean.class);
+        } catch (JsonSyntaxException e) {
+            return null;
+        }
+        //The cached token belongs to another user.
+        if (tokenInfo == null || tokenInfo.getToken() == null || !Objects.equals(tokenInfo.getUid(), uid)) {
+            return null;
+        }
+        return new TokenEntry(tokenInfo.getToken(), expireTimestampOf(tokenInfo));
+    }
+
+    private static long expireTimestampOf(Response.TokenBean tokenInfo) {
+        try {
+            return Utils.dateStr2Timestamp(tokenInfo.getExpireTime());
+        } catch (InvalidTimeException ignored) {
+            //Failed to get expire time,use the token once and abandon it.
+            return 0;
+        }
+    }
+
+    private static class TokenEntry {
+        final String token;
+        final long expireTimestamp;
+
+        TokenEntry(String token, long expireTimestamp) {
+            this.token = token;
+            this.expireTimestamp = expireTimestamp;
+        }
+    }
+}
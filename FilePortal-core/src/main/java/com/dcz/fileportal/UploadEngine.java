@@ -0,0 +1,404 @@
+package com.dcz.fileportal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dcz.fileportal.cache.FileHashIndex;
+import com.dcz.fileportal.cache.UploadResultCache;
+import com.dcz.fileportal.exceptions.DirectoryProvidedException;
+import com.dcz.fileportal.exceptions.EmptyFileException;
+import com.dcz.fileportal.exceptions.HttpStatusException;
+import com.dcz.fileportal.exceptions.NoTokenException;
+import com.dcz.fileportal.exceptions.UploadFailedException;
+import com.dcz.fileportal.network.BandwidthLimiter;
+import com.dcz.fileportal.network.CountingFileRequestBody;
+import com.dcz.fileportal.network.ResponseDecoder;
+import com.dcz.fileportal.network.ThrottledRequestBody;
+import com.dcz.fileportal.network.TransferListener;
+import com.dcz.fileportal.network.bean.Response;
+import com.dcz.fileportal.options.RetryPolicy;
+import com.dcz.fileportal.store.KeyValueStore;
+import com.dcz.fileportal.utils.MimeTypeResolver;
+import com.dcz.fileportal.utils.MimeTypes;
+import com.dcz.fileportal.utils.Utils;
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import okhttp3.FormBody;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+import static com.dcz.fileportal.Constants.NET_KEY_ACCESS;
+import static com.dcz.fileportal.Constants.NET_KEY_FILE;
+import static com.dcz.fileportal.Constants.NET_KEY_MD5;
+import static com.dcz.fileportal.Constants.NET_KEY_MD_UPPER;
+import static com.dcz.fileportal.Constants.NET_KEY_MODE;
+import static com.dcz.fileportal.Constants.NET_KEY_TOKEN;
+import static com.dcz.fileportal.Constants.RET_SUCCESS;
+
+/**
+ * The upload protocol of the backend server,free of Android:token,hashing,pre upload check and transfer.
+ * <p>
+ * {@link FilePortal} drives it on Android with its scheduler,callbacks and journal.Elsewhere,e.g. in backend jobs,
+ * call {@link #upload} from threads of your own.All methods block and are thread safe.
+ */
+public class UploadEngine {
+
+    private final OkHttpClient mClient;
+    private final ResponseDecoder mDecoder;
+    private final String mPackageName;
+    private final TokenManager mTokenManager;
+    private final ChunkedUploader mChunkedUploader;
+    private final DedupChecker mDedupChecker;
+    private final BandwidthLimiter mBandwidthLimiter;
+    private final MimeTypeResolver mMimeTypeResolver;
+    private final boolean mSniffMimeType;
+    private final FileHashIndex mHashIndex;
+    private final UploadResultCache mResultCache;
+
+    private UploadEngine(Builder builder) {
+        mClient = builder.client;
+        final Gson gson = builder.gson == null ? new Gson() : builder.gson;
+        mDecoder = new ResponseDecoder(gson);
+        mPackageName = builder.packageName;
+        mBandwidthLimiter = builder.bandwidthLimiter == null ? new BandwidthLimiter() : builder.bandwidthLimiter;
+        mMimeTypeResolver = builder.mimeTypeResolver == null ? MimeTypes.getInstance() : builder.mimeTypeResolver;
+        mSniffMimeType = builder.sniffMimeType;
+        mHashIndex = builder.hashIndex;
+        mResultCache = builder.resultCache;
+        Executor refreshExecutor = builder.refreshExecutor == null ? Runnable::run : builder.refreshExecutor;
+        mTokenManager = new TokenManager(mClient, gson, mDecoder, builder.store, refreshExecutor, Constants.API_TOKEN);
+        mChunkedUploader = new ChunkedUploader(mClient, mDecoder, new KeyValueChunkRecordStore(builder.store, gson),
+                mBandwidthLimiter, Constants.API_UPLOAD_CHUNK, Constants.API_UPLOAD_COMMIT);
+        mDedupChecker = new DedupChecker(mClient, mDecoder, Constants.API_PRE_UPLOAD_BATCH);
+    }
+
+    /**
+     * Hash,check and upload the file,retrying under the retry policy.
+     *
+     * @param file             The file to be uploaded.
+     * @param uid              The unique uid of the user.
+     * @param apiKey           Api key registered by developer for Marvel File System.
+     * @param accessVerify     Whether token is needed to access the file,see {@link com.dcz.fileportal.options.AccessOption}.
+     * @param mode             The strategy of keeping files,see {@link com.dcz.fileportal.options.ModeOption}.
+     * @param chunkSize        Files larger than this are uploaded in chunks of this size,0 to upload them whole.
+     * @param chunkConcurrency Max chunks of the file in flight at once.
+     * @param retryPolicy      Timeouts of the requests and how failed ones are retried.
+     * @param transferListener The listener of transferred bytes,null for none.
+     * @return The result of the upload.
+     * @throws DirectoryProvidedException The file is a directory.
+     * @throws EmptyFileException         The file is empty or doesn't exist.
+     * @throws NoTokenException           Failed to get the token of the user.
+     * @throws IOException                Network failure.
+     * @throws UploadFailedException      The file couldn't be read or the backend server refused it.
+     */
+    @NonNull
+    public UploadResult upload(@NonNull File file, @NonNull String uid, @NonNull String apiKey, @NonNull String accessVerify,
+                               @NonNull String mode, long chunkSize, int chunkConcurrency, @NonNull RetryPolicy retryPolicy,
+                               @Nullable TransferListener transferListener)
+            throws DirectoryProvidedException, EmptyFileException, NoTokenException, IOException, UploadFailedException {
+        if (file.isDirectory()) throw new DirectoryProvidedException();
+        if (file.length() == 0) throw new EmptyFileException();
+        final String fileMD5 = hash(file);
+        if (fileMD5 == null) throw new UploadFailedException();
+        if (mResultCache != null) {
+            String cachedUrl = mResultCache.get(fileMD5, accessVerify, mode);
+            if (cachedUrl != null) return new UploadResult(cachedUrl, fileMD5, true);
+        }
+        final String token = getToken(uid, apiKey);
+        if (token == null) throw new NoTokenException();
+        final Retrier retrier = new Retrier(retryPolicy);
+        String url = retrier.call(() -> preUpload(token, fileMD5, accessVerify, mode, retryPolicy));
+        final boolean cached = url != null;
+        if (url == null) {
+            //Told once for all the attempts.
+            final String mimeType = getMimeType(file);
+            url = retrier.call(() -> transfer(file, fileMD5, mimeType, token, accessVerify, mode, chunkSize, chunkConcurrency,
+                    retryPolicy, null, transferListener));
+        }
+        if (mResultCache != null) {
+            mResultCache.put(fileMD5, accessVerify, mode, url);
+        }
+        return new UploadResult(url, fileMD5, cached);
+    }
+
+    /**
+     * Hash the file,looking it up in the hash index first if there is one.
+     *
+     * @param file The file.
+     * @return The MD5 hash of the file,null if it couldn't be read.
+     */
+    @Nullable
+    public String hash(@NonNull File file) {
+        String fileMD5 = mHashIndex == null ? null : mHashIndex.get(file);
+        if (fileMD5 != null) return fileMD5;
+        //Read before hashing,so a change made meanwhile doesn't get the old hash.
+        final long length = file.length();
+        final long lastModified = file.lastModified();
+        fileMD5 = Utils.md5(file);
+        if (fileMD5 != null && mHashIndex != null) {
+            mHashIndex.put(file, length, lastModified, fileMD5);
+        }
+        return fileMD5;
+    }
+
+    /**
+     * If there is a valid token for the user,use it directly.Otherwise get a new token from backend server.
+     *
+     * @param uid    The unique uid of the user.
+     * @param apiKey Api key registered by developer for Marvel File System.
+     * @return The token,null if it couldn't be gotten.
+     */
+    @Nullable
+    public String getToken(@NonNull String uid, @NonNull String apiKey) {
+        return mTokenManager.getToken(uid, apiKey, mPackageName);
+    }
+
+    /**
+     * Check before do upload task.
+     * If the same file has been uploaded,we'll get a url.Otherwise ret_code != 200,start upload.
+     *
+     * @param token        token.
+     * @param fileMD5      The MD5 hash which will be used to check if the file has exists on backend server of the file.
+     * @param accessVerify Whether token is needed to access the file.
+     * @param mode         The strategy of keeping files.
+     * @param retryPolicy  Timeouts of the request,null for the ones of the client.
+     * @return The url of the same file if it has been uploaded,otherwise null.
+     * @throws IOException           Network failure.
+     * @throws UploadFailedException The server found the file but sent no url of it.
+     */
+    @Nullable
+    public String preUpload(@NonNull String token, @NonNull String fileMD5, @NonNull String accessVerify, @NonNull String mode,
+                            @Nullable RetryPolicy retryPolicy) throws IOException, UploadFailedException {
+        RequestBody requestBody = new FormBody.Builder()
+                .add(NET_KEY_MD5, fileMD5)
+                .add(NET_KEY_TOKEN, token)
+                .add(NET_KEY_ACCESS, accessVerify)
+                .add(NET_KEY_MODE, mode)
+                .build();
+        Request request = new Request.Builder()
+                .url(Constants.API_PRE_UPLOAD)
+                .post(requestBody)
+                .tag(retryPolicy)
+                .build();
+        try (okhttp3.Response response = mClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new HttpStatusException(response.code());
+            }
+            if (response.body() != null) {
+                final Response<Response.UploadBean> preloadInfo = mDecoder.decodeUpload(response.body());
+                if (preloadInfo != null && preloadInfo.getRet() == RET_SUCCESS) {
+                    if (preloadInfo.getData() == null || preloadInfo.getData().getUrl() == null) {
+                        throw new UploadFailedException();
+                    }
+                    return preloadInfo.getData().getUrl();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check many files with a single request,see {@link DedupChecker#MAX_MD5_COUNT} for the limit.
+     *
+     * @param token        token.
+     * @param md5s         MD5 hashes of the files.
+     * @param accessVerify Whether token is needed to access the files.
+     * @param mode         The strategy of keeping files.
+     * @return MD5 -> url of the files which exist on the backend server.
+     * @throws IOException           Network failure.
+     * @throws UploadFailedException The server refused the check.
+     */
+    @NonNull
+    public Map<String, String> preUploadBatch(@NonNull String token, @NonNull Collection<String> md5s,
+                                              @NonNull String accessVerify, @NonNull String mode)
+            throws IOException, UploadFailedException {
+        return mDedupChecker.check(token, md5s, accessVerify, mode);
+    }
+
+    /**
+     * Upload the file which the backend server doesn't have yet,once.A chunked upload resumes from the acknowledged chunks.
+     *
+     * @param file             The file to be uploaded.
+     * @param fileMD5          The MD5 hash of the file.
+     * @param mimeType         The MIME type of the file from {@link #getMimeType(File)},null to tell it now.
+     * @param token            verification token.
+     * @param accessVerify     Whether token is needed to access the file.
+     * @param mode             The strategy of keeping files.
+     * @param chunkSize        Files larger than this are uploaded in chunks of this size,0 to upload them whole.
+     * @param chunkConcurrency Max chunks of the file in flight at once.
+     * @param retryPolicy      Timeouts of the requests,null for the ones of the client.
+     * @param bandwidthLimiter Limiter of this upload in addition to the global one,null for none.
+     * @param transferListener The listener of transferred bytes,null for none.
+     * @return The url of the uploaded file.
+     * @throws IOException           Network failure.
+     * @throws UploadFailedException The backend server refused the file.
+     */
+    @NonNull
+    public String transfer(@NonNull File file, @NonNull String fileMD5, @Nullable String mimeType, @NonNull String token,
+                           @NonNull String accessVerify, @NonNull String mode, long chunkSize, int chunkConcurrency, @Nullable RetryPolicy retryPolicy,
+                           @Nullable BandwidthLimiter bandwidthLimiter, @Nullable TransferListener transferListener)
+            throws IOException, UploadFailedException {
+        if (chunkSize > 0 && file.length() > chunkSize) {
+            return mChunkedUploader.upload(file, fileMD5, token, accessVerify, mode, chunkSize, chunkConcurrency,
+                    retryPolicy, bandwidthLimiter, transferListener);
+        }
+        final MediaType mediaType = MediaType.parse(mimeType == null ? getMimeType(file) : mimeType);
+        MultipartBody.Builder builder = new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addFormDataPart(NET_KEY_MD_UPPER, fileMD5)
+                .addFormDataPart(NET_KEY_TOKEN, token)
+                .addFormDataPart(NET_KEY_ACCESS, accessVerify)
+                .addFormDataPart(NET_KEY_MODE, mode);
+        //The progress is counted from the file part itself,so the file is sent only once.
+        RequestBody fileBody = transferListener == null ? RequestBody.create(mediaType, file)
+                : new CountingFileRequestBody(file, mediaType, transferListener);
+        fileBody = bandwidthLimiter == null ? new ThrottledRequestBody(fileBody, mBandwidthLimiter)
+                : new ThrottledRequestBody(fileBody, mBandwidthLimiter, bandwidthLimiter);
+        RequestBody requestBody = builder.addFormDataPart(NET_KEY_FILE, file.getName(), fileBody).build();
+        Request request = new Request.Builder()
+                .url(Constants.API_UPLOAD)
+                .post(requestBody)
+                .tag(retryPolicy)
+                .build();
+        try (okhttp3.Response response = mClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new HttpStatusException(response.code());
+            }
+            if (response.body() != null) {
+                Response<Response.UploadBean> uploadInfo = mDecoder.decodeUpload(response.body());
+                //Succeed to upload the file.
+                if (uploadInfo != null && uploadInfo.getRet() == RET_SUCCESS
+                        && uploadInfo.getData() != null && uploadInfo.getData().getUrl() != null) {
+                    return uploadInfo.getData().getUrl();
+                }
+            }
+        }
+        throw new UploadFailedException();
+    }
+
+    /**
+     * Tell the MIME type of the file from its name,or from its first bytes if its name doesn't tell.
+     *
+     * @param file The file.
+     * @return The MIME type,{@link MimeTypes#DEFAULT_MIME_TYPE} if it is unknown.
+     */
+    @NonNull
+    public String getMimeType(@NonNull File file) {
+        String mimeType = mMimeTypeResolver.getMimeType(file.getName());
+        if (mimeType == null && mSniffMimeType) {
+            mimeType = MimeTypes.sniff(file);
+        }
+        return mimeType == null ? MimeTypes.DEFAULT_MIME_TYPE : mimeType;
+    }
+
+    /**
+     * Connect to the backend server ahead of the first upload.
+     */
+    public void warmConnections() {
+        new ConnectionWarmer(mClient).warmBackend();
+    }
+
+    /**
+     * Get the limiter shared by all uploads.
+     *
+     * @return The global bandwidth limiter.
+     */
+    @NonNull
+    public BandwidthLimiter getBandwidthLimiter() {
+        return mBandwidthLimiter;
+    }
+
+    public static class Builder {
+        private final OkHttpClient client;
+        private final KeyValueStore store;
+        private final String packageName;
+        private Gson gson;
+        private Executor refreshExecutor;
+        private BandwidthLimiter bandwidthLimiter;
+        private MimeTypeResolver mimeTypeResolver;
+        private boolean sniffMimeType = true;
+        private FileHashIndex hashIndex;
+        private UploadResultCache resultCache;
+
+        /**
+         * @param client      OkHttp client of all requests,see {@link com.dcz.fileportal.network.TimeoutInterceptor} to
+         *                    apply the timeouts of the retry policies.
+         * @param store       Where tokens and the progress of chunked uploads are persisted.
+         * @param packageName The package name registered with the api key.
+         */
+        public Builder(@NonNull OkHttpClient client, @NonNull KeyValueStore store, @NonNull String packageName) {
+            this.client = client;
+            this.store = store;
+            this.packageName = packageName;
+        }
+
+        /**
+         * @param gson Gson instance,null for a new one.
+         */
+        public Builder setGson(@Nullable Gson gson) {
+            this.gson = gson;
+            return this;
+        }
+
+        /**
+         * @param refreshExecutor Runs the background renewal of tokens,null to renew them on the calling thread.
+         */
+        public Builder setRefreshExecutor(@Nullable Executor refreshExecutor) {
+            this.refreshExecutor = refreshExecutor;
+            return this;
+        }
+
+        /**
+         * @param bandwidthLimiter Limiter shared by all uploads,null for a new one without cap.
+         */
+        public Builder setBandwidthLimiter(@Nullable BandwidthLimiter bandwidthLimiter) {
+            this.bandwidthLimiter = bandwidthLimiter;
+            return this;
+        }
+
+        /**
+         * @param mimeTypeResolver Tells the MIME type of a file,null for {@link MimeTypes}.
+         */
+        public Builder setMimeTypeResolver(@Nullable MimeTypeResolver mimeTypeResolver) {
+            this.mimeTypeResolver = mimeTypeResolver;
+            return this;
+        }
+
+        /**
+         * @param sniffMimeType Whether the first bytes of a file tell its MIME type when its name doesn't,true by default.
+         */
+        public Builder setSniffMimeType(boolean sniffMimeType) {
+            this.sniffMimeType = sniffMimeType;
+            return this;
+        }
+
+        /**
+         * @param hashIndex Index of file hashes used by {@link #upload},null to hash every file.
+         */
+        public Builder setHashIndex(@Nullable FileHashIndex hashIndex) {
+            this.hashIndex = hashIndex;
+            return this;
+        }
+
+        /**
+         * @param resultCache Cache of uploaded files used by {@link #upload},null for none.
+         */
+        public Builder setResultCache(@Nullable UploadResultCache resultCache) {
+            this.resultCache = resultCache;
+            return this;
+        }
+
+        public UploadEngine build() {
+            return new UploadEngine(this);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.dcz.fileportal;
+
+import androidx.annotation.NonNull;
+
+/**
+ * The result of a file uploaded by {@link UploadEngine#upload}.
+ */
+public class UploadResult {
+
+    private final String mUrl;
+    private final String mMd5;
+    private final boolean mCached;
+
+    UploadResult(@NonNull String url, @NonNull String md5, boolean cached) {
+        mUrl = url;
+        mMd5 = md5;
+        mCached = cached;
+    }
+
+    /**
+     * @return The download url of the file.
+     */
+    @NonNull
+    public String getUrl() {
+        return mUrl;
+    }
+
+    /**
+     * @return The MD5 hash of the file.
+     */
+    @NonNull
+    public String getMd5() {
+        return mMd5;
+    }
+
+    /**
+     * @return Whether the file was uploaded before,so it was not sent this time.
+     */
+    public boolean isCached() {
+        return mCached;
+    }
+}
@@ -0,0 +1,231 @@
+package com.dcz.fileportal.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent index from (canonical path, length, last modified time) of a file to its MD5 hash,
+ * so that an unchanged file is not read again just to be hashed.
+ * <p>
+ * An entry is dropped as soon as the file is found changed.The least recently used entries are evicted beyond
+ * the size cap.The index is kept in memory and written to disk at most every {@link #SAVE_INTERVAL_MS}.
+ * Changes made within the interval are written once it ends if a flush executor is given,otherwise on {@link #flush()}.
+ */
+public class FileHashIndex {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    private static final long SAVE_INTERVAL_MS = 2000;
+
+    private final File mStoreFile;
+    private final Gson mGson;
+    @Nullable
+    private final ScheduledExecutorService mFlushExecutor;
+    private volatile int mMaxEntries = DEFAULT_MAX_ENTRIES;
+    private LinkedHashMap<String, Entry> mEntries;
+    private boolean mDirty;
+    private long mLastSaveTime;
+    private boolean mFlushScheduled;
+
+    /**
+     * @param storeFile Where the index is persisted.
+     * @param gson      Gson instance.
+     */
+    public FileHashIndex(@NonNull File storeFile, @NonNull Gson gson) {
+        this(storeFile, gson, null);
+    }
+
+    /**
+     * @param storeFile     Where the index is persisted.
+     * @param gson          Gson instance.
+     * @param flushExecutor Writes the changes left at the end of the save interval,null to leave them to {@link #flush()}.
+     */
+    public FileHashIndex(@NonNull File storeFile, @NonNull Gson gson, @Nullable ScheduledExecutorService flushExecutor) {
+        mStoreFile = storeFile;
+        mGson = gson;
+        mFlushExecutor = flushExecutor;
+    }
+
+    /**
+     * Get the MD5 hash of the file if it is indexed and has not changed since.
+     *
+     * @param file The file.
+     * @return The MD5 hash,or null if the file isn't indexed or has changed.
+     */
+    @Nullable
+    public synchronized String get(@NonNull File file) {
+        String path = pathOf(file);
+        Entry entry = entries().get(path);
+        if (entry == null) return null;
+        if (entry.length != file.length() || entry.lastModified != file.lastModified()) {
+            entries().remove(path);
+            changed();
+            return null;
+        }
+        return entry.md5;
+    }
+
+    /**
+     * Index the MD5 hash of the file.
+     *
+     * @param file The file.
+     * @param md5  The MD5 hash of the current content of the file.
+     */
+    public void put(@NonNull File file, @NonNull String md5) {
+        put(file, file.length(), file.lastModified(), md5);
+    }
+
+    /**
+     * Index the MD5 hash of the file,with its attributes read before it was hashed so that a change made while it was
+     * being hashed is noticed.
+     *
+     * @param file         The file.
+     * @param length       The length of the file before it was hashed.
+     * @param lastModified The last modified time of the file before it was hashed.
+     * @param md5          The MD5 hash of the file.
+     */
+    public synchronized void put(@NonNull File file, long length, long lastModified, @NonNull String md5) {
+        Entry entry = new Entry();
+        entry.path = pathOf(file);
+        entry.length = length;
+        entry.lastModified = lastModified;
+        entry.md5 = md5;
+        entries().put(entry.path, entry);
+        trim();
+        changed();
+    }
+
+    /**
+     * @param maxEntries Max files indexed,the default value is {@link #DEFAULT_MAX_ENTRIES}.
+     */
+    public synchronized void setMaxEntries(int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("maxEntries < 0");
+        }
+        mMaxEntries = maxEntries;
+        if (mEntries != null && trim()) {
+            mDirty = true;
+        }
+    }
+
+    /**
+     * Drop all entries.
+     */
+    public synchronized void clear() {
+        entries().clear();
+        mDirty = true;
+        flush();
+    }
+
+    /**
+     * Write pending changes to disk.
+     */
+    public synchronized void flush() {
+        if (!mDirty) return;
+        mLastSaveTime = System.currentTimeMillis();
+        File tmp = new File(mStoreFile.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8")) {
+            //Eldest first,so that the access order is restored on load.
+            mGson.toJson(new ArrayList<>(mEntries.values()), writer);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        if (tmp.renameTo(mStoreFile)) {
+            mDirty = false;
+        }
+    }
+
+    /**
+     * Write the change now if the last write is old enough,otherwise once the save interval ends.
+     */
+    private void changed() {
+        mDirty = true;
+        long sinceSave = System.currentTimeMillis() - mLastSaveTime;
+        if (sinceSave >= SAVE_INTERVAL_MS) {
+            flush();
+        } else if (mFlushExecutor != null && !mFlushScheduled) {
+            try {
+                mFlushExecutor.schedule(this::scheduledFlush, SAVE_INTERVAL_MS - sinceSave, TimeUnit.MILLISECONDS);
+                mFlushScheduled = true;
+            } catch (RejectedExecutionException e) {
+                //Shut down,left to flush().
+            }
+        }
+    }
+
+    private synchronized void scheduledFlush() {
+        mFlushScheduled = false;
+        flush();
+    }
+
+    private boolean trim() {
+        boolean trimmed = false;
+        while (mEntries.size() > mMaxEntries) {
+            mEntries.remove(mEntries.keySet().iterator().next());
+            trimmed = true;
+        }
+        return trimmed;
+    }
+
+    /**
+     * Load the index from disk on first use.
+     */
+    private LinkedHashMap<String, Entry> entries() {
+        if (mEntries != null) return mEntries;
+        mEntries = new LinkedHashMap<>(16, 0.75f, true);
+        if (mStoreFile.exists()) {
+            try (Reader reader = new InputStreamReader(new FileInputStream(mStoreFile), "UTF-8")) {
+                List<Entry> entries = mGson.fromJson(reader, new TypeToken<List<Entry>>() {
+                }.getType());
+                if (entries != null) {
+                    for (Entry entry : entries) {
+                        if (entry != null && entry.path != null && entry.md5 != null) {
+                            mEntries.put(entry.path, entry);
+                        }
+                    }
+                }
+            } catch (IOException | JsonParseException e) {
+                //Broken index,start over.
+                e.printStackTrace();
+                mEntries.clear();
+            }
+            trim();
+        }
+        return mEntries;
+    }
+
+    private static String pathOf(File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    private static class Entry {
+        String path;
+        long length;
+        long lastModified;
+        String md5;
+    }
+}
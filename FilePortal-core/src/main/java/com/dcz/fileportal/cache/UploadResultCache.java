@@ -0,0 +1,117 @@
+package com.dcz.fileportal.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory cache of uploaded files keyed by (MD5, access, mode),so that uploading the same content again completes
+ * without asking the backend server.
+ * <p>
+ * Entries expire after the ttl and the least recently used ones are evicted beyond the size cap.
+ * If the backend server no longer serves a cached url,invalidate it with {@link #invalidateUrl(String)}.
+ */
+public class UploadResultCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 500;
+    public static final long DEFAULT_TTL_MS = 24 * 60 * 60 * 1000L;
+
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private int mMaxEntries = DEFAULT_MAX_ENTRIES;
+    private long mTtlMillis = DEFAULT_TTL_MS;
+
+    /**
+     * @param md5          The MD5 hash of the file.
+     * @param accessVerify Whether token is needed to access the file.
+     * @param mode         The strategy of keeping files.
+     * @return The url of the file if uploaded before and not expired,otherwise null.
+     */
+    @Nullable
+    public synchronized String get(@NonNull String md5, @NonNull String accessVerify, @NonNull String mode) {
+        String key = keyOf(md5, accessVerify, mode);
+        Entry entry = mEntries.get(key);
+        if (entry == null) return null;
+        if (System.currentTimeMillis() - entry.time > mTtlMillis) {
+            mEntries.remove(key);
+            return null;
+        }
+        return entry.url;
+    }
+
+    /**
+     * @param md5          The MD5 hash of the file.
+     * @param accessVerify Whether token is needed to access the file.
+     * @param mode         The strategy of keeping files.
+     * @param url          The url of the uploaded file.
+     */
+    public synchronized void put(@NonNull String md5, @NonNull String accessVerify, @NonNull String mode, @NonNull String url) {
+        mEntries.put(keyOf(md5, accessVerify, mode), new Entry(url, System.currentTimeMillis()));
+        trim();
+    }
+
+    public synchronized void invalidate(@NonNull String md5, @NonNull String accessVerify, @NonNull String mode) {
+        mEntries.remove(keyOf(md5, accessVerify, mode));
+    }
+
+    /**
+     * Drop every entry pointing at the url,e.g. the backend server says it is gone.
+     *
+     * @param url The url of the uploaded file.
+     */
+    public synchronized void invalidateUrl(@NonNull String url) {
+        Iterator<Map.Entry<String, Entry>> iterator = mEntries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (url.equals(iterator.next().getValue().url)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        mEntries.clear();
+    }
+
+    /**
+     * @param maxEntries Max files cached,the default value is {@link #DEFAULT_MAX_ENTRIES}.
+     */
+    public synchronized void setMaxEntries(int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("maxEntries < 0");
+        }
+        mMaxEntries = maxEntries;
+        trim();
+    }
+
+    /**
+     * @param ttlMillis How long an entry is trusted,the default value is {@link #DEFAULT_TTL_MS}.
+     */
+    public synchronized void setTtl(long ttlMillis) {
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("ttlMillis < 0");
+        }
+        mTtlMillis = ttlMillis;
+    }
+
+    private void trim() {
+        while (mEntries.size() > mMaxEntries) {
+            mEntries.remove(mEntries.keySet().iterator().next());
+        }
+    }
+
+    private static String keyOf(String md5, String accessVerify, String mode) {
+        return md5 + "_" + accessVerify + "_" + mode;
+    }
+
+    private static class Entry {
+        final String url;
+        final long time;
+
+        Entry(String url, long time) {
+            this.url = url;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.dcz.fileportal.exceptions;
+
+import java.io.IOException;
+
+public class HttpStatusException extends IOException {
+
+    private final int code;
+
+    public HttpStatusException(int code) {
+        super("The backend server responded with HTTP " + code + ".");
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+}
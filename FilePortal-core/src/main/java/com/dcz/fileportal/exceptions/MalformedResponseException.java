@@ -0,0 +1,13 @@
+package com.dcz.fileportal.exceptions;
+
+import java.io.IOException;
+
+/**
+ * The backend server answered with a body which isn't the JSON of the response,e.g. the login page of a captive portal.
+ */
+public class MalformedResponseException extends IOException {
+
+    public MalformedResponseException(Throwable cause) {
+        super("The backend server responded with a malformed body.", cause);
+    }
+}
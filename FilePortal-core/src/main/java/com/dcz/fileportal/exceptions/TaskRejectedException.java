@@ -0,0 +1,7 @@
+package com.dcz.fileportal.exceptions;
+
+public class TaskRejectedException extends Exception {
+    public TaskRejectedException() {
+        super("The upload queue is full or shut down,the task was rejected.");
+    }
+}
@@ -0,0 +1,88 @@
+package com.dcz.fileportal.network;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting the bytes written per second by the request bodies sharing it.
+ * The bucket holds at most 200ms worth of bytes,so an upload resuming after a pause doesn't burst the uplink.
+ * The limit may be changed at any time,writers waiting for the bucket pick the new limit up at once.
+ */
+public class BandwidthLimiter {
+
+    //Burst allowed,in nanoseconds worth of bytes.
+    private static final long BURST_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final long MIN_BURST_BYTES = 8 * 1024;
+
+    private long mBytesPerSecond;
+    //Negative while writers are in debt for bytes written beyond the bucket.
+    private double mTokens;
+    private long mRefilledAt = System.nanoTime();
+
+    /**
+     * Create a limiter without limit.
+     */
+    public BandwidthLimiter() {
+        this(0);
+    }
+
+    /**
+     * @param bytesPerSecond The limit,0 for no limit.
+     */
+    public BandwidthLimiter(long bytesPerSecond) {
+        setBytesPerSecond(bytesPerSecond);
+    }
+
+    /**
+     * @param bytesPerSecond The limit,0 for no limit.
+     */
+    public synchronized void setBytesPerSecond(long bytesPerSecond) {
+        if (bytesPerSecond < 0) {
+            throw new IllegalArgumentException("bytesPerSecond < 0");
+        }
+        refill();
+        mBytesPerSecond = bytesPerSecond;
+        mTokens = Math.min(mTokens, capacity());
+        notifyAll();
+    }
+
+    public synchronized long getBytesPerSecond() {
+        return mBytesPerSecond;
+    }
+
+    /**
+     * Wait until the bucket is not empty,then take the bytes out of it.
+     * The bytes may exceed what the bucket holds,the writers after pay for them by waiting longer.
+     *
+     * @param bytes Bytes about to be written.
+     * @throws InterruptedIOException The upload is interrupted while waiting.
+     */
+    public synchronized void acquire(long bytes) throws InterruptedIOException {
+        while (mBytesPerSecond > 0) {
+            refill();
+            if (mTokens > 0) {
+                mTokens -= bytes;
+                return;
+            }
+            long waitNanos = Math.max(1, (long) (-mTokens * TimeUnit.SECONDS.toNanos(1) / mBytesPerSecond) + 1);
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for bandwidth");
+            }
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (mBytesPerSecond > 0) {
+            mTokens = Math.min(capacity(), mTokens + (double) (now - mRefilledAt) * mBytesPerSecond / TimeUnit.SECONDS.toNanos(1));
+        }
+        mRefilledAt = now;
+    }
+
+    private double capacity() {
+        return Math.max(MIN_BURST_BYTES, (double) mBytesPerSecond * BURST_NANOS / TimeUnit.SECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,77 @@
+package com.dcz.fileportal.network;
+
+import androidx.annotation.NonNull;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Dns;
+
+/**
+ * Keep resolved addresses for a while,so a new connection to the same host costs no lookup.
+ * If a lookup fails after the entry expired,the expired addresses are tried rather than failing the request.
+ */
+public class CachingDns implements Dns {
+
+    public static final long DEFAULT_TTL_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final Dns mDelegate;
+    private final long mTtlMs;
+    private final ConcurrentHashMap<String, Entry> mEntries = new ConcurrentHashMap<>();
+
+    public CachingDns() {
+        this(Dns.SYSTEM, DEFAULT_TTL_MS);
+    }
+
+    /**
+     * @param delegate Resolve the hosts which are not cached.
+     * @param ttlMs    How long the resolved addresses are kept.
+     */
+    public CachingDns(@NonNull Dns delegate, long ttlMs) {
+        if (ttlMs < 0) {
+            throw new IllegalArgumentException("ttlMs < 0");
+        }
+        mDelegate = delegate;
+        mTtlMs = ttlMs;
+    }
+
+    @Override
+    public List<InetAddress> lookup(@NonNull String hostname) throws UnknownHostException {
+        long now = System.nanoTime();
+        Entry entry = mEntries.get(hostname);
+        if (entry != null && now - entry.resolvedAt < TimeUnit.MILLISECONDS.toNanos(mTtlMs)) {
+            return entry.addresses;
+        }
+        List<InetAddress> addresses;
+        try {
+            addresses = mDelegate.lookup(hostname);
+        } catch (UnknownHostException e) {
+            if (entry != null) return entry.addresses;
+            throw e;
+        }
+        if (!addresses.isEmpty()) {
+            mEntries.put(hostname, new Entry(addresses, now));
+        }
+        return addresses;
+    }
+
+    /**
+     * Forget all resolved addresses,e.g. when the network changes.
+     */
+    public void clear() {
+        mEntries.clear();
+    }
+
+    private static class Entry {
+        final List<InetAddress> addresses;
+        final long resolvedAt;
+
+        Entry(List<InetAddress> addresses, long resolvedAt) {
+            this.addresses = addresses;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+}
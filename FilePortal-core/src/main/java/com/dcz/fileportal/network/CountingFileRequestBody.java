@@ -0,0 +1,68 @@
+package com.dcz.fileportal.network;
+
+import com.dcz.fileportal.utils.MimeTypes;
+import com.dcz.fileportal.utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Request body of a file which reports the transferred bytes while it is written.
+ * Use it in place of the plain file body,so that the file is sent only once.
+ * https://stackoverflow.com/questions/25962595/tracking-progress-of-multipart-file-upload-using-okhttp
+ */
+public class CountingFileRequestBody extends RequestBody {
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    private final File file;
+    private final TransferListener listener;
+    private final MediaType mediaType;
+
+    public CountingFileRequestBody(File file, ProgressListener listener) {
+        this(file, mediaTypeOf(file),
+                (transferredBytes, totalBytes) -> listener.transferred(Utils.getTransferPercent(transferredBytes, totalBytes)));
+    }
+
+    public CountingFileRequestBody(File file, MediaType mediaType, TransferListener listener) {
+        this.file = file;
+        this.mediaType = mediaType;
+        this.listener = listener;
+    }
+
+    @Override
+    public long contentLength() {
+        return file.length();
+    }
+
+    @Override
+    public MediaType contentType() {
+        return mediaType;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        final long length = contentLength();
+        try (Source source = Okio.source(file)) {
+            long total = 0;
+            long read;
+            while ((read = source.read(sink.buffer(), SEGMENT_SIZE)) != -1) {
+                total += read;
+                //Hand full segments to the socket without forcing a flush of the partial one.
+                sink.emitCompleteSegments();
+                this.listener.onTransferred(total, length);
+            }
+        }
+    }
+
+    private static MediaType mediaTypeOf(File file) {
+        String mimeType = MimeTypes.getInstance().getMimeType(file.getName());
+        return MediaType.parse(mimeType == null ? MimeTypes.DEFAULT_MIME_TYPE : mimeType);
+    }
+}
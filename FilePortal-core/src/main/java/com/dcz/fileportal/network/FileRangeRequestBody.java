@@ -0,0 +1,81 @@
+package com.dcz.fileportal.network;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Request body of a byte range of a file,used to upload the file chunk by chunk.
+ */
+public class FileRangeRequestBody extends RequestBody {
+
+    private static final int SEGMENT_SIZE = 8192;
+
+    private final File file;
+    private final long offset;
+    private final long byteCount;
+    private final MediaType mediaType;
+    private final Listener listener;
+
+    public interface Listener {
+        /**
+         * @param byteCount Bytes written to the sink since last call.
+         */
+        void onWritten(long byteCount);
+    }
+
+    /**
+     * @param file      The source file.
+     * @param offset    Position of the first byte to send.
+     * @param byteCount Number of bytes to send.
+     * @param mediaType Media type of the body.
+     * @param listener  Notified as bytes are written.
+     */
+    public FileRangeRequestBody(File file, long offset, long byteCount, MediaType mediaType, @Nullable Listener listener) {
+        this.file = file;
+        this.offset = offset;
+        this.byteCount = byteCount;
+        this.mediaType = mediaType;
+        this.listener = listener;
+    }
+
+    @Override
+    public long contentLength() {
+        return byteCount;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return mediaType;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        FileInputStream fis = new FileInputStream(file);
+        try (Source source = Okio.source(fis)) {
+            if (fis.skip(offset) != offset) {
+                throw new IOException("Failed to seek to " + offset + " of " + file.getName());
+            }
+            long remaining = byteCount;
+            while (remaining > 0) {
+                long read = source.read(sink.buffer(), Math.min(SEGMENT_SIZE, remaining));
+                if (read == -1) {
+                    throw new IOException("Unexpected end of " + file.getName());
+                }
+                remaining -= read;
+                sink.emitCompleteSegments();
+                if (listener != null) {
+                    listener.onWritten(read);
+                }
+            }
+        }
+    }
+}
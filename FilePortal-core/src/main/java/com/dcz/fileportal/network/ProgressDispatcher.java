@@ -0,0 +1,71 @@
+package com.dcz.fileportal.network;
+
+import com.dcz.fileportal.utils.Utils;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Deliver the progress of one upload task to its {@link ProgressListener} on the callback executor.
+ * <p>
+ * The bytes written to the network are reported very often.Updates are throttled to one per
+ * {@link #MIN_INTERVAL_MS} and only when the percent changes,and at most one update per task is queued on the
+ * executor:it delivers the latest state at the time it runs,so later updates merge into it.
+ */
+public class ProgressDispatcher implements TransferListener {
+
+    private static final long MIN_INTERVAL_MS = 100;
+    //Weight of the newest throughput sample.
+    private static final double SMOOTHING = 0.3;
+
+    private final Executor mExecutor;
+    private final ProgressListener mListener;
+    private final Runnable mDeliver = this::deliver;
+    private boolean mQueued;
+    private int mLastPercent = -1;
+    private long mLastTime = -1;
+    private long mLastBytes;
+    private double mBytesPerSecond = -1;
+    private TransferProgress mLatest;
+
+    /**
+     * @param executor Where the listener is called,e.g. the main thread.
+     * @param listener The listener of uploading progress.
+     */
+    public ProgressDispatcher(Executor executor, ProgressListener listener) {
+        mExecutor = executor;
+        mListener = listener;
+    }
+
+    @Override
+    public void onTransferred(long transferredBytes, long totalBytes) {
+        final int percent = Utils.getTransferPercent(transferredBytes, totalBytes);
+        final boolean done = transferredBytes >= totalBytes;
+        synchronized (this) {
+            if (percent == mLastPercent && !done) return;
+            final long now = System.nanoTime() / 1000000;
+            if (mLastTime >= 0 && now - mLastTime < MIN_INTERVAL_MS && !done) return;
+            if (mLastTime >= 0 && now > mLastTime && transferredBytes >= mLastBytes) {
+                double sample = (transferredBytes - mLastBytes) * 1000.0 / (now - mLastTime);
+                mBytesPerSecond = mBytesPerSecond < 0 ? sample : SMOOTHING * sample + (1 - SMOOTHING) * mBytesPerSecond;
+            }
+            mLastPercent = percent;
+            mLastTime = now;
+            mLastBytes = transferredBytes;
+            long bytesPerSecond = mBytesPerSecond < 0 ? TransferProgress.UNKNOWN : (long) mBytesPerSecond;
+            long eta = done ? 0 : bytesPerSecond > 0 ? (totalBytes - transferredBytes) * 1000 / bytesPerSecond : TransferProgress.UNKNOWN;
+            mLatest = new TransferProgress(percent, transferredBytes, totalBytes, bytesPerSecond, eta);
+            if (mQueued) return;
+            mQueued = true;
+        }
+        mExecutor.execute(mDeliver);
+    }
+
+    private void deliver() {
+        TransferProgress progress;
+        synchronized (this) {
+            mQueued = false;
+            progress = mLatest;
+        }
+        mListener.onProgress(progress);
+    }
+}
@@ -0,0 +1,14 @@
+package com.dcz.fileportal.network;
+
+public interface ProgressListener {
+    void transferred(int percent);
+
+    /**
+     * Detailed progress including throughput and estimated time left.Only the percent is delivered by default.
+     *
+     * @param progress Snapshot of the uploading progress.
+     */
+    default void onProgress(TransferProgress progress) {
+        transferred(progress.getPercent());
+    }
+}
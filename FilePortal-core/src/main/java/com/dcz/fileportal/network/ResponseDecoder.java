@@ -0,0 +1,118 @@
+package com.dcz.fileportal.network;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dcz.fileportal.exceptions.MalformedResponseException;
+import com.dcz.fileportal.network.bean.Response;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+import okhttp3.ResponseBody;
+
+/**
+ * Decode the responses of the backend server straight from their body stream,rather than reading each one into
+ * a String first.
+ * <p>
+ * The type adapter of every kind of response is resolved once,when the decoder is created,rather than from a new
+ * {@code TypeToken} for every response.
+ */
+public class ResponseDecoder {
+
+    private final Gson mGson;
+    private final TypeAdapter<Response<Response.TokenBean>> mTokenAdapter;
+    private final TypeAdapter<Response<Response.UploadBean>> mUploadAdapter;
+    private final TypeAdapter<Response<Response.BatchPreUploadBean>> mBatchPreUploadAdapter;
+    private final TypeAdapter<Response<Response.CommitBean>> mCommitAdapter;
+    private final TypeAdapter<Response<JsonElement>> mStatusAdapter;
+
+    /**
+     * @param gson Gson instance,whose type adapters and settings are used.
+     */
+    public ResponseDecoder(@NonNull Gson gson) {
+        mGson = gson;
+        mTokenAdapter = gson.getAdapter(new TypeToken<Response<Response.TokenBean>>() {
+        });
+        mUploadAdapter = gson.getAdapter(new TypeToken<Response<Response.UploadBean>>() {
+        });
+        mBatchPreUploadAdapter = gson.getAdapter(new TypeToken<Response<Response.BatchPreUploadBean>>() {
+        });
+        mCommitAdapter = gson.getAdapter(new TypeToken<Response<Response.CommitBean>>() {
+        });
+        mStatusAdapter = gson.getAdapter(new TypeToken<Response<JsonElement>>() {
+        });
+    }
+
+    /**
+     * Decode the response of getting a token.
+     */
+    @Nullable
+    public Response<Response.TokenBean> decodeToken(@NonNull ResponseBody body) throws IOException {
+        return decode(mTokenAdapter, body);
+    }
+
+    /**
+     * Decode the response of checking or uploading a file.
+     */
+    @Nullable
+    public Response<Response.UploadBean> decodeUpload(@NonNull ResponseBody body) throws IOException {
+        return decode(mUploadAdapter, body);
+    }
+
+    /**
+     * Decode the response of checking many files.
+     */
+    @Nullable
+    public Response<Response.BatchPreUploadBean> decodeBatchPreUpload(@NonNull ResponseBody body) throws IOException {
+        return decode(mBatchPreUploadAdapter, body);
+    }
+
+    /**
+     * Decode the response of committing a chunked upload.
+     */
+    @Nullable
+    public Response<Response.CommitBean> decodeCommit(@NonNull ResponseBody body) throws IOException {
+        return decode(mCommitAdapter, body);
+    }
+
+    /**
+     * Decode a response whose data isn't used,e.g. of uploading a chunk.
+     */
+    @Nullable
+    public Response<?> decodeStatus(@NonNull ResponseBody body) throws IOException {
+        return decode(mStatusAdapter, body);
+    }
+
+    /**
+     * Decode the body leniently,as {@link Gson#fromJson(String, java.lang.reflect.Type)} does.
+     *
+     * @return The response,null if the body is empty.
+     * @throws MalformedResponseException The body isn't the JSON of the response.
+     * @throws IOException                 Failed to read the body,e.g. the connection was lost.
+     */
+    @Nullable
+    private <T> T decode(TypeAdapter<T> adapter, ResponseBody body) throws IOException {
+        JsonReader reader = mGson.newJsonReader(body.charStream());
+        reader.setLenient(true);
+        boolean empty = true;
+        try {
+            reader.peek();
+            empty = false;
+            return adapter.read(reader);
+        } catch (EOFException e) {
+            if (empty) return null;
+            //Cut short,e.g. by the network.
+            throw e;
+        } catch (IllegalStateException | JsonSyntaxException | MalformedJsonException e) {
+            throw new MalformedResponseException(e);
+        }
+    }
+}
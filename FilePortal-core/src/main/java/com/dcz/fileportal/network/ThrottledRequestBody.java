@@ -0,0 +1,71 @@
+package com.dcz.fileportal.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.Okio;
+import okio.Sink;
+
+/**
+ * Request body writing the wrapped body no faster than all of the given limiters allow.
+ */
+public class ThrottledRequestBody extends RequestBody {
+
+    //Bytes passed to the socket per acquisition,small enough to keep the rate smooth.
+    private static final long SLICE_SIZE = 8 * 1024;
+
+    private final RequestBody delegate;
+    private final BandwidthLimiter[] limiters;
+
+    /**
+     * @param delegate The body to write.
+     * @param limiters Limiters to respect,e.g. the global one and the one of the upload task.
+     */
+    public ThrottledRequestBody(@NonNull RequestBody delegate, @NonNull BandwidthLimiter... limiters) {
+        this.delegate = delegate;
+        this.limiters = limiters;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return delegate.contentType();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return delegate.contentLength();
+    }
+
+    @Override
+    public void writeTo(@NonNull BufferedSink sink) throws IOException {
+        BufferedSink throttled = Okio.buffer(new ThrottledSink(sink));
+        delegate.writeTo(throttled);
+        //Hand the rest over without closing the underlying sink.
+        throttled.emit();
+    }
+
+    private class ThrottledSink extends ForwardingSink {
+
+        ThrottledSink(Sink delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void write(@NonNull Buffer source, long byteCount) throws IOException {
+            while (byteCount > 0) {
+                long slice = Math.min(byteCount, SLICE_SIZE);
+                for (BandwidthLimiter limiter : limiters) {
+                    limiter.acquire(slice);
+                }
+                super.write(source, slice);
+                byteCount -= slice;
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.dcz.fileportal.network;
+
+import androidx.annotation.NonNull;
+
+import com.dcz.fileportal.options.RetryPolicy;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Apply the timeouts of the {@link RetryPolicy} a request is tagged with,so tasks with different policies share one client.
+ */
+public class TimeoutInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        if (request.tag() instanceof RetryPolicy) {
+            RetryPolicy retryPolicy = (RetryPolicy) request.tag();
+            chain = chain.withConnectTimeout(retryPolicy.getConnectTimeoutMs(), TimeUnit.MILLISECONDS)
+                    .withReadTimeout(retryPolicy.getReadTimeoutMs(), TimeUnit.MILLISECONDS)
+                    .withWriteTimeout(retryPolicy.getWriteTimeoutMs(), TimeUnit.MILLISECONDS);
+        }
+        return chain.proceed(request);
+    }
+}
@@ -0,0 +1,12 @@
+package com.dcz.fileportal.network;
+
+/**
+ * Listener of the bytes of a file written to the network.
+ */
+public interface TransferListener {
+    /**
+     * @param transferredBytes Bytes of the file transferred so far.
+     * @param totalBytes       Size of the file.
+     */
+    void onTransferred(long transferredBytes, long totalBytes);
+}
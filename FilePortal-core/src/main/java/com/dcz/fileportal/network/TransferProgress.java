@@ -0,0 +1,49 @@
+package com.dcz.fileportal.network;
+
+/**
+ * A snapshot of the uploading progress of a file.
+ */
+public class TransferProgress {
+
+    public static final long UNKNOWN = -1;
+
+    private final int percent;
+    private final long transferredBytes;
+    private final long totalBytes;
+    private final long bytesPerSecond;
+    private final long etaMillis;
+
+    public TransferProgress(int percent, long transferredBytes, long totalBytes, long bytesPerSecond, long etaMillis) {
+        this.percent = percent;
+        this.transferredBytes = transferredBytes;
+        this.totalBytes = totalBytes;
+        this.bytesPerSecond = bytesPerSecond;
+        this.etaMillis = etaMillis;
+    }
+
+    public int getPercent() {
+        return percent;
+    }
+
+    public long getTransferredBytes() {
+        return transferredBytes;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return Smoothed throughput,or {@link #UNKNOWN} before it can be measured.
+     */
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * @return Estimated time left in milliseconds,or {@link #UNKNOWN} before it can be estimated.
+     */
+    public long getEtaMillis() {
+        return etaMillis;
+    }
+}
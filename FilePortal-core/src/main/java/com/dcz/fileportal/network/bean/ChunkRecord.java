@@ -0,0 +1,107 @@
+package com.dcz.fileportal.network.bean;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Local progress of a chunked upload, persisted so that an interrupted upload can be resumed.
+ * Chunk {@code i} covers bytes {@code [i * chunkSize, min((i + 1) * chunkSize, length))} of the file.
+ */
+public class ChunkRecord {
+
+    private String md5;
+    private long length;
+    private long chunkSize;
+    //Indices of chunks acknowledged by the server.Chunks may be acknowledged in any order.
+    //A set so that looking a chunk up doesn't scan them all,stored as a json array like the list it used to be.
+    private Set<Integer> ackedChunks = new HashSet<>();
+
+    public ChunkRecord(String md5, long length, long chunkSize) {
+        this.md5 = md5;
+        this.length = length;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Check if the record was made for the same file content and chunk layout.
+     */
+    public boolean matches(String md5, long length, long chunkSize) {
+        return this.md5 != null && this.ackedChunks != null && this.md5.equals(md5) && this.length == length && this.chunkSize == chunkSize;
+    }
+
+    public int getChunkCount() {
+        return (int) ((length + chunkSize - 1) / chunkSize);
+    }
+
+    public long getChunkOffset(int index) {
+        return index * chunkSize;
+    }
+
+    public long getChunkLength(int index) {
+        return Math.min(chunkSize, length - getChunkOffset(index));
+    }
+
+    public synchronized boolean isAcked(int index) {
+        return ackedChunks.contains(index);
+    }
+
+    public synchronized void ack(int index) {
+        ackedChunks.add(index);
+    }
+
+    public synchronized void unack(Collection<Integer> indices) {
+        ackedChunks.removeAll(indices);
+    }
+
+    /**
+     * @return Total bytes of the acknowledged chunks.
+     */
+    public synchronized long getAckedBytes() {
+        long bytes = 0;
+        for (int index : ackedChunks) {
+            bytes += getChunkLength(index);
+        }
+        return bytes;
+    }
+
+    public String getMd5() {
+        return md5;
+    }
+
+    public void setMd5(String md5) {
+        this.md5 = md5;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public void setLength(long length) {
+        this.length = length;
+    }
+
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(long chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return Indices of the acknowledged chunks in ascending order.
+     */
+    public synchronized List<Integer> getAckedChunks() {
+        List<Integer> chunks = new ArrayList<>(ackedChunks);
+        Collections.sort(chunks);
+        return chunks;
+    }
+
+    public synchronized void setAckedChunks(Collection<Integer> ackedChunks) {
+        this.ackedChunks = new HashSet<>(ackedChunks);
+    }
+}
@@ -2,6 +2,9 @@ package com.dcz.fileportal.network.bean;
 
 import com.google.gson.annotations.SerializedName;
 
+import java.util.List;
+import java.util.Map;
+
 public class Response<T> {
 
     private int ret;
@@ -75,4 +78,40 @@ public class Response<T> {
             this.url = url;
         }
     }
+
+    public static class CommitBean {
+        //Provided once all chunks are received and reassembled.
+        private String url;
+        //Indices of chunks the server doesn't hold,they should be uploaded again before committing.
+        private List<Integer> missing;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public List<Integer> getMissing() {
+            return missing;
+        }
+
+        public void setMissing(List<Integer> missing) {
+            this.missing = missing;
+        }
+    }
+
+    public static class BatchPreUploadBean {
+        //MD5 -> url of the files which exist on the backend server,missing MD5s are not listed.
+        private Map<String, String> urls;
+
+        public Map<String, String> getUrls() {
+            return urls;
+        }
+
+        public void setUrls(Map<String, String> urls) {
+            this.urls = urls;
+        }
+    }
 }
@@ -0,0 +1,7 @@
+package com.dcz.fileportal.options;
+
+public class PriorityOption {
+    //The user is waiting for the result,scheduled ahead of background tasks.
+    public static final int PRIORITY_USER_VISIBLE = 0;
+    public static final int PRIORITY_BACKGROUND = 1;
+}
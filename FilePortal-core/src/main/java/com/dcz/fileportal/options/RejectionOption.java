@@ -0,0 +1,8 @@
+package com.dcz.fileportal.options;
+
+public class RejectionOption {
+    //Reject the new task when the queue is full.
+    public static final int REJECT_NEW = 0;
+    //Drop the oldest waiting task of the lowest priority to make room,unless it is more important than the new task.
+    public static final int DISCARD_OLDEST = 1;
+}
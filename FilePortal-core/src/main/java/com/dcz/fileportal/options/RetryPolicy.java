@@ -0,0 +1,223 @@
+package com.dcz.fileportal.options;
+
+import com.dcz.fileportal.exceptions.HttpStatusException;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownServiceException;
+import java.util.Random;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+/**
+ * Timeouts of the requests of an upload task,and how failed requests are retried.
+ * <p>
+ * Retries wait with exponential backoff and full jitter:before retry {@code n} the task sleeps a random time
+ * between 0 and {@code min(maxBackoff, initialBackoff * 2^(n-1))}.No retry starts after the deadline of the task.
+ * A retried chunked upload sends only the chunks which are not acknowledged yet.
+ */
+public class RetryPolicy {
+
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+    private final int writeTimeoutMs;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final long deadlineMs;
+    private final Random random = new Random();
+
+    private RetryPolicy(Builder builder) {
+        this.connectTimeoutMs = builder.getConnectTimeoutMs();
+        this.readTimeoutMs = builder.getReadTimeoutMs();
+        this.writeTimeoutMs = builder.getWriteTimeoutMs();
+        this.maxAttempts = builder.getMaxAttempts();
+        this.initialBackoffMs = builder.getInitialBackoffMs();
+        this.maxBackoffMs = builder.getMaxBackoffMs();
+        this.deadlineMs = builder.getDeadlineMs();
+    }
+
+    public int getConnectTimeoutMs() {
+        return connectTimeoutMs;
+    }
+
+    public int getReadTimeoutMs() {
+        return readTimeoutMs;
+    }
+
+    public int getWriteTimeoutMs() {
+        return writeTimeoutMs;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getInitialBackoffMs() {
+        return initialBackoffMs;
+    }
+
+    public long getMaxBackoffMs() {
+        return maxBackoffMs;
+    }
+
+    public long getDeadlineMs() {
+        return deadlineMs;
+    }
+
+    /**
+     * @param retry The retry about to start,from 1.
+     * @return Time to wait before the retry.
+     */
+    public long backoffMs(int retry) {
+        long ceiling = initialBackoffMs;
+        for (int i = 1; i < retry && ceiling < maxBackoffMs; i++) {
+            ceiling *= 2;
+        }
+        ceiling = Math.min(ceiling, maxBackoffMs);
+        return ceiling <= 0 ? 0 : (long) (random.nextDouble() * ceiling);
+    }
+
+    /**
+     * Network failures,timeouts and 408/429/5xx responses are worth retrying.A missing file,a refused certificate,
+     * an interrupted task or an answer of the backend server refusing the upload are not.
+     *
+     * @param e The failure of a request.
+     * @return Whether the request may succeed if retried.
+     */
+    public boolean isRetryable(Exception e) {
+        if (e instanceof HttpStatusException) {
+            int code = ((HttpStatusException) e).getCode();
+            return code >= 500 || code == 408 || code == 429;
+        }
+        if (e instanceof SocketTimeoutException) return true;
+        if (e instanceof InterruptedIOException
+                || e instanceof FileNotFoundException
+                || e instanceof SSLPeerUnverifiedException
+                || e instanceof UnknownServiceException) return false;
+        return e instanceof IOException;
+    }
+
+    public static class Builder {
+
+        private int connectTimeoutMs = 10_000;
+        private int readTimeoutMs = 30_000;
+        private int writeTimeoutMs = 30_000;
+        private int maxAttempts = 3;
+        private long initialBackoffMs = 1_000;
+        private long maxBackoffMs = 15_000;
+        private long deadlineMs = 5 * 60_000;
+
+        public int getConnectTimeoutMs() {
+            return connectTimeoutMs;
+        }
+
+        /**
+         * @param connectTimeoutMs Timeout of connecting to the backend server,the default value is 10s.
+         */
+        public Builder setConnectTimeoutMs(int connectTimeoutMs) {
+            if (connectTimeoutMs < 0) {
+                throw new IllegalArgumentException("connectTimeoutMs < 0");
+            }
+            this.connectTimeoutMs = connectTimeoutMs;
+            return this;
+        }
+
+        public int getReadTimeoutMs() {
+            return readTimeoutMs;
+        }
+
+        /**
+         * @param readTimeoutMs Max time waiting for any byte of the response,the default value is 30s.
+         */
+        public Builder setReadTimeoutMs(int readTimeoutMs) {
+            if (readTimeoutMs < 0) {
+                throw new IllegalArgumentException("readTimeoutMs < 0");
+            }
+            this.readTimeoutMs = readTimeoutMs;
+            return this;
+        }
+
+        public int getWriteTimeoutMs() {
+            return writeTimeoutMs;
+        }
+
+        /**
+         * @param writeTimeoutMs Max time a write of the request body may block,the default value is 30s.
+         */
+        public Builder setWriteTimeoutMs(int writeTimeoutMs) {
+            if (writeTimeoutMs < 0) {
+                throw new IllegalArgumentException("writeTimeoutMs < 0");
+            }
+            this.writeTimeoutMs = writeTimeoutMs;
+            return this;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        /**
+         * @param maxAttempts Attempts of each request including the first one,1 to disable retry.The default value is 3.
+         */
+        public Builder setMaxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts < 1");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public long getInitialBackoffMs() {
+            return initialBackoffMs;
+        }
+
+        /**
+         * @param initialBackoffMs Max wait before the first retry,doubled for each further retry.The default value is 1s.
+         */
+        public Builder setInitialBackoffMs(long initialBackoffMs) {
+            if (initialBackoffMs < 0) {
+                throw new IllegalArgumentException("initialBackoffMs < 0");
+            }
+            this.initialBackoffMs = initialBackoffMs;
+            return this;
+        }
+
+        public long getMaxBackoffMs() {
+            return maxBackoffMs;
+        }
+
+        /**
+         * @param maxBackoffMs Cap of the wait before a retry,the default value is 15s.
+         */
+        public Builder setMaxBackoffMs(long maxBackoffMs) {
+            if (maxBackoffMs < 0) {
+                throw new IllegalArgumentException("maxBackoffMs < 0");
+            }
+            this.maxBackoffMs = maxBackoffMs;
+            return this;
+        }
+
+        public long getDeadlineMs() {
+            return deadlineMs;
+        }
+
+        /**
+         * @param deadlineMs Time since the task starts talking to the backend server after which no retry is started,
+         *                   0 for no deadline.The default value is 5min.
+         */
+        public Builder setDeadlineMs(long deadlineMs) {
+            if (deadlineMs < 0) {
+                throw new IllegalArgumentException("deadlineMs < 0");
+            }
+            this.deadlineMs = deadlineMs;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.dcz.fileportal.scheduler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dcz.fileportal.options.PriorityOption;
+import com.dcz.fileportal.options.RejectionOption;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Run upload tasks in two stages,each with its own concurrency limit:
+ * the hash stage reads whole files from disk,the network stage talks to the backend server.
+ * <p>
+ * Waiting tasks are ordered by priority({@link PriorityOption}),then by submission order.
+ * New tasks wait in the hash stage queue,whose capacity is bounded.When it is full the task is handled
+ * according to the rejection policy({@link RejectionOption}).
+ */
+public class UploadScheduler {
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final ThreadPoolExecutor mHashExecutor;
+    private final ThreadPoolExecutor mNetworkExecutor;
+    private final AtomicLong mSequence = new AtomicLong();
+    private volatile int mQueueCapacity = 256;
+    private volatile int mRejectionPolicy = RejectionOption.REJECT_NEW;
+
+    public UploadScheduler() {
+        this(null);
+    }
+
+    /**
+     * @param threadFactory Create the threads of both stages,null to create daemon threads named after the stage.
+     */
+    public UploadScheduler(@Nullable ThreadFactory threadFactory) {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        mHashExecutor = createExecutor(Math.max(1, Math.min(2, cpus)), "FilePortal-hash-", threadFactory);
+        mNetworkExecutor = createExecutor(4, "FilePortal-network-", threadFactory);
+    }
+
+    //Threads are only started once tasks are submitted.
+    private static ThreadPoolExecutor createExecutor(int concurrency, String namePrefix, @Nullable ThreadFactory threadFactory) {
+        ThreadFactory factory = threadFactory;
+        if (factory == null) {
+            AtomicInteger count = new AtomicInteger();
+            factory = r -> {
+                Thread thread = new Thread(r, namePrefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(concurrency, concurrency, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), factory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Admit a new task into the hash stage.
+     *
+     * @param priority   {@link PriorityOption}.
+     * @param task       The task to run.
+     * @param onRejected Run on the calling thread if the task is rejected,or later if it is discarded for a newer task.
+     */
+    public void executeHash(int priority, @NonNull Runnable task, @Nullable Runnable onRejected) {
+        Task newTask = new Task(priority, mSequence.incrementAndGet(), task, onRejected);
+        Task discarded = null;
+        synchronized (this) {
+            if (mHashExecutor.getQueue().size() >= mQueueCapacity) {
+                Task victim = mRejectionPolicy == RejectionOption.DISCARD_OLDEST ? findVictim() : null;
+                if (victim == null || victim.priority < priority || !mHashExecutor.remove(victim)) {
+                    newTask.reject();
+                    return;
+                }
+                discarded = victim;
+            }
+            if (!execute(mHashExecutor, newTask)) return;
+        }
+        if (discarded != null) discarded.reject();
+    }
+
+    /**
+     * Hand a task over to the network stage.Not bounded by the queue capacity,since the task has been admitted already.
+     *
+     * @param priority   {@link PriorityOption}.
+     * @param task       The task to run.
+     * @param onRejected Run on the calling thread if the scheduler has been shut down.
+     */
+    public void executeNetwork(int priority, @NonNull Runnable task, @Nullable Runnable onRejected) {
+        execute(mNetworkExecutor, new Task(priority, mSequence.incrementAndGet(), task, onRejected));
+    }
+
+    private static boolean execute(ThreadPoolExecutor executor, Task task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            task.reject();
+            return false;
+        }
+    }
+
+    /**
+     * Find the oldest waiting task of the lowest priority.
+     */
+    @Nullable
+    private Task findVictim() {
+        Task victim = null;
+        for (Runnable runnable : mHashExecutor.getQueue()) {
+            Task task = (Task) runnable;
+            if (victim == null || task.priority > victim.priority
+                    || (task.priority == victim.priority && task.sequence < victim.sequence)) {
+                victim = task;
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * @param concurrency Max files hashed at once.
+     */
+    public void setHashConcurrency(int concurrency) {
+        setConcurrency(mHashExecutor, concurrency);
+    }
+
+    /**
+     * @param concurrency Max tasks talking to the backend server at once.
+     */
+    public void setNetworkConcurrency(int concurrency) {
+        setConcurrency(mNetworkExecutor, concurrency);
+    }
+
+    private static synchronized void setConcurrency(ThreadPoolExecutor executor, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency < 1");
+        }
+        //Core pool size must never exceed the max pool size.
+        if (concurrency > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(concurrency);
+            executor.setCorePoolSize(concurrency);
+        } else {
+            executor.setCorePoolSize(concurrency);
+            executor.setMaximumPoolSize(concurrency);
+        }
+    }
+
+    /**
+     * @param capacity Max tasks waiting to be hashed,the default value is 256.
+     */
+    public void setQueueCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity < 0");
+        }
+        mQueueCapacity = capacity;
+    }
+
+    /**
+     * @param rejectionPolicy {@link RejectionOption},the default value is {@link RejectionOption#REJECT_NEW}.
+     */
+    public void setRejectionPolicy(int rejectionPolicy) {
+        mRejectionPolicy = rejectionPolicy;
+    }
+
+    /**
+     * @return Tasks waiting to be hashed.
+     */
+    public int getHashQueueDepth() {
+        return mHashExecutor.getQueue().size();
+    }
+
+    /**
+     * @return Tasks hashed and waiting to talk to the backend server.
+     */
+    public int getNetworkQueueDepth() {
+        return mNetworkExecutor.getQueue().size();
+    }
+
+    /**
+     * @return Tasks running in either stage.
+     */
+    public int getActiveCount() {
+        return mHashExecutor.getActiveCount() + mNetworkExecutor.getActiveCount();
+    }
+
+    public boolean isShutdown() {
+        return mHashExecutor.isShutdown();
+    }
+
+    /**
+     * Stop accepting new tasks,the submitted ones will still run.
+     */
+    public void shutdown() {
+        mHashExecutor.shutdown();
+        mNetworkExecutor.shutdown();
+    }
+
+    /**
+     * Stop accepting new tasks,drop the waiting ones and interrupt the running ones.
+     */
+    public void shutdownNow() {
+        mHashExecutor.shutdownNow();
+        mNetworkExecutor.shutdownNow();
+    }
+
+    private static class Task implements Runnable, Comparable<Task> {
+        final int priority;
+        final long sequence;
+        final Runnable runnable;
+        final Runnable onRejected;
+
+        Task(int priority, long sequence, Runnable runnable, Runnable onRejected) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.runnable = runnable;
+            this.onRejected = onRejected;
+        }
+
+        @Override
+        public void run() {
+            runnable.run();
+        }
+
+        void reject() {
+            if (onRejected != null) onRejected.run();
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            if (priority != o.priority) return priority < o.priority ? -1 : 1;
+            return Long.compare(sequence, o.sequence);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.dcz.fileportal.store;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * Keep the values in a properties file,so that they survive the process.
+ * <p>
+ * Values are kept in memory and written to the file on every change,through a temporary file renamed over it,
+ * so a process killed while writing leaves the last complete file behind.Failing to write loses the change
+ * on disk only,as shared preference does.
+ */
+public class FileKeyValueStore implements KeyValueStore {
+
+    private final File mFile;
+    private final Properties mValues = new Properties();
+
+    /**
+     * @param file The file of the values,read now if it exists.
+     */
+    public FileKeyValueStore(@NonNull File file) {
+        mFile = file;
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                mValues.load(in);
+            } catch (IOException | IllegalArgumentException e) {
+                //Broken file,start over.
+                e.printStackTrace();
+                mValues.clear();
+            }
+        }
+    }
+
+    @Nullable
+    @Override
+    public synchronized String getString(@NonNull String key) {
+        return mValues.getProperty(key);
+    }
+
+    @Override
+    public synchronized void putString(@NonNull String key, @NonNull String value) {
+        mValues.setProperty(key, value);
+        write();
+    }
+
+    @Override
+    public synchronized void remove(@NonNull String key) {
+        if (mValues.remove(key) != null) {
+            write();
+        }
+    }
+
+    private void write() {
+        File parent = mFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            return;
+        }
+        File temp = new File(parent, mFile.getName() + ".tmp");
+        try {
+            try (OutputStream out = new FileOutputStream(temp)) {
+                mValues.store(out, null);
+            }
+            if (!temp.renameTo(mFile)) {
+                //Windows doesn't rename over an existing file.
+                mFile.delete();
+                if (!temp.renameTo(mFile)) throw new IOException("Failed to rename " + temp);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
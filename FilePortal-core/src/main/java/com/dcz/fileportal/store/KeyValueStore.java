@@ -0,0 +1,22 @@
+package com.dcz.fileportal.store;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Small string values which survive the process,e.g. tokens and the progress of chunked uploads.
+ * <p>
+ * Shared preference on Android,a file or memory elsewhere.Implementations must be thread safe.
+ */
+public interface KeyValueStore {
+
+    /**
+     * @return The value of the key,null if there is none.
+     */
+    @Nullable
+    String getString(@NonNull String key);
+
+    void putString(@NonNull String key, @NonNull String value);
+
+    void remove(@NonNull String key);
+}
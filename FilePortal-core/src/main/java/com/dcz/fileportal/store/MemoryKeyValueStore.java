@@ -0,0 +1,30 @@
+package com.dcz.fileportal.store;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keep the values in memory only,they are lost with the process.
+ */
+public class MemoryKeyValueStore implements KeyValueStore {
+
+    private final ConcurrentHashMap<String, String> mValues = new ConcurrentHashMap<>();
+
+    @Nullable
+    @Override
+    public String getString(@NonNull String key) {
+        return mValues.get(key);
+    }
+
+    @Override
+    public void putString(@NonNull String key, @NonNull String value) {
+        mValues.put(key, value);
+    }
+
+    @Override
+    public void remove(@NonNull String key) {
+        mValues.remove(key);
+    }
+}
@@ -0,0 +1,17 @@
+package com.dcz.fileportal.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Tell the MIME type of a file to upload from its name.
+ */
+public interface MimeTypeResolver {
+
+    /**
+     * @param fileName Name of the file.
+     * @return The MIME type,null if it is unknown.
+     */
+    @Nullable
+    String getMimeType(@NonNull String fileName);
+}
@@ -0,0 +1,218 @@
+package com.dcz.fileportal.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The MIME types of the common extensions,for the platforms without {@code android.webkit.MimeTypeMap}
+ * and ahead of it where it is,since it parses the name as an url on every lookup.
+ * <p>
+ * The table is built once and never changes.A file whose name doesn't tell its type can be {@link #sniff(File) sniffed}
+ * from its first bytes.
+ */
+public class MimeTypes implements MimeTypeResolver {
+
+    //The type of content nothing is known about.
+    public static final String DEFAULT_MIME_TYPE = "application/octet-stream";
+    //Bytes read from the start of a file to sniff its type.
+    static final int SNIFF_LENGTH = 18;
+    //The file header of a bitmap,followed by the size of its info header.
+    private static final int BMP_FILE_HEADER_LENGTH = 14;
+
+    private static final MimeTypes INSTANCE = new MimeTypes();
+    private static final Map<String, String> TYPES = createTypes();
+
+    private static Map<String, String> createTypes() {
+        Map<String, String> types = new HashMap<>(96);
+        types.put("jpg", "image/jpeg");
+        types.put("jpeg", "image/jpeg");
+        types.put("png", "image/png");
+        types.put("gif", "image/gif");
+        types.put("webp", "image/webp");
+        types.put("bmp", "image/bmp");
+        types.put("heic", "image/heic");
+        types.put("heif", "image/heif");
+        types.put("svg", "image/svg+xml");
+        types.put("ico", "image/x-icon");
+        types.put("mp4", "video/mp4");
+        types.put("m4v", "video/mp4");
+        types.put("3gp", "video/3gpp");
+        types.put("3g2", "video/3gpp2");
+        types.put("webm", "video/webm");
+        types.put("mkv", "video/x-matroska");
+        types.put("mov", "video/quicktime");
+        types.put("avi", "video/x-msvideo");
+        types.put("mpg", "video/mpeg");
+        types.put("mpeg", "video/mpeg");
+        types.put("ts", "video/mp2ts");
+        types.put("mp3", "audio/mpeg");
+        types.put("m4a", "audio/mp4");
+        types.put("aac", "audio/aac");
+        types.put("amr", "audio/amr");
+        types.put("ogg", "audio/ogg");
+        types.put("opus", "audio/ogg");
+        types.put("wav", "audio/x-wav");
+        types.put("flac", "audio/flac");
+        types.put("mid", "audio/midi");
+        types.put("midi", "audio/midi");
+        types.put("txt", "text/plain");
+        types.put("html", "text/html");
+        types.put("htm", "text/html");
+        types.put("css", "text/css");
+        types.put("csv", "text/comma-separated-values");
+        types.put("xml", "text/xml");
+        types.put("vcf", "text/x-vcard");
+        types.put("json", "application/json");
+        types.put("js", "application/javascript");
+        types.put("pdf", "application/pdf");
+        types.put("zip", "application/zip");
+        types.put("gz", "application/gzip");
+        types.put("tar", "application/x-tar");
+        types.put("7z", "application/x-7z-compressed");
+        types.put("rar", "application/x-rar-compressed");
+        types.put("doc", "application/msword");
+        types.put("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+        types.put("xls", "application/vnd.ms-excel");
+        types.put("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        types.put("ppt", "application/vnd.ms-powerpoint");
+        types.put("pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation");
+        types.put("apk", "application/vnd.android.package-archive");
+        return Collections.unmodifiableMap(types);
+    }
+
+    /**
+     * @return The resolver of the common extensions.
+     */
+    @NonNull
+    public static MimeTypes getInstance() {
+        return INSTANCE;
+    }
+
+    @Nullable
+    @Override
+    public String getMimeType(@NonNull String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0 || dot == fileName.length() - 1) return null;
+        String type = TYPES.get(fileName.substring(dot + 1));
+        //Lower case extensions are the common ones,the others are looked up again.
+        return type != null ? type : TYPES.get(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Tell the MIME type of the file from its first bytes.
+     *
+     * @param file The file.
+     * @return The MIME type,null if the bytes are none of the known signatures or the file couldn't be read.
+     */
+    @Nullable
+    public static String sniff(@NonNull File file) {
+        byte[] head = new byte[SNIFF_LENGTH];
+        int length = 0;
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while (length < head.length && (read = in.read(head, length, head.length - length)) != -1) {
+                length += read;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return sniff(head, length, file.length());
+    }
+
+    /**
+     * Tell the MIME type of content from its first bytes.
+     *
+     * @param head          The first bytes of the content,{@link #SNIFF_LENGTH} are enough.
+     * @param length        The count of bytes in head.
+     * @param contentLength The length of the whole content,which some headers record.
+     * @return The MIME type,null if the bytes are none of the known signatures.
+     */
+    @Nullable
+    static String sniff(@NonNull byte[] head, int length, long contentLength) {
+        if (startsWith(head, length, 0, 0xFF, 0xD8, 0xFF)) return "image/jpeg";
+        if (startsWith(head, length, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) return "image/png";
+        if (startsWith(head, length, 0, 'G', 'I', 'F', '8')) return "image/gif";
+        if (startsWith(head, length, 0, 'R', 'I', 'F', 'F')) {
+            if (startsWith(head, length, 8, 'W', 'E', 'B', 'P')) return "image/webp";
+            if (startsWith(head, length, 8, 'W', 'A', 'V', 'E')) return "audio/x-wav";
+            if (startsWith(head, length, 8, 'A', 'V', 'I', ' ')) return "video/x-msvideo";
+            return null;
+        }
+        if (startsWith(head, length, 4, 'f', 't', 'y', 'p')) {
+            //ISO base media files,told apart by their major brand.
+            if (startsWith(head, length, 8, 'h', 'e', 'i', 'c') || startsWith(head, length, 8, 'h', 'e', 'i', 'x')) {
+                return "image/heic";
+            }
+            if (startsWith(head, length, 8, 'm', 'i', 'f', '1')) return "image/heif";
+            if (startsWith(head, length, 8, 'q', 't', ' ', ' ')) return "video/quicktime";
+            if (startsWith(head, length, 8, '3', 'g', '2')) return "video/3gpp2";
+            if (startsWith(head, length, 8, '3', 'g')) return "video/3gpp";
+            if (startsWith(head, length, 8, 'M', '4', 'A', ' ')) return "audio/mp4";
+            return "video/mp4";
+        }
+        if (startsWith(head, length, 0, 0x1A, 0x45, 0xDF, 0xA3)) return "video/webm";
+        if (startsWith(head, length, 0, 'I', 'D', '3')) return "audio/mpeg";
+        if (startsWith(head, length, 0, 'O', 'g', 'g', 'S')) return "audio/ogg";
+        if (startsWith(head, length, 0, 'f', 'L', 'a', 'C')) return "audio/flac";
+        if (startsWith(head, length, 0, '#', '!', 'A', 'M', 'R')) return "audio/amr";
+        if (startsWith(head, length, 0, '%', 'P', 'D', 'F', '-')) return "application/pdf";
+        if (startsWith(head, length, 0, 'P', 'K', 0x03, 0x04)) return "application/zip";
+        if (startsWith(head, length, 0, 0x1F, 0x8B)) return "application/gzip";
+        //Two letters or a sync word alone match too much,their headers are checked as well.
+        if (startsWith(head, length, 0, 'B', 'M') && isBmpHeader(head, length, contentLength)) return "image/bmp";
+        //MPEG audio frame without tags.
+        if (isMpegFrameHeader(head, length)) return "audio/mpeg";
+        return null;
+    }
+
+    /**
+     * The headers of a bitmap record the length of the file,and its pixels start after them.
+     */
+    private static boolean isBmpHeader(byte[] head, int length, long contentLength) {
+        if (length < BMP_FILE_HEADER_LENGTH + 4) return false;
+        long size = readIntLE(head, 2);
+        long reserved = readIntLE(head, 6);
+        long pixelOffset = readIntLE(head, 10);
+        long infoHeaderSize = readIntLE(head, BMP_FILE_HEADER_LENGTH);
+        //BITMAPCOREHEADER,BITMAPINFOHEADER and the later versions of it.
+        if (infoHeaderSize != 12 && infoHeaderSize != 40 && infoHeaderSize != 52 && infoHeaderSize != 56
+                && infoHeaderSize != 64 && infoHeaderSize != 108 && infoHeaderSize != 124) return false;
+        return size == contentLength && reserved == 0
+                && pixelOffset >= BMP_FILE_HEADER_LENGTH + infoHeaderSize && pixelOffset < size;
+    }
+
+    /**
+     * The header of an MPEG audio frame:a sync word,then fields none of which is reserved.
+     */
+    private static boolean isMpegFrameHeader(byte[] head, int length) {
+        if (length < 4 || (head[0] & 0xFF) != 0xFF || (head[1] & 0xE0) != 0xE0) return false;
+        int version = (head[1] >> 3) & 0x03;
+        int layer = (head[1] >> 1) & 0x03;
+        int bitrate = (head[2] >> 4) & 0x0F;
+        int sampleRate = (head[2] >> 2) & 0x03;
+        int emphasis = head[3] & 0x03;
+        return version != 1 && layer != 0 && bitrate != 0x0F && sampleRate != 3 && emphasis != 2;
+    }
+
+    private static long readIntLE(byte[] head, int offset) {
+        return (head[offset] & 0xFFL) | (head[offset + 1] & 0xFFL) << 8 | (head[offset + 2] & 0xFFL) << 16
+                | (head[offset + 3] & 0xFFL) << 24;
+    }
+
+    private static boolean startsWith(byte[] head, int length, int offset, int... signature) {
+        if (length < offset + signature.length) return false;
+        for (int i = 0; i < signature.length; i++) {
+            if ((head[offset + i] & 0xFF) != signature[i]) return false;
+        }
+        return true;
+    }
+}
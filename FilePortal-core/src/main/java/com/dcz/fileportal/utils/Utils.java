@@ -6,11 +6,10 @@ import com.dcz.fileportal.exceptions.InvalidTimeException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.text.DecimalFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -18,6 +17,23 @@ import java.util.Locale;
 
 public class Utils {
 
+    //SimpleDateFormat is not thread safe,each thread keeps its own.
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("yyyy-MM-dd hh:mm:ss", Locale.getDefault());
+        }
+    };
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int HASH_BUFFER_SIZE = 256 * 1024;
+    //Files are hashed by a few threads only,each of them keeps its own buffer.
+    private static final ThreadLocal<ByteBuffer> HASH_BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+        }
+    };
+
     /**
      * Get the MD5 digest.
      *
@@ -42,24 +58,22 @@ public class Utils {
 
     /**
      * Create md5 hash fro the file.
+     * The file is read through a {@link FileChannel} into a direct buffer reused by the calling thread.
      *
      * @param file File to upload.
      * @return MD5 hash.
      */
     public static String md5(File file) {
         if (file == null) return null;
-        try {
-            InputStream fis = new FileInputStream(file);
-            byte[] buffer = new byte[1024];
+        try (FileInputStream fis = new FileInputStream(file); FileChannel channel = fis.getChannel()) {
             MessageDigest complete = MessageDigest.getInstance("MD5");
-            int numRead;
-            do {
-                numRead = fis.read(buffer);
-                if (numRead > 0) {
-                    complete.update(buffer, 0, numRead);
-                }
-            } while (numRead != -1);
-            fis.close();
+            ByteBuffer buffer = HASH_BUFFER.get();
+            buffer.clear();
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                complete.update(buffer);
+                buffer.clear();
+            }
             return byteArrayToHexString(complete.digest());
         } catch (NoSuchAlgorithmException | IOException e) {
             e.printStackTrace();
@@ -73,20 +87,14 @@ public class Utils {
      * @param bytes The byte array to be converted.
      * @return The hex string.
      */
-    private static String byteArrayToHexString(byte[] bytes) {
-        StringBuilder sb = new StringBuilder(bytes.length * 2);
-        for (int aByte : bytes) {
-            int byteVal = aByte;
-            if (byteVal < 0) {
-                byteVal += 256;
-            }
-            String hexCode = Integer.toHexString(byteVal);
-            if (hexCode.length() % 2 == 1) {
-                hexCode = "0" + hexCode;
-            }
-            sb.append(hexCode);
+    public static String byteArrayToHexString(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int byteVal = bytes[i] & 0xFF;
+            chars[i * 2] = HEX_DIGITS[byteVal >>> 4];
+            chars[i * 2 + 1] = HEX_DIGITS[byteVal & 0x0F];
         }
-        return sb.toString();
+        return new String(chars);
     }
 
     /**
@@ -96,8 +104,8 @@ public class Utils {
      * @return Converted timestamp(milliseconds).
      */
     public static long dateStr2Timestamp(String date) throws InvalidTimeException {
-        SimpleDateFormat sdf = new SimpleDateFormat(
-                "yyyy-MM-dd hh:mm:ss", Locale.getDefault());
+        if (date == null) throw new InvalidTimeException();
+        SimpleDateFormat sdf = DATE_FORMAT.get();
         Date formattedDate;
         try {
             formattedDate = sdf.parse(date);
@@ -118,11 +126,8 @@ public class Utils {
      * @return Transferred percent.
      */
     public static int getTransferPercent(long current, long sum) {
-        float rate = current * 1.0f / sum;
-        String decimalBit = "#.##";
-        DecimalFormat format = new DecimalFormat(decimalBit);
-        format.setRoundingMode(RoundingMode.DOWN);
-        return (int) (Float.parseFloat(format.format(rate)) * 100);
+        if (sum <= 0) return 0;
+        return (int) (current * 100 / sum);
     }
 
    /* public static <T> T fromJson(Gson gson, String json) {
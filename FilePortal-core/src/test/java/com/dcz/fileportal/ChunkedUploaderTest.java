@@ -0,0 +1,338 @@
+package com.dcz.fileportal;
+
+import com.dcz.fileportal.exceptions.HttpStatusException;
+import com.dcz.fileportal.exceptions.UploadFailedException;
+import com.dcz.fileportal.network.BandwidthLimiter;
+import com.dcz.fileportal.network.ResponseDecoder;
+import com.dcz.fileportal.network.bean.ChunkRecord;
+import com.dcz.fileportal.options.RetryPolicy;
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.ByteString;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Run {@link ChunkedUploader} against a local server implementing the chunk protocol.
+ */
+public class ChunkedUploaderTest {
+
+    private static final int CHUNK_SIZE = 4096;
+    private static final String URL = "https://fs.example.com/f/abc";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private ChunkServer chunkServer;
+    private MemoryStore store;
+    private ChunkedUploader uploader;
+
+    @Before
+    public void setUp() throws IOException {
+        chunkServer = new ChunkServer();
+        server = new MockWebServer();
+        server.setDispatcher(chunkServer);
+        server.start();
+        store = new MemoryStore();
+        uploader = new ChunkedUploader(new OkHttpClient(), new ResponseDecoder(new Gson()), store, new BandwidthLimiter(),
+                server.url("/uploadChunk").toString(), server.url("/uploadCommit").toString());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void uploadsAllChunksThenCommits() throws Exception {
+        byte[] content = randomBytes(CHUNK_SIZE * 2 + 100);
+        File file = writeFile(content);
+
+        String url = uploader.upload(file, "md5", "token", "1", "1", CHUNK_SIZE, 1, null, null, null);
+
+        assertEquals(URL, url);
+        assertEquals(Arrays.asList(0, 1, 2), chunkServer.indices);
+        assertArrayEquals(content, chunkServer.committed);
+        assertNull(store.get("md5_1_1"));
+    }
+
+    @Test
+    public void resumesFromAcknowledgedChunks() throws Exception {
+        byte[] content = randomBytes(CHUNK_SIZE * 3);
+        File file = writeFile(content);
+        chunkServer.failIndex = 1;
+        try {
+            uploader.upload(file, "md5", "token", "1", "1", CHUNK_SIZE, 1, null, null, null);
+            fail();
+        } catch (HttpStatusException expected) {
+        }
+        ChunkRecord record = store.get("md5_1_1");
+        assertNotNull(record);
+        assertEquals(Collections.singletonList(0), record.getAckedChunks());
+
+        chunkServer.failIndex = -1;
+        chunkServer.indices.clear();
+        String url = uploader.upload(file, "md5", "token", "1", "1", CHUNK_SIZE, 1, null, null, null);
+
+        assertEquals(URL, url);
+        assertEquals(Arrays.asList(1, 2), chunkServer.indices);
+        assertArrayEquals(content, chunkServer.committed);
+    }
+
+    @Test
+    public void failedUploadKeepsEveryAcknowledgedChunk() throws Exception {
+        File file = writeFile(randomBytes(CHUNK_SIZE * 12));
+        chunkServer.failIndex = 10;
+        try {
+            uploader.upload(file, "md5", "token", "1", "1", CHUNK_SIZE, 1, null, null, null);
+            fail();
+        } catch (HttpStatusException expected) {
+        }
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), store.get("md5_1_1").getAckedChunks());
+        //Written as each chunk was acknowledged,rather than only when the upload failed.
+        assertEquals(10, store.puts.get());
+    }
+
+    @Test
+    public void readsRecordsStoredAsList() {
+        ChunkRecord record = new Gson().fromJson(
+                "{\"md5\":\"md5\",\"length\":12288,\"chunkSize\":4096,\"ackedChunks\":[2,0]}", ChunkRecord.class);
+        assertTrue(record.matches("md5", CHUNK_SIZE * 3, CHUNK_SIZE));
+        assertTrue(record.isAcked(0));
+        assertFalse(record.isAcked(1));
+        assertEquals(Arrays.asList(0, 2), record.getAckedChunks());
+    }
+
+    @Test
+    public void retriesOnlyTheChunksNotAcknowledged() throws Exception {
+        byte[] content = randomBytes(CHUNK_SIZE * 3);
+        File file = writeFile(content);
+        chunkServer.failIndex = 1;
+        chunkServer.failuresLeft.set(1);
+        RetryPolicy retryPolicy = new RetryPolicy.Builder().setInitialBackoffMs(0).build();
+        Retrier retrier = new Retrier(retryPolicy);
+
+        String url = retrier.call(() -> uploader.upload(file, "md5", "token", "1", "1", CHUNK_SIZE, 1, retryPolicy, null, null));
+
+        assertEquals(URL, url);
+        assertEquals(1, retrier.getRetries());
+        //Chunk 0 is not sent again.
+        assertEquals(Arrays.asList(0, 1, 1, 2), chunkServer.indices);
+        assertArrayEquals(content, chunkServer.committed);
+    }
+
+    @Test
+    public void doesNotRetryRefusedChunks() throws Exception {
+        File file = writeFile(randomBytes(CHUNK_SIZE * 2));
+        chunkServer.refuseIndex = 0;
+        Retrier retrier = new Retrier(new RetryPolicy.Builder().setInitialBackoffMs(0).build());
+        try {
+            retrier.call(() -> uploader.upload(file, "md5", "token", "1", "1", CHUNK_SIZE, 1, null, null, null));
+            fail();
+        } catch (UploadFailedException expected) {
+        }
+        assertEquals(0, retrier.getRetries());
+    }
+
+    @Test
+    public void uploadsChunksInParallel() throws Exception {
+        byte[] content = randomBytes(CHUNK_SIZE * 8 - 1);
+        File file = writeFile(content);
+        chunkServer.delayMillis = 100;
+
+        String url = uploader.upload(file, "md5", "token", "1", "1", CHUNK_SIZE, 4, null, null, null);
+
+        assertEquals(URL, url);
+        assertEquals(8, chunkServer.indices.size());
+        assertTrue(chunkServer.maxInFlight.get() > 1);
+        assertTrue(chunkServer.maxInFlight.get() <= 4);
+        assertArrayEquals(content, chunkServer.committed);
+    }
+
+    @Test
+    public void capsTheUploadRate() throws Exception {
+        byte[] content = randomBytes(CHUNK_SIZE * 16);
+        File file = writeFile(content);
+        BandwidthLimiter limiter = new BandwidthLimiter(CHUNK_SIZE * 32);
+
+        long start = System.nanoTime();
+        String url = uploader.upload(file, "md5", "token", "1", "1", CHUNK_SIZE, 4, null, limiter, null);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(URL, url);
+        assertArrayEquals(content, chunkServer.committed);
+        //Half a second worth of bytes,less the initial burst.
+        assertTrue(elapsedMillis >= 350);
+    }
+
+    @Test
+    public void uploadsMissingChunksAgainBeforeCommitting() throws Exception {
+        byte[] content = randomBytes(CHUNK_SIZE * 2);
+        File file = writeFile(content);
+        ChunkRecord record = new ChunkRecord("md5", content.length, CHUNK_SIZE);
+        record.ack(0);
+        record.ack(1);
+        store.put("md5_1_1", record);
+
+        String url = uploader.upload(file, "md5", "token", "1", "1", CHUNK_SIZE, 2, null, null, null);
+
+        assertEquals(URL, url);
+        assertEquals(2, chunkServer.commits.get());
+        assertArrayEquals(content, chunkServer.committed);
+    }
+
+    private File writeFile(byte[] content) throws IOException {
+        File file = folder.newFile();
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            fos.write(content);
+        }
+        return file;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static class MemoryStore implements ChunkRecordStore {
+        private final Map<String, ChunkRecord> records = new ConcurrentHashMap<>();
+        final AtomicInteger puts = new AtomicInteger();
+
+        @Override
+        public ChunkRecord get(String key) {
+            return records.get(key);
+        }
+
+        @Override
+        public void put(String key, ChunkRecord record) {
+            puts.incrementAndGet();
+            records.put(key, record);
+        }
+
+        @Override
+        public void remove(String key) {
+            records.remove(key);
+        }
+    }
+
+    /**
+     * Store chunks by index,reassemble them in index order on commit and report the missing ones.
+     */
+    private static class ChunkServer extends Dispatcher {
+        final Map<Integer, ByteString> chunks = new ConcurrentHashMap<>();
+        final List<Integer> indices = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final AtomicInteger commits = new AtomicInteger();
+        volatile int failIndex = -1;
+        final AtomicInteger failuresLeft = new AtomicInteger(Integer.MAX_VALUE);
+        volatile int refuseIndex = -1;
+        volatile long delayMillis;
+        volatile byte[] committed;
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            if (request.getPath().endsWith("/uploadCommit")) {
+                return commit(request);
+            }
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(delayMillis);
+                Map<String, ByteString> parts = parseMultipart(request);
+                int index = Integer.parseInt(parts.get(Constants.NET_KEY_INDEX).utf8());
+                indices.add(index);
+                if (index == failIndex && failuresLeft.getAndDecrement() > 0) {
+                    return new MockResponse().setResponseCode(500);
+                }
+                if (index == refuseIndex) {
+                    return new MockResponse().setBody("{\"ret\":403,\"msg\":\"refused\"}");
+                }
+                assertEquals((long) index * CHUNK_SIZE, Long.parseLong(parts.get(Constants.NET_KEY_OFFSET).utf8()));
+                chunks.put(index, parts.get(Constants.NET_KEY_CHUNK));
+                return new MockResponse().setBody("{\"ret\":200,\"msg\":\"ok\"}");
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        private MockResponse commit(RecordedRequest request) {
+            commits.incrementAndGet();
+            Map<String, String> fields = new HashMap<>();
+            for (String pair : request.getBody().readUtf8().split("&")) {
+                String[] kv = pair.split("=");
+                fields.put(kv[0], kv[1]);
+            }
+            int count = Integer.parseInt(fields.get(Constants.NET_KEY_COUNT));
+            List<Integer> missing = new ArrayList<>();
+            ByteArrayOutputStream assembled = new ByteArrayOutputStream();
+            for (int i = 0; i < count; i++) {
+                ByteString chunk = chunks.get(i);
+                if (chunk == null) {
+                    missing.add(i);
+                } else {
+                    byte[] bytes = chunk.toByteArray();
+                    assembled.write(bytes, 0, bytes.length);
+                }
+            }
+            if (!missing.isEmpty()) {
+                return new MockResponse().setBody("{\"ret\":400,\"msg\":\"missing\",\"data\":{\"missing\":" + missing + "}}");
+            }
+            committed = assembled.toByteArray();
+            return new MockResponse().setBody("{\"ret\":200,\"msg\":\"ok\",\"data\":{\"url\":\"" + URL + "\"}}");
+        }
+
+        private static Map<String, ByteString> parseMultipart(RecordedRequest request) {
+            String contentType = request.getHeader("Content-Type");
+            ByteString boundary = ByteString.encodeUtf8("--" + contentType.substring(contentType.indexOf("boundary=") + 9));
+            ByteString body = request.getBody().readByteString();
+            Map<String, ByteString> parts = new HashMap<>();
+            int start = body.indexOf(boundary);
+            while (true) {
+                int next = body.indexOf(boundary, start + boundary.size());
+                if (next == -1) break;
+                ByteString part = body.substring(start + boundary.size() + 2, next - 2);
+                int headerEnd = part.indexOf(ByteString.encodeUtf8("\r\n\r\n"));
+                String headers = part.substring(0, headerEnd).utf8();
+                int nameStart = headers.indexOf("name=\"") + 6;
+                String name = headers.substring(nameStart, headers.indexOf('"', nameStart));
+                parts.put(name, part.substring(headerEnd + 4));
+                start = next;
+            }
+            return parts;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.dcz.fileportal;
+
+import com.dcz.fileportal.network.CachingDns;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.UnknownHostException;
+import java.security.KeyFactory;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+
+import okhttp3.Call;
+import okhttp3.Dns;
+import okhttp3.EventListener;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.ByteString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Run {@link ConnectionWarmer} and {@link CachingDns} against a local server.
+ */
+public class ConnectionWarmerTest {
+
+    //Self-signed for localhost and 127.0.0.1,valid until 2126.
+    private static final String LOCALHOST_CERTIFICATE = ""
+            + "-----BEGIN CERTIFICATE-----\n"
+            + "MIIBmjCCAUGgAwIBAgIUV28K/1crUDKb+IrTb6Xh+TgQ2yQwCgYIKoZIzj0EAwIw\n"
+            + "FDESMBAGA1UEAwwJbG9jYWxob3N0MCAXDTI2MTAxODA1MzcxNVoYDzIxMjYwOTI0\n"
+            + "MDUzNzE1WjAUMRIwEAYDVQQDDAlsb2NhbGhvc3QwWTATBgcqhkjOPQIBBggqhkjO\n"
+            + "PQMBBwNCAAQGEoUZvAP9ppQ05DLNqnNZG9/MGl3dfMXHKGruawAaaF1xGx2Magvc\n"
+            + "vnC3OUymhseCLzaeWoje6KF6cs73zDKeo28wbTAdBgNVHQ4EFgQUhg8Ts18bWqCE\n"
+            + "d+9VuhDMkXA8aKcwHwYDVR0jBBgwFoAUhg8Ts18bWqCEd+9VuhDMkXA8aKcwDwYD\n"
+            + "VR0TAQH/BAUwAwEB/zAaBgNVHREEEzARgglsb2NhbGhvc3SHBH8AAAEwCgYIKoZI\n"
+            + "zj0EAwIDRwAwRAIgAyghBB/EoNaFQEA4qy51H4I5EBWQPLnv478EdtSkkiQCIGt/\n"
+            + "GzsLD7ZumplB8ngHc6U3N+y7FiQBO/vhmtF9GG+A\n"
+            + "-----END CERTIFICATE-----\n";
+    private static final String LOCALHOST_KEY = ""
+            + "MIGHAgEAMBMGByqGSM49AgEGCCqGSM49AwEHBG0wawIBAQQgMr5ikgUZwd6DzQ40\n"
+            + "vFj/DWljSuVr0AKnTG95UfY7tkChRANCAAQGEoUZvAP9ppQ05DLNqnNZG9/MGl3d\n"
+            + "fMXHKGruawAaaF1xGx2MagvcvnC3OUymhseCLzaeWoje6KF6cs73zDKe\n";
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void laterCallsReuseTheWarmConnection() throws Exception {
+        server.enqueue(new MockResponse());
+        server.enqueue(new MockResponse().setBody("{}"));
+        OkHttpClient client = new OkHttpClient();
+
+        int connected = new ConnectionWarmer(client).warm(server.url("/api/v1/token").toString(),
+                server.url("/api/v1/upload").toString());
+        try (okhttp3.Response response = client.newCall(new Request.Builder().url(server.url("/api/v1/token")).build()).execute()) {
+            response.body().string();
+        }
+
+        assertEquals(1, connected);
+        RecordedRequest warm = server.takeRequest();
+        assertEquals("HEAD", warm.getMethod());
+        assertEquals("/", warm.getPath());
+        //Second request on the same connection.
+        assertEquals(1, server.takeRequest().getSequenceNumber());
+    }
+
+    @Test
+    public void firstUploadSkipsTheHandshakeOfTheWarmConnection() throws Exception {
+        SSLContext sslContext = localhostTls();
+        server.useHttps(sslContext.getSocketFactory(), false);
+        server.enqueue(new MockResponse());
+        server.enqueue(new MockResponse().setBody("{}"));
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        OkHttpClient client = new OkHttpClient.Builder()
+                .sslSocketFactory(sslContext.getSocketFactory(), localhostTrust())
+                .eventListener(new EventListener() {
+                    @Override
+                    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+                        events.add("connect");
+                    }
+
+                    @Override
+                    public void secureConnectStart(Call call) {
+                        events.add("handshake");
+                    }
+
+                    @Override
+                    public void responseHeadersStart(Call call) {
+                        events.add("firstByte");
+                    }
+                })
+                .build();
+
+        assertEquals(1, new ConnectionWarmer(client).warm(server.url("/api/v1/upload").toString()));
+        assertEquals(Arrays.asList("connect", "handshake", "firstByte"), events);
+        events.clear();
+        Request upload = new Request.Builder()
+                .url(server.url("/api/v1/upload"))
+                .post(RequestBody.create(MediaType.parse("application/octet-stream"), new byte[1000]))
+                .build();
+        try (okhttp3.Response response = client.newCall(upload).execute()) {
+            response.body().string();
+            assertNotNull(response.handshake());
+        }
+
+        //Waits for the server only,no TCP or TLS setup.
+        assertEquals(Collections.singletonList("firstByte"), events);
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void cachesAddressesUntilTheyExpire() throws Exception {
+        CountingDns delegate = new CountingDns();
+        CachingDns dns = new CachingDns(delegate, 50);
+
+        dns.lookup("fs.example.com");
+        dns.lookup("fs.example.com");
+        assertEquals(1, delegate.lookups.get());
+
+        Thread.sleep(60);
+        dns.lookup("fs.example.com");
+        assertEquals(2, delegate.lookups.get());
+    }
+
+    @Test
+    public void servesExpiredAddressesWhenTheLookupFails() throws Exception {
+        CountingDns delegate = new CountingDns();
+        CachingDns dns = new CachingDns(delegate, 0);
+
+        dns.lookup("fs.example.com");
+        delegate.offline.set(true);
+
+        assertEquals(Collections.singletonList(InetAddress.getLoopbackAddress()), dns.lookup("fs.example.com"));
+    }
+
+    /**
+     * @return The TLS context of the server,whose certificate is the one {@link #localhostTrust()} trusts.
+     */
+    private static SSLContext localhostTls() throws Exception {
+        PrivateKey key = KeyFactory.getInstance("EC")
+                .generatePrivate(new PKCS8EncodedKeySpec(ByteString.decodeBase64(LOCALHOST_KEY).toByteArray()));
+        char[] password = "password".toCharArray();
+        KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        keyStore.load(null, password);
+        keyStore.setKeyEntry("localhost", key, password, new Certificate[]{localhostCertificate()});
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, password);
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagers.getKeyManagers(), new TrustManager[]{localhostTrust()}, null);
+        return sslContext;
+    }
+
+    private static X509TrustManager localhostTrust() throws Exception {
+        KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        trustStore.load(null, null);
+        trustStore.setCertificateEntry("localhost", localhostCertificate());
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(trustStore);
+        return (X509TrustManager) trustManagers.getTrustManagers()[0];
+    }
+
+    private static Certificate localhostCertificate() throws Exception {
+        return CertificateFactory.getInstance("X.509")
+                .generateCertificate(new ByteArrayInputStream(LOCALHOST_CERTIFICATE.getBytes("US-ASCII")));
+    }
+
+    private static class CountingDns implements Dns {
+        final AtomicInteger lookups = new AtomicInteger();
+        final AtomicBoolean offline = new AtomicBoolean();
+
+        @Override
+        public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+            lookups.incrementAndGet();
+            if (offline.get()) throw new UnknownHostException(hostname);
+            return Collections.singletonList(InetAddress.getLoopbackAddress());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.dcz.fileportal;
+
+import com.dcz.fileportal.exceptions.UploadFailedException;
+import com.dcz.fileportal.network.ResponseDecoder;
+import com.dcz.fileportal.options.PriorityOption;
+import com.dcz.fileportal.scheduler.UploadScheduler;
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Run {@link DedupChecker} and {@link PreUploadBatcher} against a local server.
+ */
+public class DedupCheckerTest {
+
+    private MockWebServer server;
+    private DedupChecker checker;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        checker = new DedupChecker(new OkHttpClient(), new ResponseDecoder(new Gson()), server.url("/preUploadBatch").toString());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void checksManyMd5sWithOneRequest() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"ret\":200,\"msg\":\"ok\",\"data\":{\"urls\":{\"b\":\"https://fs/b\"}}}"));
+
+        Map<String, String> urls = checker.check("token", Arrays.asList("a", "b", "c"), "1", "1");
+
+        assertEquals(Collections.singletonMap("b", "https://fs/b"), urls);
+        assertEquals(1, server.getRequestCount());
+        RecordedRequest request = server.takeRequest();
+        String body = URLDecoder.decode(request.getBody().readUtf8(), "UTF-8");
+        assertTrue(body.contains(Constants.NET_KEY_MD5S + "=a,b,c"));
+    }
+
+    @Test
+    public void noHits() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"ret\":200,\"msg\":\"ok\",\"data\":{}}"));
+
+        assertTrue(checker.check("token", Arrays.asList("a", "b"), "1", "1").isEmpty());
+    }
+
+    @Test(expected = UploadFailedException.class)
+    public void refusedCheck() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"ret\":404,\"msg\":\"unknown api\"}"));
+
+        checker.check("token", Arrays.asList("a", "b"), "1", "1");
+    }
+
+    @Test
+    public void groupsItemsAddedWhileAGroupIsInFlight() throws Exception {
+        UploadScheduler scheduler = new UploadScheduler();
+        final CountDownLatch firstGroupStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstGroup = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(5);
+        final List<List<Integer>> groups = Collections.synchronizedList(new ArrayList<>());
+        PreUploadBatcher<Integer> batcher = new PreUploadBatcher<>(scheduler, PriorityOption.PRIORITY_USER_VISIBLE,
+                new PreUploadBatcher.GroupHandler<Integer>() {
+                    @Override
+                    public void handle(List<Integer> group) {
+                        groups.add(group);
+                        firstGroupStarted.countDown();
+                        try {
+                            releaseFirstGroup.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException ignored) {
+                        }
+                        for (int ignored : group) done.countDown();
+                    }
+
+                    @Override
+                    public void reject(List<Integer> group) {
+                    }
+                });
+
+        batcher.add(0);
+        assertTrue(firstGroupStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < 5; i++) {
+            batcher.add(i);
+        }
+        releaseFirstGroup.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(Collections.singletonList(0), Arrays.asList(1, 2, 3, 4)), groups);
+        scheduler.shutdown();
+    }
+}
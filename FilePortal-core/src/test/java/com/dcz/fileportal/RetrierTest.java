@@ -0,0 +1,118 @@
+package com.dcz.fileportal;
+
+import com.dcz.fileportal.exceptions.HttpStatusException;
+import com.dcz.fileportal.exceptions.UploadFailedException;
+import com.dcz.fileportal.options.RetryPolicy;
+
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Run requests under a {@link RetryPolicy} with {@link Retrier}.
+ */
+public class RetrierTest {
+
+    private static final RetryPolicy FAST = new RetryPolicy.Builder()
+            .setMaxAttempts(4)
+            .setInitialBackoffMs(1)
+            .setMaxBackoffMs(4)
+            .build();
+
+    @Test
+    public void retriesUntilTheRequestSucceeds() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        Retrier retrier = new Retrier(FAST);
+
+        String result = retrier.call(() -> {
+            if (attempts.incrementAndGet() < 3) throw new HttpStatusException(503);
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2, retrier.getRetries());
+    }
+
+    @Test
+    public void stopsAfterTheMaxAttempts() throws Exception {
+        assertAttempts(4, new IOException("reset"), FAST);
+        assertAttempts(4, new HttpStatusException(500), FAST);
+        assertAttempts(1, new IOException("reset"), new RetryPolicy.Builder().setMaxAttempts(1).build());
+    }
+
+    @Test
+    public void failuresNotWorthRetryingAreThrownAtOnce() throws Exception {
+        assertAttempts(1, new HttpStatusException(404), FAST);
+        assertAttempts(1, new FileNotFoundException(), FAST);
+        assertAttempts(1, new UploadFailedException(), FAST);
+    }
+
+    @Test
+    public void noRetryStartsAfterTheDeadline() throws Exception {
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setInitialBackoffMs(60_000)
+                .setMaxBackoffMs(60_000)
+                .setDeadlineMs(1)
+                .build();
+        final AtomicInteger attempts = new AtomicInteger();
+        Retrier retrier = new Retrier(policy);
+        try {
+            retrier.call(() -> {
+                attempts.incrementAndGet();
+                //Even a backoff of 0 starts after the deadline now.
+                pause(5);
+                throw new IOException("reset");
+            });
+            fail();
+        } catch (IOException expected) {
+        }
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void attemptsAreCountedPerRequest() throws Exception {
+        Retrier retrier = new Retrier(FAST);
+        for (int request = 0; request < 2; request++) {
+            final AtomicInteger attempts = new AtomicInteger();
+            retrier.call(() -> {
+                if (attempts.incrementAndGet() < 4) throw new IOException("reset");
+                return null;
+            });
+            assertEquals(4, attempts.get());
+        }
+        assertEquals(6, retrier.getRetries());
+    }
+
+    private static void pause(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static void assertAttempts(int expected, Exception failure, RetryPolicy policy) throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        Retrier retrier = new Retrier(policy);
+        try {
+            retrier.call(() -> {
+                attempts.incrementAndGet();
+                if (failure instanceof UploadFailedException) throw (UploadFailedException) failure;
+                throw (IOException) failure;
+            });
+            fail();
+        } catch (IOException | UploadFailedException e) {
+            assertSame(failure, e);
+        }
+        assertEquals(expected, attempts.get());
+        assertEquals(expected - 1, retrier.getRetries());
+    }
+}
@@ -0,0 +1,117 @@
+package com.dcz.fileportal;
+
+import com.dcz.fileportal.network.ResponseDecoder;
+import com.dcz.fileportal.store.MemoryKeyValueStore;
+import com.dcz.fileportal.utils.Utils;
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Share,renew and persist tokens with {@link TokenManager} against a local server.
+ */
+public class TokenManagerTest {
+
+    private static final String TOKEN_RESPONSE = "{\"ret\":200,\"msg\":\"ok\",\"data\":"
+            + "{\"token\":\"new-token\",\"date_expired\":\"2099-12-31 11:59:59\"}}";
+
+    private final Gson gson = new Gson();
+    private final MemoryKeyValueStore store = new MemoryKeyValueStore();
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void concurrentCallersShareOneRequest() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE).setBodyDelay(300, TimeUnit.MILLISECONDS));
+        final TokenManager tokenManager = newTokenManager();
+        final int callers = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        List<Future<String>> tokens = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            tokens.add(executor.submit(() -> {
+                start.await();
+                return tokenManager.getToken("uid", "apiKey", "pkg");
+            }));
+        }
+        start.countDown();
+
+        for (Future<String> token : tokens) {
+            assertEquals("new-token", token.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void tokenCloseToExpiryIsRenewedWhileHandedOut() throws Exception {
+        storeToken("old-token", System.currentTimeMillis() + 2 * 60 * 1000);
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        TokenManager tokenManager = newTokenManager();
+
+        assertEquals("old-token", tokenManager.getToken("uid", "apiKey", "pkg"));
+        assertEquals(1, server.getRequestCount());
+        assertEquals("new-token", tokenManager.getToken("uid", "apiKey", "pkg"));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void failedRenewalIsNotRetriedOnEveryCall() throws Exception {
+        storeToken("old-token", System.currentTimeMillis() + 2 * 60 * 1000);
+        server.enqueue(new MockResponse().setResponseCode(500));
+        TokenManager tokenManager = newTokenManager();
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("old-token", tokenManager.getToken("uid", "apiKey", "pkg"));
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    /**
+     * Create a token manager which renews tokens on the calling thread.
+     */
+    private TokenManager newTokenManager() {
+        return new TokenManager(new OkHttpClient(), gson, new ResponseDecoder(gson), store, Runnable::run,
+                server.url("/token").toString());
+    }
+
+    private void storeToken(String token, long expireTimestamp) throws Exception {
+        String expireTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault())
+                .format(new Date(expireTimestamp));
+        //The api's 12-hour format reads the hour of noon as midnight.
+        assumeTrue(Math.abs(Utils.dateStr2Timestamp(expireTime) - expireTimestamp) < 1000);
+        store.putString(Constants.PREFS_TOKEN_JSON_PREFIX + "uid", "{\"token\":\"" + token
+                + "\",\"date_expired\":\"" + expireTime + "\",\"uid\":\"uid\"}");
+    }
+}
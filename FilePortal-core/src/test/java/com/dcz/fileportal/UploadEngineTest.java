@@ -0,0 +1,161 @@
+package com.dcz.fileportal;
+
+import com.dcz.fileportal.cache.UploadResultCache;
+import com.dcz.fileportal.exceptions.MalformedResponseException;
+import com.dcz.fileportal.exceptions.UploadFailedException;
+import com.dcz.fileportal.options.AccessOption;
+import com.dcz.fileportal.options.ModeOption;
+import com.dcz.fileportal.options.RetryPolicy;
+import com.dcz.fileportal.store.FileKeyValueStore;
+import com.dcz.fileportal.store.KeyValueStore;
+import com.dcz.fileportal.store.MemoryKeyValueStore;
+import com.dcz.fileportal.utils.Utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Run the whole protocol of {@link UploadEngine} on a plain JVM against a local server.
+ */
+public class UploadEngineTest {
+
+    private static final String TOKEN_RESPONSE = "{\"ret\":200,\"msg\":\"ok\",\"data\":"
+            + "{\"token\":\"engine-token\",\"date_expired\":\"2099-12-31 11:59:59\"}}";
+    private static final String NOT_FOUND_RESPONSE = "{\"ret\":404,\"msg\":\"not found\"}";
+    private static final String UPLOADED_RESPONSE = "{\"ret\":200,\"msg\":\"ok\",\"data\":{\"url\":\"https://fs/photo\"}}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private OkHttpClient client;
+    private File file;
+    private final RetryPolicy retryPolicy = new RetryPolicy.Builder().build();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        final HttpUrl base = server.url("/");
+        //The endpoints are constants,send them to the local server.
+        client = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    Request request = chain.request();
+                    HttpUrl url = request.url().newBuilder().scheme("http").host(base.host()).port(base.port()).build();
+                    return chain.proceed(request.newBuilder().url(url).build());
+                })
+                .build();
+        file = folder.newFile("photo.jpg");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[2000]);
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void uploadsAFileTheServerDoesNotHave() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        server.enqueue(new MockResponse().setBody(NOT_FOUND_RESPONSE));
+        server.enqueue(new MockResponse().setBody(UPLOADED_RESPONSE));
+        KeyValueStore store = new MemoryKeyValueStore();
+        UploadEngine engine = new UploadEngine.Builder(client, store, "com.example").build();
+
+        UploadResult result = upload(engine);
+
+        assertEquals("https://fs/photo", result.getUrl());
+        assertEquals(Utils.md5(file), result.getMd5());
+        assertFalse(result.isCached());
+        assertEquals(3, server.getRequestCount());
+        assertTrue(server.takeRequest().getPath().endsWith("/token"));
+        assertTrue(server.takeRequest().getPath().endsWith("/preUpload"));
+        String upload = server.takeRequest().getBody().readUtf8();
+        assertTrue(upload.contains("Content-Type: image/jpeg"));
+        assertNotNull(store.getString(Constants.PREFS_TOKEN_JSON_PREFIX + "uid"));
+    }
+
+    @Test
+    public void sameContentIsUploadedOnce() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        server.enqueue(new MockResponse().setBody(NOT_FOUND_RESPONSE));
+        server.enqueue(new MockResponse().setBody(UPLOADED_RESPONSE));
+        UploadEngine engine = new UploadEngine.Builder(client, new MemoryKeyValueStore(), "com.example")
+                .setResultCache(new UploadResultCache())
+                .build();
+
+        upload(engine);
+        UploadResult result = upload(engine);
+
+        assertTrue(result.isCached());
+        assertEquals("https://fs/photo", result.getUrl());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void successWithoutUrlFails() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        server.enqueue(new MockResponse().setBody("{\"ret\":200,\"msg\":\"ok\"}"));
+        UploadEngine engine = new UploadEngine.Builder(client, new MemoryKeyValueStore(), "com.example").build();
+
+        try {
+            upload(engine);
+            fail();
+        } catch (UploadFailedException expected) {
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void garbageBodyFailsWithAnIOException() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        server.enqueue(new MockResponse().setBody("<html><body>Sign in to the Wi-Fi</body></html>"));
+        UploadEngine engine = new UploadEngine.Builder(client, new MemoryKeyValueStore(), "com.example").build();
+
+        try {
+            engine.upload(file, "uid", "apiKey", AccessOption.ACCESS_VERIFY, ModeOption.MODE_STAY, 0, 1,
+                    new RetryPolicy.Builder().setMaxAttempts(1).build(), null);
+            fail();
+        } catch (MalformedResponseException expected) {
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void tokenSurvivesRestartInFileStore() throws Exception {
+        File state = new File(folder.getRoot(), "state/portal.properties");
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        assertEquals("engine-token", new UploadEngine.Builder(client, new FileKeyValueStore(state), "com.example").build()
+                .getToken("uid", "apiKey"));
+
+        UploadEngine restarted = new UploadEngine.Builder(client, new FileKeyValueStore(state), "com.example").build();
+
+        assertEquals("engine-token", restarted.getToken("uid", "apiKey"));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    private UploadResult upload(UploadEngine engine) throws Exception {
+        return engine.upload(file, "uid", "apiKey", AccessOption.ACCESS_VERIFY, ModeOption.MODE_STAY, 0, 1, retryPolicy, null);
+    }
+}
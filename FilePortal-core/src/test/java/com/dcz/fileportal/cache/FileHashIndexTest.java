@@ -0,0 +1,82 @@
+package com.dcz.fileportal.cache;
+
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Index and persist file hashes with {@link FileHashIndex}.
+ */
+public class FileHashIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor();
+    private File storeFile;
+    private File first;
+    private File second;
+
+    @Before
+    public void setUp() throws IOException {
+        storeFile = new File(folder.getRoot(), "index.json");
+        first = newFile("first.jpg", 10);
+        second = newFile("second.jpg", 20);
+    }
+
+    @After
+    public void tearDown() {
+        flushExecutor.shutdownNow();
+    }
+
+    @Test
+    public void changesWithinTheSaveIntervalAreWrittenOnceItEnds() throws Exception {
+        FileHashIndex index = new FileHashIndex(storeFile, new Gson(), flushExecutor);
+        index.put(first, "md5-first");
+        //Right after the first write,kept in memory for now.
+        index.put(second, "md5-second");
+        assertNull(new FileHashIndex(storeFile, new Gson()).get(second));
+
+        Thread.sleep(2500);
+
+        FileHashIndex reloaded = new FileHashIndex(storeFile, new Gson());
+        assertEquals("md5-first", reloaded.get(first));
+        assertEquals("md5-second", reloaded.get(second));
+    }
+
+    @Test
+    public void hashOfAFileChangedWhileHashedIsDropped() throws Exception {
+        FileHashIndex index = new FileHashIndex(storeFile, new Gson());
+        long length = first.length();
+        long lastModified = first.lastModified();
+
+        //Appended while the old content was being hashed.
+        try (FileOutputStream out = new FileOutputStream(first, true)) {
+            out.write(1);
+        }
+        index.put(first, length, lastModified, "md5-old");
+
+        assertNull(index.get(first));
+    }
+
+    private File newFile(String name, int size) throws IOException {
+        File file = folder.newFile(name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[size]);
+        }
+        return file;
+    }
+}
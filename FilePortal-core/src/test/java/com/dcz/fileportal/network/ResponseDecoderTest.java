@@ -0,0 +1,66 @@
+package com.dcz.fileportal.network;
+
+import com.dcz.fileportal.exceptions.MalformedResponseException;
+import com.dcz.fileportal.network.bean.Response;
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.io.EOFException;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Decode response bodies with {@link ResponseDecoder}.
+ */
+public class ResponseDecoderTest {
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    private final ResponseDecoder decoder = new ResponseDecoder(new Gson());
+
+    @Test
+    public void decodesTheResponses() throws Exception {
+        Response<Response.TokenBean> token = decoder.decodeToken(body(
+                "{\"ret\":200,\"msg\":\"ok\",\"data\":{\"token\":\"t\",\"date_expired\":\"2099-12-31 11:59:59\"}}"));
+        assertEquals(200, token.getRet());
+        assertEquals("t", token.getData().getToken());
+        assertEquals("2099-12-31 11:59:59", token.getData().getExpireTime());
+
+        Response<Response.UploadBean> upload = decoder.decodeUpload(body(
+                "{\"ret\":200,\"msg\":\"ok\",\"data\":{\"url\":\"https://fs/a\"}}"));
+        assertEquals("https://fs/a", upload.getData().getUrl());
+
+        //The data of a status is skipped whatever it is.
+        assertEquals(404, decoder.decodeStatus(body("{\"ret\":404,\"msg\":\"not found\",\"data\":[1,{}]}")).getRet());
+    }
+
+    @Test
+    public void emptyBodyIsNull() throws Exception {
+        assertNull(decoder.decodeUpload(body("")));
+        assertNull(decoder.decodeUpload(body("  \n")));
+    }
+
+    @Test(expected = MalformedResponseException.class)
+    public void otherJsonIsMalformed() throws Exception {
+        decoder.decodeUpload(body("[\"not\",\"a\",\"response\"]"));
+    }
+
+    @Test(expected = MalformedResponseException.class)
+    public void pageOfAProxyIsMalformed() throws Exception {
+        decoder.decodeUpload(body("<html><body>Sign in to the Wi-Fi</body></html>"));
+    }
+
+    @Test(expected = EOFException.class)
+    public void bodyCutShortIsAnIOException() throws Exception {
+        decoder.decodeUpload(body("{\"ret\":200,\"data\":{\"url\":"));
+    }
+
+    private static ResponseBody body(String json) {
+        return ResponseBody.create(JSON, json);
+    }
+}
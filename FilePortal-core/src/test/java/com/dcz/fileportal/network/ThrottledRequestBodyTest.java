@@ -0,0 +1,55 @@
+package com.dcz.fileportal.network;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Write request bodies no faster than their {@link BandwidthLimiter}s allow.
+ */
+public class ThrottledRequestBodyTest {
+
+    private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+    private static final int SLICE_SIZE = 8 * 1024;
+
+    @Test
+    public void writesNoFasterThanTheLimit() throws Exception {
+        final long bytesPerSecond = 256 * 1024;
+        final int size = 64 * SLICE_SIZE;
+        //The unlimited limiter doesn't loosen the other one.
+        RequestBody body = new ThrottledRequestBody(RequestBody.create(OCTET_STREAM, new byte[size]),
+                new BandwidthLimiter(), new BandwidthLimiter(bytesPerSecond));
+        Buffer sink = new Buffer();
+
+        long start = System.nanoTime();
+        body.writeTo(sink);
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(size, sink.size());
+        //The bucket starts empty,every slice but the last waits for the bytes before it.
+        long minNanos = (size - SLICE_SIZE) * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+        assertTrue("elapsed " + elapsed + "ns", elapsed >= minNanos);
+    }
+
+    @Test
+    public void noLimitDoesNotBlock() throws Exception {
+        final int size = 16 * 1024 * 1024;
+        RequestBody body = new ThrottledRequestBody(RequestBody.create(OCTET_STREAM, new byte[size]),
+                new BandwidthLimiter(0));
+        Buffer sink = new Buffer();
+
+        long start = System.nanoTime();
+        body.writeTo(sink);
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(size, sink.size());
+        assertTrue("elapsed " + elapsed + "ns", elapsed < TimeUnit.SECONDS.toNanos(1));
+    }
+}
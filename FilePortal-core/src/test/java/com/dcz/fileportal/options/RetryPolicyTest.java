@@ -0,0 +1,78 @@
+package com.dcz.fileportal.options;
+
+import com.dcz.fileportal.exceptions.HttpStatusException;
+import com.dcz.fileportal.exceptions.UploadFailedException;
+
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownServiceException;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Classify failures and compute the backoff with {@link RetryPolicy}.
+ */
+public class RetryPolicyTest {
+
+    private final RetryPolicy policy = new RetryPolicy.Builder()
+            .setInitialBackoffMs(1_000)
+            .setMaxBackoffMs(15_000)
+            .build();
+
+    @Test
+    public void serverErrorsAreRetriedButNotClientErrors() {
+        assertTrue(policy.isRetryable(new HttpStatusException(500)));
+        assertTrue(policy.isRetryable(new HttpStatusException(503)));
+        assertTrue(policy.isRetryable(new HttpStatusException(408)));
+        assertTrue(policy.isRetryable(new HttpStatusException(429)));
+        assertFalse(policy.isRetryable(new HttpStatusException(400)));
+        assertFalse(policy.isRetryable(new HttpStatusException(403)));
+        assertFalse(policy.isRetryable(new HttpStatusException(404)));
+    }
+
+    @Test
+    public void networkFailuresAreRetriedButNotLocalOnes() {
+        assertTrue(policy.isRetryable(new IOException()));
+        assertTrue(policy.isRetryable(new ConnectException()));
+        assertTrue(policy.isRetryable(new SocketTimeoutException()));
+        assertFalse(policy.isRetryable(new InterruptedIOException()));
+        assertFalse(policy.isRetryable(new FileNotFoundException()));
+        assertFalse(policy.isRetryable(new SSLPeerUnverifiedException("peer")));
+        assertFalse(policy.isRetryable(new UnknownServiceException()));
+        assertFalse(policy.isRetryable(new UploadFailedException()));
+    }
+
+    @Test
+    public void backoffIsJitteredBelowADoublingCeiling() {
+        long[] ceilings = {1_000, 2_000, 4_000, 8_000, 15_000, 15_000};
+        for (int retry = 1; retry <= ceilings.length; retry++) {
+            for (int i = 0; i < 1000; i++) {
+                long backoff = policy.backoffMs(retry);
+                assertTrue("retry " + retry + " waits " + backoff, backoff >= 0 && backoff < ceilings[retry - 1]);
+            }
+        }
+        //Far beyond the cap,the ceiling doesn't overflow.
+        assertTrue(policy.backoffMs(100) < 15_000);
+    }
+
+    @Test
+    public void noInitialBackoffRetriesAtOnce() {
+        RetryPolicy immediate = new RetryPolicy.Builder().setInitialBackoffMs(0).build();
+        assertEquals(0, immediate.backoffMs(1));
+        assertEquals(0, immediate.backoffMs(5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void atLeastOneAttempt() {
+        new RetryPolicy.Builder().setMaxAttempts(0);
+    }
+}
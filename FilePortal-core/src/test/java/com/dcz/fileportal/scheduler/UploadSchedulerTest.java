@@ -0,0 +1,116 @@
+package com.dcz.fileportal.scheduler;
+
+import com.dcz.fileportal.options.RejectionOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.dcz.fileportal.options.PriorityOption.PRIORITY_BACKGROUND;
+import static com.dcz.fileportal.options.PriorityOption.PRIORITY_USER_VISIBLE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Queue,order and reject tasks with {@link UploadScheduler} while its only hash thread is busy.
+ */
+public class UploadSchedulerTest {
+
+    private final UploadScheduler scheduler = new UploadScheduler();
+    private final CountDownLatch blockerStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseBlocker = new CountDownLatch(1);
+    private final List<String> ran = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> rejected = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() throws InterruptedException {
+        scheduler.setHashConcurrency(1);
+        //Keep the hash thread busy,so that new tasks wait in the queue.
+        scheduler.executeHash(PRIORITY_USER_VISIBLE, () -> {
+            blockerStarted.countDown();
+            try {
+                releaseBlocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, null);
+        assertTrue(blockerStarted.await(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void runsWaitingTasksByPriorityThenSubmissionOrder() throws Exception {
+        submit("background-1", PRIORITY_BACKGROUND);
+        submit("visible-1", PRIORITY_USER_VISIBLE);
+        submit("background-2", PRIORITY_BACKGROUND);
+        submit("visible-2", PRIORITY_USER_VISIBLE);
+
+        drain(4);
+
+        assertEquals(Arrays.asList("visible-1", "visible-2", "background-1", "background-2"), ran);
+        assertTrue(rejected.isEmpty());
+    }
+
+    @Test
+    public void rejectsNewTasksWhenTheQueueIsFull() throws Exception {
+        for (int i = 0; i < 256; i++) {
+            submit("task-" + i, PRIORITY_BACKGROUND);
+        }
+        submit("overflow", PRIORITY_USER_VISIBLE);
+
+        //Rejected on the calling thread.
+        assertEquals(Collections.singletonList("overflow"), rejected);
+        assertEquals(256, scheduler.getHashQueueDepth());
+        drain(256);
+    }
+
+    @Test
+    public void discardsTheOldestTaskOfTheLowestPriority() throws Exception {
+        scheduler.setQueueCapacity(2);
+        scheduler.setRejectionPolicy(RejectionOption.DISCARD_OLDEST);
+        submit("background-1", PRIORITY_BACKGROUND);
+        submit("background-2", PRIORITY_BACKGROUND);
+
+        submit("background-3", PRIORITY_BACKGROUND);
+        assertEquals(Collections.singletonList("background-1"), rejected);
+        submit("visible-1", PRIORITY_USER_VISIBLE);
+        assertEquals(Arrays.asList("background-1", "background-2"), rejected);
+        submit("visible-2", PRIORITY_USER_VISIBLE);
+        assertEquals(Arrays.asList("background-1", "background-2", "background-3"), rejected);
+        //Every waiting task is more important than the new one.
+        submit("background-4", PRIORITY_BACKGROUND);
+        assertEquals(Arrays.asList("background-1", "background-2", "background-3", "background-4"), rejected);
+
+        drain(2);
+        assertEquals(Arrays.asList("visible-1", "visible-2"), ran);
+    }
+
+    private void submit(final String name, int priority) {
+        scheduler.executeHash(priority, () -> ran.add(name), () -> rejected.add(name));
+    }
+
+    /**
+     * Release the hash thread and wait for the waiting tasks to run.
+     *
+     * @param count Tasks expected to run.
+     */
+    private void drain(int count) throws InterruptedException {
+        releaseBlocker.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (ran.size() < count) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
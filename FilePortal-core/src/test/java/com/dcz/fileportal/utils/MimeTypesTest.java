@@ -0,0 +1,100 @@
+package com.dcz.fileportal.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tell MIME types from names and first bytes with {@link MimeTypes}.
+ */
+public class MimeTypesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final MimeTypes mimeTypes = MimeTypes.getInstance();
+
+    @Test
+    public void looksUpTheExtension() {
+        assertEquals("image/jpeg", mimeTypes.getMimeType("IMG_20210315_131428.jpg"));
+        assertEquals("video/mp4", mimeTypes.getMimeType("VID_20210315_131428.MP4"));
+        assertEquals("application/gzip", mimeTypes.getMimeType("backup.tar.gz"));
+        assertEquals("image/png", mimeTypes.getMimeType("照片 #1.png"));
+        assertNull(mimeTypes.getMimeType("no_extension"));
+        assertNull(mimeTypes.getMimeType("trailing."));
+        assertNull(mimeTypes.getMimeType("unknown.xyz"));
+    }
+
+    @Test
+    public void sniffsTheSignatures() {
+        assertEquals("image/jpeg", sniff(0xFF, 0xD8, 0xFF, 0xE0));
+        assertEquals("image/png", sniff(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A));
+        assertEquals("image/webp", sniff('R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P'));
+        assertEquals("audio/x-wav", sniff('R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'A', 'V', 'E'));
+        assertEquals("image/heic", sniff(0, 0, 0, 0x18, 'f', 't', 'y', 'p', 'h', 'e', 'i', 'c'));
+        assertEquals("video/quicktime", sniff(0, 0, 0, 0x14, 'f', 't', 'y', 'p', 'q', 't', ' ', ' '));
+        assertEquals("video/mp4", sniff(0, 0, 0, 0x20, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm'));
+        assertEquals("audio/mpeg", sniff('I', 'D', '3', 4));
+        assertEquals("application/pdf", sniff('%', 'P', 'D', 'F', '-', '1'));
+        assertNull(sniff('h', 'e', 'l', 'l', 'o'));
+        //Too short to tell.
+        assertNull(sniff(0x89, 'P', 'N'));
+        assertNull(sniff());
+    }
+
+    @Test
+    public void sniffsBitmapsByTheirHeaders() {
+        //70 bytes long,pixels at 54,after a BITMAPINFOHEADER.
+        int[] bitmap = {'B', 'M', 70, 0, 0, 0, 0, 0, 0, 0, 54, 0, 0, 0, 40, 0, 0, 0};
+        assertEquals("image/bmp", sniffContent(70, bitmap));
+        //Recorded length is not the file's.
+        assertNull(sniffContent(71, bitmap));
+        //A text starting with the letters.
+        assertNull(sniff('B', 'M', 'W', ' ', 'o', 'w', 'n', 'e', 'r', 's', ' ', 'c', 'l', 'u', 'b', '\n', 'x', 'y'));
+        assertNull(sniff('B', 'M'));
+    }
+
+    @Test
+    public void sniffsMpegFramesByTheirHeaders() {
+        //MPEG-1 layer III,128 kbps,44.1 kHz.
+        assertEquals("audio/mpeg", sniff(0xFF, 0xFB, 0x90, 0x64));
+        //Reserved layer.
+        assertNull(sniff(0xFF, 0xE0, 0x90, 0x64));
+        //Reserved version.
+        assertNull(sniff(0xFF, 0xEB, 0x90, 0x64));
+        //Invalid bitrate.
+        assertNull(sniff(0xFF, 0xFB, 0xF0, 0x64));
+        //Reserved sample rate.
+        assertNull(sniff(0xFF, 0xFB, 0x9C, 0x64));
+        assertNull(sniff(0xFF, 0xFB));
+    }
+
+    @Test
+    public void sniffsTheFile() throws IOException {
+        File file = folder.newFile("IMG_0001");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[]{(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0x0D, 'I', 'H', 'D', 'R', 0});
+        }
+        assertEquals("image/png", MimeTypes.sniff(file));
+        assertNull(MimeTypes.sniff(new File(folder.getRoot(), "missing")));
+    }
+
+    private static String sniff(int... bytes) {
+        return sniffContent(bytes.length, bytes);
+    }
+
+    private static String sniffContent(long contentLength, int... bytes) {
+        byte[] head = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            head[i] = (byte) bytes[i];
+        }
+        return MimeTypes.sniff(head, head.length, contentLength);
+    }
+}
@@ -0,0 +1,99 @@
+package com.dcz.fileportal;
+
+import androidx.annotation.Nullable;
+
+import com.dcz.fileportal.network.ProgressListener;
+import com.dcz.fileportal.network.callbacks.BatchUploadCallback;
+import com.dcz.fileportal.network.callbacks.FileUploadResultCallback;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Collect the results and progress of every file of a batch upload.
+ * The per-file callbacks are posted to the callback executor,which may run them on several threads at once,
+ * so they are serialized here and the batch callback is told one thing at a time.
+ */
+class BatchTracker {
+
+    private final List<File> mFiles;
+    private final BatchUploadCallback mCallback;
+    private final long[] mLengths;
+    private final int[] mPercents;
+    private final boolean[] mDone;
+    private final long mTotalLength;
+    private int mLastPercent = -1;
+    private int mSucceeded;
+    private int mFailed;
+
+    BatchTracker(List<File> files, @Nullable BatchUploadCallback callback) {
+        mFiles = files;
+        mCallback = callback;
+        mLengths = new long[files.size()];
+        mPercents = new int[files.size()];
+        mDone = new boolean[files.size()];
+        long total = 0;
+        for (int i = 0; i < files.size(); i++) {
+            mLengths[i] = files.get(i).length();
+            total += mLengths[i];
+        }
+        mTotalLength = total;
+    }
+
+    FileUploadResultCallback resultCallbackOf(final int index) {
+        return new FileUploadResultCallback() {
+            @Override
+            public void onSuccess(String url, boolean isCache) {
+                synchronized (BatchTracker.this) {
+                    if (mDone[index]) return;
+                    mSucceeded++;
+                    if (mCallback != null) mCallback.onSuccess(index, mFiles.get(index), url, isCache);
+                    onFileDone(index);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                synchronized (BatchTracker.this) {
+                    if (mDone[index]) return;
+                    mFailed++;
+                    if (mCallback != null) mCallback.onFailure(index, mFiles.get(index), e);
+                    onFileDone(index);
+                }
+            }
+        };
+    }
+
+    ProgressListener progressListenerOf(final int index) {
+        return percent -> {
+            synchronized (BatchTracker.this) {
+                //Late progress of a file which is done already.
+                if (mDone[index]) return;
+                mPercents[index] = percent;
+                dispatchProgress();
+            }
+        };
+    }
+
+    private void onFileDone(int index) {
+        mDone[index] = true;
+        mPercents[index] = 100;
+        dispatchProgress();
+        if (mSucceeded + mFailed == mFiles.size()) {
+            if (mCallback != null) mCallback.onComplete(mSucceeded, mFailed);
+        }
+    }
+
+    private void dispatchProgress() {
+        if (mCallback == null || mTotalLength == 0) return;
+        long transferred = 0;
+        for (int i = 0; i < mLengths.length; i++) {
+            transferred += mLengths[i] * mPercents[i] / 100;
+        }
+        int percent = (int) (transferred * 100 / mTotalLength);
+        if (percent != mLastPercent) {
+            mLastPercent = percent;
+            mCallback.onProgress(percent);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.dcz.fileportal;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.BatteryManager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dcz.fileportal.options.ConstraintOption;
+
+/**
+ * Check the conditions of {@link ConstraintOption},and tell when they may have changed.
+ */
+class ConstraintMonitor {
+
+    private final Context mContext;
+    private final Runnable mOnChanged;
+    private final Runnable mOnNetworkChanged;
+    private boolean mWatching;
+
+    /**
+     * @param context          The application context.
+     * @param onChanged        Run on the main thread when the network or the power source changes.
+     * @param onNetworkChanged Run on the main thread when the network changes,before onChanged,null for nothing.
+     */
+    ConstraintMonitor(@NonNull Context context, @NonNull Runnable onChanged, @Nullable Runnable onNetworkChanged) {
+        mContext = context;
+        mOnChanged = onChanged;
+        mOnNetworkChanged = onNetworkChanged;
+    }
+
+    /**
+     * @param constraints {@link ConstraintOption}.
+     * @return Whether all of the conditions are met now.
+     */
+    boolean isSatisfied(int constraints) {
+        if ((constraints & ConstraintOption.CONSTRAINT_UNMETERED) != 0 && !isUnmetered()) return false;
+        return (constraints & ConstraintOption.CONSTRAINT_CHARGING) == 0 || isCharging();
+    }
+
+    /**
+     * Start listening to the changes,once for all.
+     */
+    synchronized void watch() {
+        if (mWatching) return;
+        mWatching = true;
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(ConnectivityManager.CONNECTIVITY_ACTION);
+        filter.addAction(Intent.ACTION_POWER_CONNECTED);
+        mContext.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (mOnNetworkChanged != null && ConnectivityManager.CONNECTIVITY_ACTION.equals(intent.getAction())) {
+                    mOnNetworkChanged.run();
+                }
+                mOnChanged.run();
+            }
+        }, filter);
+    }
+
+    private boolean isUnmetered() {
+        ConnectivityManager manager = (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (manager == null) return false;
+        NetworkInfo info = manager.getActiveNetworkInfo();
+        return info != null && info.isConnected() && !manager.isActiveNetworkMetered();
+    }
+
+    private boolean isCharging() {
+        //Sticky broadcast,no receiver is registered.
+        Intent battery = mContext.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        return battery != null && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+    }
+}
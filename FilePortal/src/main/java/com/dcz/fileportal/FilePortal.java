@@ -4,87 +4,219 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.os.Handler;
 import android.os.Looper;
-import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.dcz.fileportal.cache.FileHashIndex;
+import com.dcz.fileportal.cache.UploadResultCache;
 import com.dcz.fileportal.exceptions.DirectoryProvidedException;
 import com.dcz.fileportal.exceptions.EmptyFileException;
-import com.dcz.fileportal.exceptions.InvalidTimeException;
 import com.dcz.fileportal.exceptions.NoTokenException;
+import com.dcz.fileportal.exceptions.TaskRejectedException;
 import com.dcz.fileportal.exceptions.UploadFailedException;
-import com.dcz.fileportal.network.CountingFileRequestBody;
+import com.dcz.fileportal.metrics.MetricsListener;
+import com.dcz.fileportal.metrics.MetricsSnapshot;
+import com.dcz.fileportal.metrics.UploadMetrics;
+import com.dcz.fileportal.network.BandwidthLimiter;
+import com.dcz.fileportal.network.CachingDns;
+import com.dcz.fileportal.network.ProgressDispatcher;
 import com.dcz.fileportal.network.ProgressListener;
+import com.dcz.fileportal.network.TimeoutInterceptor;
+import com.dcz.fileportal.network.TransferListener;
 import com.dcz.fileportal.network.TrustAllManager;
-import com.dcz.fileportal.network.bean.Response;
 import com.dcz.fileportal.network.callbacks.FileUploadResultCallback;
+import com.dcz.fileportal.network.callbacks.RecoveredUploadCallback;
 import com.dcz.fileportal.network.callbacks.TokenResultCallback;
+import com.dcz.fileportal.options.BatchUploadOptions;
+import com.dcz.fileportal.options.FilePortalOptions;
+import com.dcz.fileportal.options.PriorityOption;
+import com.dcz.fileportal.options.RetryPolicy;
 import com.dcz.fileportal.options.UploadOptions;
+import com.dcz.fileportal.scheduler.UploadScheduler;
 import com.dcz.fileportal.utils.ContentType;
 import com.dcz.fileportal.utils.Utils;
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import okhttp3.FormBody;
-import okhttp3.MediaType;
-import okhttp3.MultipartBody;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-
-import static com.dcz.fileportal.Constants.NET_KEY_ACCESS;
-import static com.dcz.fileportal.Constants.NET_KEY_FILE;
-import static com.dcz.fileportal.Constants.NET_KEY_MD5;
-import static com.dcz.fileportal.Constants.NET_KEY_MD_UPPER;
-import static com.dcz.fileportal.Constants.NET_KEY_MODE;
-import static com.dcz.fileportal.Constants.NET_KEY_PKG;
-import static com.dcz.fileportal.Constants.NET_KEY_SIGNATURE;
-import static com.dcz.fileportal.Constants.NET_KEY_TOKEN;
-import static com.dcz.fileportal.Constants.NET_KEY_UID;
-import static com.dcz.fileportal.Constants.RET_SUCCESS;
+import okhttp3.Protocol;
 
 /**
  * 文件传送门。
+ * The Android adapter of {@link UploadEngine}:it runs the engine on {@link UploadScheduler},keeps its state in
+ * shared preference,posts the results to the main thread and keeps durable tasks in a journal.
  * todo 注意：目前后台存在文件size限制，最大值为20MB。
  */
 public class FilePortal {
 
+    //Files of a batch being hashed or waiting to be hashed at once.
+    private static final int BATCH_HASH_WINDOW = 2;
+    //All endpoints share one host,so this bounds the calls multiplexed over its HTTP/2 connection.
+    private static final int MAX_REQUESTS_PER_HOST = 16;
+    //Wait before the durable tasks kept after a failure are run again,doubled after each such failure up to the max.
+    private static final long RESUME_BACKOFF_MS = 30_000;
+    private static final long MAX_RESUME_BACKOFF_MS = 15 * 60_000;
+
     private static volatile FilePortal mInstance;
-    private OkHttpClient mClient;
-    private final Gson mGson;
+    private static FilePortalOptions mOptions;
+    //Provided by the app,or null to be created on first use.
+    private final OkHttpClient mBaseClient;
+    private volatile OkHttpClient mClient;
+    //Resolver of the client created here,null if the app provided its client.
+    private volatile CachingDns mDns;
+    private volatile Gson mGson;
     private SharedPreferences mSP;
-    private final ExecutorService mExecutor;
-    private final Handler mHandler;
+    private UploadEngine mEngine;
+    private FileHashIndex mHashIndex;
+    private final UploadResultCache mResultCache;
+    private final BandwidthLimiter mBandwidthLimiter = new BandwidthLimiter();
+    private final MetricsCollector mMetrics = new MetricsCollector();
+    private final InFlightUploads<UploadTask> mInFlight = new InFlightUploads<>();
+    //Files being hashed by their path,a task hashing a file another one is hashing waits for its hash.
+    private final Map<String, FutureTask<String>> mHashing = new ConcurrentHashMap<>();
+    private final UploadScheduler mScheduler;
+    private final Executor mCallbackExecutor;
+    private final RecoveredUploadCallback mRecoveredCallback;
+    //Reads and writes the journal and the hash index,apart from the stages so that a durable task is journaled at once.
+    private final ScheduledThreadPoolExecutor mIoExecutor;
+    private Context mJournalContext;
+    private UploadJournal mJournal;
+    private ConstraintMonitor mConstraintMonitor;
+    private long mResumeBackoffMs = RESUME_BACKOFF_MS;
+    private ScheduledFuture<?> mDelayedResume;
 
-    private FilePortal() {
-        //todo 超时、重试策略。
-        initOkHttpClient();
-        mGson = new Gson();
-        mExecutor = Executors.newCachedThreadPool();
-        mHandler = new Handler(Looper.getMainLooper());
+    //Package-private for the load test,which runs instances of its own.
+    FilePortal(@Nullable FilePortalOptions options) {
+        mBaseClient = options == null ? null : options.getOkHttpClient();
+        mGson = options == null ? null : options.getGson();
+        mScheduler = options != null && options.getScheduler() != null ? options.getScheduler() : new UploadScheduler();
+        if (options != null && options.getCallbackExecutor() != null) {
+            mCallbackExecutor = options.getCallbackExecutor();
+        } else {
+            final Handler handler = new Handler(Looper.getMainLooper());
+            mCallbackExecutor = handler::post;
+        }
+        mResultCache = new UploadResultCache();
+        mRecoveredCallback = options == null ? null : options.getRecoveredUploadCallback();
+        mIoExecutor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "FilePortal-io");
+            thread.setDaemon(true);
+            return thread;
+        });
+        mIoExecutor.setKeepAliveTime(30, TimeUnit.SECONDS);
+        mIoExecutor.allowCoreThreadTimeOut(true);
+        mIoExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        final Context context = options == null ? null : options.getContext();
+        if (context != null) {
+            //Resume the durable tasks of the last process.
+            executeIo(() -> getJournal(context), null);
+        }
     }
 
     /**
-     * Initialize the OkHttp Client which is used globally.
+     * Configure the singleton instance,which must be done before it is first used.
+     *
+     * @param options Global options.
+     * @throws IllegalStateException If the singleton instance has been created.
      */
-    private void initOkHttpClient() {
-        TrustAllManager trustAllManager = new TrustAllManager();
-        mClient = new OkHttpClient.Builder()
-                //直接忽略证书校验并不是解决证书不被系统认可的最佳实践。 @see TrustAllManager.java。
-                .sslSocketFactory(Objects.requireNonNull(TrustAllManager.createTrustAllSSLFactory(trustAllManager)), trustAllManager)
-                .hostnameVerifier(TrustAllManager.createTrustAllHostnameVerifier())
-                .build();
+    public static void init(@NonNull FilePortalOptions options) {
+        synchronized (FilePortal.class) {
+            if (mInstance != null) {
+                throw new IllegalStateException("FilePortal has been initialized");
+            }
+            mOptions = options;
+        }
+    }
+
+    /**
+     * Get the OkHttp Client which is used globally,created on first use since building its SSLContext is costly.
+     * A client provided by the app is derived rather than copied,so they share the connection pool and dispatcher.
+     * Its TLS settings,resolver and protocols are kept as the app set them,since a connection is reused only for calls
+     * whose address agrees on all of them.
+     * The client created here caches resolved addresses until the network changes and prefers HTTP/2,so the calls of
+     * all tasks share one connection.
+     * The calls are recorded for the metrics of their task,the event listener of a client provided by the app is still told of them.
+     *
+     * @return The OkHttp Client.
+     */
+    private OkHttpClient getClient() {
+        OkHttpClient client = mClient;
+        if (client == null) {
+            synchronized (this) {
+                client = mClient;
+                if (client == null) {
+                    OkHttpClient.Builder builder;
+                    if (mBaseClient == null) {
+                        //The default dispatcher queues calls beyond 5 per host,though they would fit in one HTTP/2 connection.
+                        Dispatcher dispatcher = new Dispatcher();
+                        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+                        TrustAllManager trustAllManager = new TrustAllManager();
+                        mDns = new CachingDns();
+                        builder = new OkHttpClient.Builder()
+                                .dispatcher(dispatcher)
+                                .dns(mDns)
+                                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                                //直接忽略证书校验并不是解决证书不被系统认可的最佳实践。 @see TrustAllManager.java。
+                                .sslSocketFactory(Objects.requireNonNull(TrustAllManager.createTrustAllSSLFactory(trustAllManager)), trustAllManager)
+                                .hostnameVerifier(TrustAllManager.createTrustAllHostnameVerifier());
+                    } else {
+                        //The dispatcher and the connections are shared with the app,leave them to the app.
+                        builder = mBaseClient.newBuilder();
+                    }
+                    client = builder
+                            .addInterceptor(new TimeoutInterceptor())
+                            .eventListenerFactory(mBaseClient == null ? mMetrics
+                                    : mMetrics.forwardingTo(mBaseClient.eventListenerFactory()))
+                            .build();
+                    mClient = client;
+                }
+            }
+        }
+        return client;
     }
 
     /**
-     * Get the singleton instance.
+     * Get the Gson instance which is used globally,created on first use.
+     *
+     * @return The Gson instance.
+     */
+    private Gson getGson() {
+        Gson gson = mGson;
+        if (gson == null) {
+            synchronized (this) {
+                gson = mGson;
+                if (gson == null) {
+                    gson = new Gson();
+                    mGson = gson;
+                }
+            }
+        }
+        return gson;
+    }
+
+    /**
+     * Get the singleton instance,configured by {@link #init(FilePortalOptions)} if it has been called.
      *
      * @return Singleton instance of FilePortal.
      */
@@ -92,7 +224,7 @@ public class FilePortal {
         if (mInstance == null) {
             synchronized (FilePortal.class) {
                 if (mInstance == null) {
-                    mInstance = new FilePortal();
+                    mInstance = new FilePortal(mOptions);
                 }
             }
         }
@@ -101,145 +233,398 @@ public class FilePortal {
 
     /**
      * Exposed api for upload file.
+     * The file is hashed and then uploaded by {@link UploadScheduler},see {@link #getScheduler()} to tune it.
+     * A durable task is written to the journal on a thread of its own before it starts,rather than on the calling thread,
+     * its future completes with its first result even if it is kept to be tried again later.
      *
      * @param uploadOptions Options of the upload task.
+     * @return The future of the task,to wait for it,compose it with others or cancel it.
      */
-    public void upload(@NonNull UploadOptions uploadOptions) {
-        final Context context = uploadOptions.getContext();
-        final String uid = uploadOptions.getUid();
-        final String apiKey = uploadOptions.getApiKey();
-        final File file = uploadOptions.getFile();
-        final String accessVerify = uploadOptions.getAccessVerify();
-        final String mode = uploadOptions.getMode();
-        final FileUploadResultCallback callback = uploadOptions.getFileUploadResultCallback();
-        final ProgressListener progressListener = uploadOptions.getProgressListener();
-        upload(context, uid, apiKey, file, accessVerify, mode, callback, progressListener);
+    @NonNull
+    public UploadFuture upload(@NonNull final UploadOptions uploadOptions) {
+        final UploadFuture future = new UploadFuture();
+        if (uploadOptions.isDurable()) {
+            //The journal may be read from disk first,and every entry added to it is synced to disk.
+            executeIo(() -> {
+                final UploadJournal journal = getJournal(uploadOptions.getContext());
+                final UploadJournal.Entry entry = UploadJournal.newEntry(uploadOptions);
+                entry.uploadOptions = uploadOptions.newBuilder()
+                        .setFileUploadResultCallback(new JournaledCallback(entry, uploadOptions.getFileUploadResultCallback()))
+                        .build();
+                entry.future = future;
+                journal.add(entry);
+                runDurable(journal, entry);
+            }, () -> onFailureCallback(new UploadTask(uploadOptions, future), new TaskRejectedException()));
+            return future;
+        }
+        submit(new UploadTask(uploadOptions, future), null, false);
+        return future;
     }
 
     /**
-     * Get token and start uploading the file.
+     * Upload the file on the calling thread and wait for it,e.g. from a worker of a batch job.
+     * The task doesn't go through the scheduler,so its priority and the limits of the scheduler don't apply.
+     * The callback and the progress listener of the options are still run on their executor.
      *
-     * @param context          current context.
-     * @param uid              current user id.
-     * @param apiKey           Registered api key for Marvel File System.
-     * @param file             The file to upload.
-     * @param accessVerify     Weather token is needed to access the file.
-     * @param mode             The strategy of keeping files.
-     * @param callback         File upload result callback.
-     * @param progressListener The listener of uploading progress.
-     */
-    private void upload(@NonNull final Context context, @NonNull final String uid, @NonNull final String apiKey,
-                        final @NonNull File file, @NonNull final String accessVerify, @NonNull final String mode, @Nullable final FileUploadResultCallback callback,
-                        @Nullable ProgressListener progressListener) {
+     * @param uploadOptions Options of the upload task,which must not be durable.
+     * @return The result of the upload.
+     * @throws Exception The exception for which the upload failed,the same one the callback gets.
+     */
+    @NonNull
+    public UploadResult uploadBlocking(@NonNull final UploadOptions uploadOptions) throws Exception {
+        if (uploadOptions.isDurable()) {
+            throw new IllegalArgumentException("A durable task can't be run blocking");
+        }
+        final UploadTask task = new UploadTask(uploadOptions);
+        try {
+            submit(task, null, true);
+        } finally {
+            //Nothing is left to complete it once the task returned.
+            task.future.fail(new UploadFailedException());
+        }
+        try {
+            return task.future.get();
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    /**
+     * Exposed api for uploading a batch of files with the same options.
+     * The files are pipelined:while one file is being hashed,the ones before it are checked and uploaded.
+     * Hashed files are checked against the backend server in groups,so files it already has cost no upload and
+     * share a single round-trip.
+     *
+     * @param files              The files to upload.
+     * @param batchUploadOptions Options shared by the files.
+     */
+    public void uploadBatch(@NonNull final List<File> files, @NonNull final BatchUploadOptions batchUploadOptions) {
+        final List<File> batch = new ArrayList<>(files);
+        final BatchTracker tracker = new BatchTracker(batch, batchUploadOptions.getBatchUploadCallback());
+        if (batch.isEmpty()) {
+            if (batchUploadOptions.getBatchUploadCallback() != null) {
+                mCallbackExecutor.execute(() -> batchUploadOptions.getBatchUploadCallback().onComplete(0, 0));
+            }
+            return;
+        }
+        final PreUploadBatcher<HashedFile> batcher = new PreUploadBatcher<>(mScheduler, batchUploadOptions.getPriority(),
+                new PreUploadBatcher.GroupHandler<HashedFile>() {
+                    @Override
+                    public void handle(List<HashedFile> group) {
+                        try {
+                            preUploadGroup(group);
+                        } catch (RuntimeException e) {
+                            //The shared check threw,fail the files rather than leave them and the ones waiting for them hanging.
+                            for (HashedFile hashedFile : group) {
+                                if (!hashedFile.task.future.isDone()) onFailureCallback(hashedFile.task, e);
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void reject(List<HashedFile> group) {
+                        for (HashedFile hashedFile : group) {
+                            onFailureCallback(hashedFile.task, new TaskRejectedException());
+                        }
+                    }
+                });
+        final AtomicInteger next = new AtomicInteger();
+        //Feed the hash stage a few files at a time rather than filling its bounded queue with the whole batch.
+        final Runnable feedNext = new Runnable() {
+            @Override
+            public void run() {
+                int index = next.getAndIncrement();
+                if (index >= batch.size()) return;
+                UploadOptions uploadOptions = batchUploadOptions.newUploadOptionsBuilder(batch.get(index))
+                        .setFileUploadResultCallback(tracker.resultCallbackOf(index))
+                        .setProgressListener(tracker.progressListenerOf(index))
+                        .build();
+                submit(new UploadTask(uploadOptions, batcher), this, false);
+            }
+        };
+        for (int i = 0; i < BATCH_HASH_WINDOW; i++) {
+            feedNext.run();
+        }
+    }
+
+    /**
+     * Hash the file in the hash stage,then hand it over to the network stage.
+     * Unchanged files hashed before are looked up in {@link FileHashIndex} instead of being read again,
+     * and files uploaded before complete from {@link UploadResultCache} without any request.
+     *
+     * @param task     The upload task,whose batcher groups the hashed file with others for a batched pre upload check.
+     * @param onHashed Run once the task leaves the hash stage,whether it is hashed or failed.
+     * @param blocking Run both stages on the calling thread instead of the scheduler.
+     */
+    private void submit(@NonNull final UploadTask task, @Nullable final Runnable onHashed, final boolean blocking) {
+        final UploadOptions uploadOptions = task.uploadOptions;
+        final PreUploadBatcher<HashedFile> batcher = task.batcher;
+        final File file = uploadOptions.getFile();
         if (file.isDirectory()) {
-            onFailureCallback(callback, new DirectoryProvidedException());
+            onFailureCallback(task, new DirectoryProvidedException());
+            if (onHashed != null) onHashed.run();
             return;
         }
         if (file.length() == 0) {
-            onFailureCallback(callback, new EmptyFileException());
+            onFailureCallback(task, new EmptyFileException());
+            if (onHashed != null) onHashed.run();
             return;
         }
-        Runnable runnable = () -> {
-            final String token = getToken(context, uid, apiKey);
-            if (token == null) {
-                onFailureCallback(callback, new NoTokenException());
-            } else {
-                String fileMD5 = Utils.md5(file);//todo 是否会遇到OOM
-                final boolean serverCached = preUpload(token, fileMD5, accessVerify, mode, callback);
-                //No cache in the backend server.Then do upload.
-                if (!serverCached) {
-                    doUpload(file, fileMD5, token, accessVerify, mode, callback, progressListener);
-                } else if (progressListener != null) {
-                    progressListener.transferred(100);
-                }
+        final int priority = uploadOptions.getPriority();
+        final Runnable onRejected = () -> onFailureCallback(task, new TaskRejectedException());
+        final UploadJournal.Entry journalEntry = journalEntryOf(uploadOptions.getFileUploadResultCallback());
+        final TaskRecorder recorder = mMetrics.recorderOf(task);
+        final Runnable hash = () -> {
+            recorder.dequeued(TaskRecorder.PHASE_HASH_WAIT);
+            try {
+                runStep(task, () -> {
+                    final long hashStart = TaskRecorder.now();
+                    //Read before hashing,so a change made meanwhile doesn't get the old hash.
+                    final long length = file.length();
+                    final long lastModified = file.lastModified();
+                    final FileHashIndex hashIndex = getHashIndex(uploadOptions.getContext());
+                    String fileMD5 = journalEntry == null ? null : mJournal.getMd5(journalEntry, file);
+                    if (fileMD5 == null) {
+                        fileMD5 = hashIndex.get(file);
+                    }
+                    if (fileMD5 == null) {
+                        fileMD5 = hashShared(file, length, lastModified, hashIndex, recorder);
+                        if (fileMD5 == null) {
+                            recorder.end(TaskRecorder.PHASE_HASH, hashStart);
+                            onFailureCallback(task, new UploadFailedException());
+                            return;
+                        }
+                    } else {
+                        recorder.setHashIndexHit(true);
+                    }
+                    if (journalEntry != null) {
+                        mJournal.setMd5(journalEntry, length, lastModified, fileMD5);
+                    }
+                    recorder.end(TaskRecorder.PHASE_HASH, hashStart);
+                    //Uploaded before,complete locally.
+                    final String cachedUrl = mResultCache.get(fileMD5, uploadOptions.getAccessVerify(), uploadOptions.getMode());
+                    if (cachedUrl != null) {
+                        onSuccessCallback(task, fileMD5, cachedUrl, UploadMetrics.CACHE_LOCAL);
+                        onProgressCompleted(uploadOptions);
+                        return;
+                    }
+                    recorder.queued();
+                    //Being uploaded by another task,wait for its url.
+                    //A blocking task doesn't wait for others,as nothing would be left to complete it.
+                    if (!blocking && !mInFlight.join(InFlightUploads.keyOf(fileMD5, uploadOptions.getAccessVerify(),
+                            uploadOptions.getMode()), task)) {
+                        //Cancelling it ends the wait at once,rather than when the leader is done.
+                        task.future.addListener(() -> {
+                            if (task.future.isCancelled() && mInFlight.leave(task)) {
+                                onFailureCallback(task, new CancellationException());
+                            }
+                        }, Runnable::run);
+                        return;
+                    }
+                    if (batcher != null) {
+                        batcher.add(new HashedFile(task, fileMD5));
+                    } else if (blocking) {
+                        upload(task, fileMD5);
+                    } else {
+                        final String md5 = fileMD5;
+                        mScheduler.executeNetwork(priority, () -> runStep(task, () -> upload(task, md5)), onRejected);
+                    }
+                });
+            } finally {
+                if (onHashed != null) onHashed.run();
             }
         };
-        mExecutor.execute(runnable);
+        if (blocking) {
+            hash.run();
+        } else {
+            mScheduler.executeHash(priority, hash, () -> {
+                onRejected.run();
+                if (onHashed != null) onHashed.run();
+            });
+        }
     }
 
     /**
-     * Check before do upload task.
-     * If the same file has been uploaded,we'll get a url.Otherwise ret_code != 200,start upload.
+     * Get token and start uploading the hashed file.
      *
-     * @param token        token.
-     * @param callback     FileUploadResultCallback.
-     * @param fileMD5      The MD5 hash which will be used to check if the file has exists on backend server of the file.
-     * @param accessVerify Weather token is needed to access the file.
-     * @param mode         The strategy of keeping files.
-     * @return Weather the same file has benn uploaded.
-     */
-    private boolean preUpload(final String token, final String fileMD5, final String accessVerify, String mode, @Nullable final FileUploadResultCallback callback) {
-        RequestBody requestBody = new FormBody.Builder()
-                .add(NET_KEY_MD5, fileMD5)
-                .add(NET_KEY_TOKEN, token)
-                .add(NET_KEY_ACCESS, accessVerify)
-                .add(NET_KEY_MODE, mode)
-                .build();
-        Request request = new Request.Builder()
-                .url(Constants.API_PRE_UPLOAD)
-                .post(requestBody)
-                .build();
-        try (okhttp3.Response response = mClient.newCall(request).execute()) {
-            if (response.isSuccessful() && response.body() != null) {
-                final Response<Response.UploadBean> preloadInfo = mGson.fromJson(response.body().string(), new TypeToken<Response<Response.UploadBean>>() {
-                }.getType());
-                if (preloadInfo.getRet() == RET_SUCCESS) {
-                    onSuccessCallback(callback, preloadInfo.getData().getUrl(), true);
-                    return true;
-                }
+     * @param task    The upload task.
+     * @param fileMD5 The MD5 hash of the file.
+     */
+    private void upload(@NonNull final UploadTask task, @NonNull final String fileMD5) {
+        final UploadOptions uploadOptions = task.uploadOptions;
+        final TaskRecorder recorder = mMetrics.recorderOf(task);
+        recorder.dequeued(TaskRecorder.PHASE_NETWORK_WAIT);
+        final TaskRecorder previous = mMetrics.bind(recorder);
+        try {
+            long start = TaskRecorder.now();
+            //The token request may be shared with other tasks,it isn't cancelled with this one.
+            recorder.setSharedCalls(true);
+            final String token;
+            try {
+                token = getToken(uploadOptions.getContext(), uploadOptions.getUid(), uploadOptions.getApiKey());
+            } finally {
+                recorder.setSharedCalls(false);
+            }
+            recorder.end(TaskRecorder.PHASE_TOKEN, start);
+            if (token == null) {
+                onFailureCallback(task, new NoTokenException());
+                return;
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            final Retrier retrier = new Retrier(uploadOptions.getRetryPolicy());
+            final String cachedUrl;
+            start = TaskRecorder.now();
+            try {
+                final UploadEngine engine = getEngine(uploadOptions.getContext());
+                cachedUrl = retrier.call(() -> engine.preUpload(token, fileMD5, uploadOptions.getAccessVerify(), uploadOptions.getMode(),
+                        uploadOptions.getRetryPolicy()));
+            } catch (IOException | UploadFailedException e) {
+                recorder.end(TaskRecorder.PHASE_PRE_UPLOAD, start);
+                recorder.setRetries(retrier.getRetries());
+                onFailureCallback(task, e);
+                return;
+            }
+            recorder.end(TaskRecorder.PHASE_PRE_UPLOAD, start);
+            recorder.setRetries(retrier.getRetries());
+            //No cache in the backend server.Then do upload.
+            if (cachedUrl == null) {
+                transfer(task, fileMD5, token, retrier);
+            } else {
+                mResultCache.put(fileMD5, uploadOptions.getAccessVerify(), uploadOptions.getMode(), cachedUrl);
+                onSuccessCallback(task, fileMD5, cachedUrl, UploadMetrics.CACHE_SERVER);
+                onProgressCompleted(uploadOptions);
+            }
+        } finally {
+            mMetrics.unbind(previous);
         }
-        return false;
     }
 
     /**
-     * Upload the file to the backend server.
+     * Check a group of hashed files of a batch with a single request,upload only the ones the backend server doesn't have.
+     * All files of the group share the same uid,access and mode.
      *
-     * @param file             The file to be uploaded.
-     * @param fileMD5          The MD5 hash of the file.
-     * @param token            verification token.
-     * @param callback         The callback of file uploading result.
-     * @param accessVerify     Weather token is needed to access the file.
-     * @param mode             The strategy of keeping files.
-     * @param progressListener The listener of uploading progress.
-     */
-    private void doUpload(@NonNull final File file, final String fileMD5, final String token,
-                          String accessVerify, String mode, @Nullable final FileUploadResultCallback callback
-            , @Nullable ProgressListener progressListener) {
-        final MediaType mediaType = MediaType.parse(ContentType.getContentTypeFromExtension(file.getName(), ContentType.IMAGE_PREFIX));//todo 如何选择一个合适的默认值。
-        MultipartBody.Builder builder = new MultipartBody.Builder()
-                .setType(MultipartBody.FORM)
-                .addFormDataPart(NET_KEY_MD_UPPER, fileMD5)
-                .addFormDataPart(NET_KEY_TOKEN, token)
-                .addFormDataPart(NET_KEY_ACCESS, accessVerify)
-                .addFormDataPart(NET_KEY_MODE, mode)
-                .addFormDataPart(NET_KEY_FILE, file.getName(), RequestBody.create(mediaType, file));
-        if (progressListener != null) {
-            builder.addPart(new CountingFileRequestBody(file, percent -> onProgressCallback(progressListener, percent)));
-        }
-        RequestBody requestBody = builder.build();
-        Request request = new Request.Builder()
-                .url(Constants.API_UPLOAD)
-                .post(requestBody)
-                .build();
-        try (okhttp3.Response response = mClient.newCall(request).execute()) {
-            if (response.isSuccessful() && response.body() != null) {
-                Response<Response.UploadBean> uploadInfo = mGson.fromJson(response.body().string(), new TypeToken<Response<Response.UploadBean>>() {
-                }.getType());
-                //Succeed to upload the file.
-                if (uploadInfo.getRet() == RET_SUCCESS) {
-                    onSuccessCallback(callback, uploadInfo.getData().getUrl(), false);
-                    return;
-                }
+     * @param group Hashed files.
+     */
+    private void preUploadGroup(@NonNull final List<HashedFile> group) {
+        if (group.size() == 1) {
+            runStep(group.get(0).task, () -> upload(group.get(0).task, group.get(0).fileMD5));
+            return;
+        }
+        final UploadOptions first = group.get(0).task.uploadOptions;
+        //The group shares the token and the check,each file of it is charged for their whole time.
+        final List<TaskRecorder> recorders = new ArrayList<>(group.size());
+        for (HashedFile hashedFile : group) {
+            TaskRecorder recorder = mMetrics.recorderOf(hashedFile.task);
+            recorder.dequeued(TaskRecorder.PHASE_NETWORK_WAIT);
+            recorders.add(recorder);
+        }
+        long start = TaskRecorder.now();
+        final String token = getToken(first.getContext(), first.getUid(), first.getApiKey());
+        endPhase(recorders, TaskRecorder.PHASE_TOKEN, start);
+        if (token == null) {
+            for (HashedFile hashedFile : group) {
+                onFailureCallback(hashedFile.task, new NoTokenException());
+            }
+            return;
+        }
+        Set<String> md5s = new LinkedHashSet<>();
+        for (HashedFile hashedFile : group) {
+            md5s.add(hashedFile.fileMD5);
+        }
+        Map<String, String> urls;
+        start = TaskRecorder.now();
+        try {
+            urls = getEngine(first.getContext()).preUploadBatch(token, md5s, first.getAccessVerify(), first.getMode());
+        } catch (IOException | UploadFailedException e) {
+            endPhase(recorders, TaskRecorder.PHASE_PRE_UPLOAD, start);
+            //Fall back to checking the files one by one.
+            for (int i = 0; i < group.size(); i++) {
+                final HashedFile hashedFile = group.get(i);
+                recorders.get(i).queued();
+                mScheduler.executeNetwork(first.getPriority(),
+                        () -> runStep(hashedFile.task, () -> upload(hashedFile.task, hashedFile.fileMD5)),
+                        () -> onFailureCallback(hashedFile.task, new TaskRejectedException()));
             }
-        } catch (IOException e) {
-            e.printStackTrace();
-            onFailureCallback(callback, e);
             return;
         }
-        onFailureCallback(callback, new UploadFailedException());
+        endPhase(recorders, TaskRecorder.PHASE_PRE_UPLOAD, start);
+        for (int i = 0; i < group.size(); i++) {
+            final HashedFile hashedFile = group.get(i);
+            final UploadTask task = hashedFile.task;
+            final UploadOptions uploadOptions = task.uploadOptions;
+            final TaskRecorder recorder = recorders.get(i);
+            final String url = urls.get(hashedFile.fileMD5);
+            if (url != null) {
+                mResultCache.put(hashedFile.fileMD5, uploadOptions.getAccessVerify(), uploadOptions.getMode(), url);
+                runStep(task, () -> {
+                    onSuccessCallback(task, hashedFile.fileMD5, url, UploadMetrics.CACHE_SERVER);
+                    onProgressCompleted(uploadOptions);
+                });
+            } else {
+                recorder.queued();
+                mScheduler.executeNetwork(uploadOptions.getPriority(), () -> {
+                            recorder.dequeued(TaskRecorder.PHASE_NETWORK_WAIT);
+                            runStep(task, () -> transfer(task, hashedFile.fileMD5, token,
+                                    new Retrier(uploadOptions.getRetryPolicy())));
+                        },
+                        () -> onFailureCallback(task, new TaskRejectedException()));
+            }
+        }
+    }
+
+    private static void endPhase(@NonNull List<TaskRecorder> recorders, int phase, long start) {
+        for (TaskRecorder recorder : recorders) {
+            recorder.end(phase, start);
+        }
+    }
+
+    /**
+     * Upload the file which the backend server doesn't have yet,retrying under the retry policy of the task.
+     * A retried chunked upload resumes from the acknowledged chunks.
+     *
+     * @param task    The upload task.
+     * @param fileMD5 The MD5 hash of the file.
+     * @param token   verification token.
+     * @param retrier Retrier of the task.
+     */
+    private void transfer(@NonNull final UploadTask task, @NonNull final String fileMD5, @NonNull final String token,
+                          @NonNull final Retrier retrier) {
+        final UploadOptions uploadOptions = task.uploadOptions;
+        final File file = uploadOptions.getFile();
+        final long chunkSize = uploadOptions.getChunkSize();
+        final String accessVerify = uploadOptions.getAccessVerify();
+        final String mode = uploadOptions.getMode();
+        final RetryPolicy retryPolicy = uploadOptions.getRetryPolicy();
+        final TaskRecorder recorder = mMetrics.recorderOf(task);
+        final TransferListener transferListener = recorder.with(newProgressDispatcher(uploadOptions));
+        final UploadJournal.Entry journalEntry = journalEntryOf(uploadOptions.getFileUploadResultCallback());
+        if (journalEntry != null) {
+            mJournal.setState(journalEntry, UploadJournal.STATE_UPLOADING);
+        }
+        final TaskRecorder previous = mMetrics.bind(recorder);
+        final long start = TaskRecorder.now();
+        recorder.setTransferring(true);
+        final UploadEngine engine = getEngine(uploadOptions.getContext());
+        //Told once for all the attempts.
+        final String mimeType = engine.getMimeType(file);
+        final String url;
+        try {
+            url = retrier.call(() -> engine.transfer(file, fileMD5, mimeType, token, accessVerify, mode, chunkSize,
+                    uploadOptions.getChunkConcurrency(), retryPolicy, uploadOptions.getBandwidthLimiter(), transferListener));
+        } catch (IOException | UploadFailedException e) {
+            endTransfer(recorder, start, retrier, previous);
+            onFailureCallback(task, e);
+            return;
+        }
+        endTransfer(recorder, start, retrier, previous);
+        mResultCache.put(fileMD5, accessVerify, mode, url);
+        onSuccessCallback(task, fileMD5, url, UploadMetrics.CACHE_NONE);
+    }
+
+    private void endTransfer(@NonNull TaskRecorder recorder, long start, @NonNull Retrier retrier, @Nullable TaskRecorder previous) {
+        recorder.end(TaskRecorder.PHASE_TRANSFER, start);
+        recorder.setTransferring(false);
+        recorder.setRetries(retrier.getRetries());
+        mMetrics.unbind(previous);
     }
 
     /**
@@ -250,36 +635,31 @@ public class FilePortal {
      * @return A token gotten from local or backend server.
      */
     private String getToken(final Context context, final String uid, final String apiKey) {
-        String validToken = getTokenFromLocal(context, uid);
-        if (validToken != null) return validToken;
-        //No valid token found,then fetch a token from backend server.
-        String packageName = context.getPackageName();
-        String sourceParams = uid + apiKey + packageName;
-        String signature = Utils.md5(sourceParams);
-        RequestBody requestBody = new FormBody.Builder()
-                .add(NET_KEY_UID, uid)
-                .add(NET_KEY_SIGNATURE, signature)
-                .add(NET_KEY_PKG, packageName)
-                .build();
-        Request request = new Request.Builder()
-                .url(Constants.API_TOKEN)
-                .post(requestBody)
-                .build();
-        try (okhttp3.Response response = mClient.newCall(request).execute()) {
-            if (response.isSuccessful() && response.body() != null) {
-                Response<Response.TokenBean> tokenResponse = mGson.fromJson(response.body().string(), new TypeToken<Response<Response.TokenBean>>() {//todo 为什么判空无效。
-                }.getType());
-                if (tokenResponse.getRet() == RET_SUCCESS) {
-                    //Cache the token info
-                    tokenResponse.getData().setUid(uid);
-                    getSP(context).edit().putString(Constants.PREFS_TOKEN_JSON, mGson.toJson(tokenResponse.getData())).apply();
-                    return tokenResponse.getData().getToken();
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return null;
+        return getEngine(context).getToken(uid, apiKey);
+    }
+
+    /**
+     * Connect to the backend server in the background ahead of the first upload,e.g. when the upload page is opened.
+     */
+    public void prewarm() {
+        mScheduler.executeNetwork(PriorityOption.PRIORITY_BACKGROUND, this::warmConnections, null);
+    }
+
+    /**
+     * Connect to the backend server and get the token of the user in the background ahead of the first upload.
+     *
+     * @param uid    The unique uid of current user.
+     * @param apiKey Api key registered by developer for Marvel File System.
+     */
+    public void prewarm(@NonNull final Context context, @NonNull final String uid, @NonNull final String apiKey) {
+        mScheduler.executeNetwork(PriorityOption.PRIORITY_BACKGROUND, () -> {
+            warmConnections();
+            getToken(context, uid, apiKey);
+        }, null);
+    }
+
+    private void warmConnections() {
+        new ConnectionWarmer(getClient()).warmBackend();
     }
 
     /**
@@ -291,89 +671,460 @@ public class FilePortal {
     public void getToken(@NonNull final Context context, @NonNull final String uid, @NonNull final String apiKey, @NonNull final TokenResultCallback callback) {
         Runnable runnable = () -> {
             String token = getToken(context, uid, apiKey);
-            mHandler.post(() -> callback.onTokenResult(token));
+            mCallbackExecutor.execute(() -> callback.onTokenResult(token));
         };
-        mExecutor.execute(runnable);
+        mScheduler.executeNetwork(PriorityOption.PRIORITY_USER_VISIBLE, runnable, () -> mCallbackExecutor.execute(() -> callback.onTokenResult(null)));
     }
 
     /**
-     * Get cached token form shared preference.
+     * Run a step of the task on the current thread,which its handle may abort,unless the task is paused or cancelled.
+     * A step which throws fails the task,rather than leaving it and its callback hanging.
      *
-     * @param context current context。
-     * @param uid     The unique uid of current user.
-     * @return Provide cached token if not null and not outdated.
-     */
-    private String getTokenFromLocal(@NonNull final Context context, String uid) {
-        //Get the cached token info.
-        String tokenJson = getSP(context).getString(Constants.PREFS_TOKEN_JSON, null);
-        if (tokenJson == null) return null;//No cached token info found.
-        Response.TokenBean tokenInfo = mGson.fromJson(tokenJson, Response.TokenBean.class);
+     * @param task The upload task.
+     * @param step Hashing,or checking and transferring.
+     */
+    private void runStep(@NonNull UploadTask task, @NonNull Runnable step) {
+        final UploadFuture future = task.future;
+        if (!future.enter(mMetrics.recorderOf(task))) {
+            //Parked if paused,failed if cancelled.
+            onFailureCallback(task, new CancellationException());
+            return;
+        }
         try {
-            long expireTimestamp = Utils.dateStr2Timestamp(tokenInfo.getExpireTime());
-            //Cached token is out of date.
-            if (System.currentTimeMillis() > expireTimestamp) return null;
-        } catch (InvalidTimeException ignored) {
-            //Failed to get expire time,abandon the token anyway.
-            return null;
+            step.run();
+        } catch (RuntimeException e) {
+            //Completed already,e.g. its callback threw on the calling thread.
+            if (future.isDone() && !future.isCancelled()) throw e;
+            onFailureCallback(task, e);
+        } finally {
+            future.exit();
         }
-        //The cached token belongs to another user.
-        if (!TextUtils.equals(tokenInfo.getUid(), uid)) {
-            return null;
+    }
+
+    /**
+     * Hash the file and put it in the index.If another task is hashing the same file,wait for its hash instead,
+     * so the file is read once while other files are hashed in parallel.
+     *
+     * @param file         The file.
+     * @param length       The length of the file before it is hashed.
+     * @param lastModified The last modified time of the file before it is hashed.
+     * @param hashIndex    The index of file hashes.
+     * @param recorder     The recorder of the task.
+     * @return The MD5 hash of the file,null if it couldn't be read or the task was aborted.
+     */
+    @Nullable
+    private String hashShared(@NonNull final File file, final long length, final long lastModified,
+                              @NonNull final FileHashIndex hashIndex, @NonNull final TaskRecorder recorder) {
+        final String path = file.getAbsolutePath();
+        while (true) {
+            final FutureTask<String> hashing = new FutureTask<>(() -> {
+                //Hashed by a task which finished just before.
+                String fileMD5 = hashIndex.get(file);
+                recorder.setHashIndexHit(fileMD5 != null);
+                if (fileMD5 == null) {
+                    fileMD5 = Utils.md5(file);//todo 是否会遇到OOM
+                    if (fileMD5 != null) hashIndex.put(file, length, lastModified, fileMD5);
+                }
+                return fileMD5;
+            });
+            FutureTask<String> running = mHashing.putIfAbsent(path, hashing);
+            if (running == null) {
+                try {
+                    hashing.run();
+                } finally {
+                    mHashing.remove(path, hashing);
+                }
+                running = hashing;
+            }
+            final String fileMD5;
+            try {
+                fileMD5 = running.get();
+            } catch (InterruptedException e) {
+                //The task is paused or cancelled.
+                return null;
+            } catch (ExecutionException e) {
+                return null;
+            }
+            if (running == hashing) return fileMD5;
+            if (fileMD5 != null) {
+                recorder.setHashIndexHit(true);
+                return fileMD5;
+            }
+            //The task hashing it was aborted,e.g. paused,hash it again.
         }
-        return tokenInfo.getToken();
     }
 
     /**
-     * Post success info to main thread when the file is uploaded successfully.
+     * Complete the future and post success info to the callback executor when the file is uploaded successfully.
      *
-     * @param callback The callback of file uploading result.
+     * @param task     The upload task.
+     * @param fileMD5  The MD5 hash of the file.
      * @param url      The download url of the uploaded file.
-     * @param isCached if the file cached by the backend server.
+     * @param cacheHit {@link UploadMetrics#CACHE_NONE},{@link UploadMetrics#CACHE_LOCAL},{@link UploadMetrics#CACHE_SERVER}
+     *                 or {@link UploadMetrics#CACHE_SHARED}.
      */
-    private void onSuccessCallback(@Nullable FileUploadResultCallback callback, String url, boolean isCached) {
-        if (callback != null) {
-            mHandler.post(() -> callback.onSuccess(url, isCached));
+    private void onSuccessCallback(@NonNull UploadTask task, String fileMD5, String url, int cacheHit) {
+        final UploadOptions uploadOptions = task.uploadOptions;
+        final FileUploadResultCallback callback = uploadOptions.getFileUploadResultCallback();
+        final UploadJournal.Entry journalEntry = journalEntryOf(callback);
+        if (journalEntry != null) {
+            mJournal.remove(journalEntry);
+            resetResumeBackoff();
+        }
+        mMetrics.finish(task, true, null, cacheHit);
+        final boolean isCached = cacheHit != UploadMetrics.CACHE_NONE;
+        task.future.succeed(new UploadResult(url, fileMD5, isCached));
+        try {
+            if (callback != null) {
+                callbackExecutorOf(uploadOptions).execute(() -> callback.onSuccess(url, isCached));
+            }
+        } finally {
+            //Even if the callback threw on this thread.
+            for (final UploadTask waiting : mInFlight.complete(task)) {
+                runStep(waiting, () -> {
+                    onSuccessCallback(waiting, fileMD5, url, UploadMetrics.CACHE_SHARED);
+                    onProgressCompleted(waiting.uploadOptions);
+                });
+            }
         }
     }
 
     /**
-     * Post failure info to main thread when the file failed to upload.
+     * Complete the future and post failure info to the callback executor when the file failed to upload.
      *
-     * @param callback The callback of file uploading result.
-     * @param e        The exception for which file uploaded failed.
+     * @param task The upload task.
+     * @param e    The exception for which file uploaded failed.
      */
-    private void onFailureCallback(@Nullable FileUploadResultCallback callback, Exception e) {
-        if (callback != null) {
-            mHandler.post(() -> callback.onFailure(e));
+    private void onFailureCallback(@NonNull UploadTask task, Exception e) {
+        final UploadOptions uploadOptions = task.uploadOptions;
+        //Refused for its content,the tasks waiting for it would be refused the same way.
+        //A step which threw,e.g. in a listener of the app,says nothing of the content.
+        final boolean refused = !task.future.isStopped() && !(e instanceof RuntimeException) && !mayRetry(uploadOptions, e);
+        if (!refused) {
+            //The tasks waiting for it go on with the next one.
+            final UploadTask leader = mInFlight.handOver(task);
+            if (leader != null) {
+                mMetrics.recorderOf(leader).queued();
+                submit(leader, null, false);
+            }
+        }
+        if (task.future.isCancelled()) {
+            //Whatever the aborted step failed with.
+            e = new CancellationException();
+        } else if (task.future.park(() -> {
+            mMetrics.recorderOf(task).queued();
+            submit(task, null, false);
+        })) {
+            return;
+        }
+        final Exception exception = e;
+        final FileUploadResultCallback callback = uploadOptions.getFileUploadResultCallback();
+        final UploadJournal.Entry journalEntry = journalEntryOf(callback);
+        if (journalEntry != null) {
+            //Keep the durable task if it may succeed later,e.g. on another network.
+            if (mayRetry(uploadOptions, exception)) {
+                mJournal.release(journalEntry);
+                mConstraintMonitor.watch();
+                scheduleDelayedResume();
+            } else {
+                mJournal.remove(journalEntry);
+            }
+        }
+        mMetrics.finish(task, false, exception, UploadMetrics.CACHE_NONE);
+        task.future.fail(exception);
+        try {
+            if (callback != null) {
+                callbackExecutorOf(uploadOptions).execute(() -> callback.onFailure(exception));
+            }
+        } finally {
+            if (refused) {
+                for (final UploadTask waiting : mInFlight.complete(task)) {
+                    runStep(waiting, () -> onFailureCallback(waiting, exception));
+                }
+            }
         }
     }
 
     /**
-     * Post the progress to main thread when uploading progress changed.
+     * @return Whether the task may succeed if run again,e.g. later or on another network.
+     */
+    private static boolean mayRetry(@NonNull UploadOptions uploadOptions, @NonNull Exception e) {
+        return e instanceof NoTokenException || e instanceof TaskRejectedException || uploadOptions.getRetryPolicy().isRetryable(e);
+    }
+
+    /**
+     * @return The executor of the callback and progress listener of the task.
+     */
+    @NonNull
+    private Executor callbackExecutorOf(@NonNull UploadOptions uploadOptions) {
+        final Executor executor = uploadOptions.getCallbackExecutor();
+        return executor == null ? mCallbackExecutor : executor;
+    }
+
+    /**
+     * Create the dispatcher posting the uploading progress of a task to its callback executor.
      *
-     * @param progressListener The listener of file uploading progress.
-     * @param progress         Current progress of the uploading task.
+     * @param uploadOptions Options of the upload task.
+     * @return The dispatcher,null if there is no listener.
      */
-    private void onProgressCallback(@Nullable ProgressListener progressListener, int progress) {
-        if (progressListener != null) {
-            mHandler.post(() -> progressListener.transferred(progress));
+    @Nullable
+    private ProgressDispatcher newProgressDispatcher(@NonNull UploadOptions uploadOptions) {
+        final ProgressListener progressListener = uploadOptions.getProgressListener();
+        return progressListener == null ? null : new ProgressDispatcher(callbackExecutorOf(uploadOptions), progressListener);
+    }
+
+    /**
+     * Post the complete progress to main thread when the file needs no uploading.
+     *
+     * @param uploadOptions Options of the upload task.
+     */
+    private void onProgressCompleted(@NonNull UploadOptions uploadOptions) {
+        ProgressDispatcher dispatcher = newProgressDispatcher(uploadOptions);
+        if (dispatcher != null) {
+            long length = uploadOptions.getFile().length();
+            dispatcher.onTransferred(length, length);
         }
     }
 
     /**
-     * Shut down the executor.
+     * Get the scheduler running the upload tasks,to tune its concurrency and queue or to inspect the queue depth.
+     *
+     * @return The scheduler.
+     */
+    public UploadScheduler getScheduler() {
+        return mScheduler;
+    }
+
+    /**
+     * Get the cache of uploaded files,to tune it or to invalidate a url the backend server no longer serves.
+     *
+     * @return The cache of uploaded files.
+     */
+    public UploadResultCache getResultCache() {
+        return mResultCache;
+    }
+
+    /**
+     * Get the limiter shared by all uploads,to cap their total rate so the app's own traffic is not starved.
+     * There is no cap by default.
+     *
+     * @return The global bandwidth limiter.
+     */
+    public BandwidthLimiter getBandwidthLimiter() {
+        return mBandwidthLimiter;
+    }
+
+    /**
+     * Listen to the metrics of each upload task as it finishes,e.g. to export them to the app's telemetry.
+     *
+     * @param listener The listener of metrics,null to stop listening.
+     */
+    public void setMetricsListener(@Nullable MetricsListener listener) {
+        mMetrics.setListener(listener);
+    }
+
+    /**
+     * Get the state of the upload tasks now:queue depth,uploads in flight and the bytes they have left to send.
+     *
+     * @return The snapshot of metrics.
+     */
+    public MetricsSnapshot getMetricsSnapshot() {
+        return mMetrics.snapshot(mScheduler);
+    }
+
+    /**
+     * Shut down the scheduler.The durable tasks being written to the journal and the pending hashes are still written.
      */
     public void shutDownAllTasks() {
-        if (!mExecutor.isShutdown())
-            mExecutor.shutdown();
+        if (!mScheduler.isShutdown())
+            mScheduler.shutdown();
+        shutDownIo();
     }
 
     /**
-     * Shut down the executor.
+     * Shut down the scheduler.The durable tasks being written to the journal and the pending hashes are still written.
      */
     public void shutDownAllTasksNow() {
-        if (!mExecutor.isShutdown())
-            mExecutor.shutdownNow();
+        if (!mScheduler.isShutdown())
+            mScheduler.shutdownNow();
+        shutDownIo();
+    }
+
+    private void shutDownIo() {
+        final FileHashIndex hashIndex;
+        synchronized (this) {
+            hashIndex = mHashIndex;
+        }
+        //The delayed flush is dropped on shutdown.
+        if (hashIndex != null) executeIo(hashIndex::flush, null);
+        mIoExecutor.shutdown();
+    }
+
+    /**
+     * Get the index of file hashes,kept in the cache directory.
+     *
+     * @param context current context.
+     * @return The index of file hashes.
+     */
+    private synchronized FileHashIndex getHashIndex(@NonNull final Context context) {
+        if (mHashIndex == null)
+            mHashIndex = new FileHashIndex(new File(context.getCacheDir(), Constants.HASH_INDEX_FILE_NAME), getGson(), mIoExecutor);
+        return mHashIndex;
+    }
+
+    /**
+     * Get the engine running the protocol,whose tokens and chunked upload records are kept in shared preference.
+     * Tokens are renewed in the background on the network stage.
+     *
+     * @param context current context.
+     * @return The upload engine.
+     */
+    private synchronized UploadEngine getEngine(@NonNull final Context context) {
+        if (mEngine == null)
+            mEngine = new UploadEngine.Builder(getClient(), new SharedPreferencesStore(getSP(context)), context.getPackageName())
+                    .setGson(getGson())
+                    .setRefreshExecutor(runnable -> mScheduler.executeNetwork(PriorityOption.PRIORITY_BACKGROUND, runnable, null))
+                    .setBandwidthLimiter(mBandwidthLimiter)
+                    .setMimeTypeResolver(fileName -> ContentType.getContentTypeFromExtension(fileName, null))
+                    .build();
+        //The cached addresses may not be reachable on another network.
+        if (mDns != null) getConstraintMonitor(context).watch();
+        return mEngine;
+    }
+
+    /**
+     * Get the monitor of the network and the power state,which resumes the durable tasks and drops the cached
+     * addresses when they change.
+     *
+     * @param context current context.
+     * @return The constraint monitor.
+     */
+    private synchronized ConstraintMonitor getConstraintMonitor(@NonNull final Context context) {
+        if (mConstraintMonitor == null)
+            mConstraintMonitor = new ConstraintMonitor(context.getApplicationContext(), this::onConstraintsChanged, () -> {
+                final CachingDns dns = mDns;
+                if (dns != null) dns.clear();
+            });
+        return mConstraintMonitor;
+    }
+
+    private void onConstraintsChanged() {
+        synchronized (this) {
+            if (mJournal == null) return;
+        }
+        scheduleResume();
+    }
+
+    /**
+     * Get the journal of durable tasks,kept in the files directory.
+     * The unfinished tasks in it are resumed in the background as soon as it is created.
+     *
+     * @param context current context.
+     * @return The journal of durable tasks.
+     */
+    private synchronized UploadJournal getJournal(@NonNull final Context context) {
+        if (mJournal == null) {
+            mJournalContext = context.getApplicationContext();
+            mJournal = new UploadJournal(new File(mJournalContext.getFilesDir(), Constants.JOURNAL_FILE_NAME), getGson());
+            getConstraintMonitor(mJournalContext);
+            scheduleResume();
+        }
+        return mJournal;
+    }
+
+    private void scheduleResume() {
+        executeIo(this::resumeJournal, null);
+    }
+
+    /**
+     * Run the durable tasks again after a while,as a task kept after a failure may succeed later even if the network
+     * and the power state don't change.
+     */
+    private synchronized void scheduleDelayedResume() {
+        if (mDelayedResume != null && !mDelayedResume.isDone()) return;
+        try {
+            mDelayedResume = mIoExecutor.schedule(this::resumeJournal, mResumeBackoffMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return;
+        }
+        mResumeBackoffMs = Math.min(mResumeBackoffMs * 2, MAX_RESUME_BACKOFF_MS);
+    }
+
+    private synchronized void resetResumeBackoff() {
+        mResumeBackoffMs = RESUME_BACKOFF_MS;
+    }
+
+    private void executeIo(@NonNull Runnable runnable, @Nullable Runnable onRejected) {
+        try {
+            mIoExecutor.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            if (onRejected != null) onRejected.run();
+        }
+    }
+
+    /**
+     * Run the durable tasks which are not running,restoring the ones of the last process.
+     */
+    private void resumeJournal() {
+        final UploadJournal journal = getJournal(mJournalContext);
+        for (UploadJournal.Entry entry : journal.getEntries()) {
+            synchronized (entry) {
+                if (entry.uploadOptions == null) {
+                    entry.uploadOptions = restoreUploadOptions(entry);
+                }
+            }
+            runDurable(journal, entry);
+        }
+    }
+
+    /**
+     * Run the durable task now if its constraints are met,otherwise when they may have changed.
+     */
+    private void runDurable(@NonNull UploadJournal journal, @NonNull UploadJournal.Entry entry) {
+        if (!mConstraintMonitor.isSatisfied(entry.constraints)) {
+            mConstraintMonitor.watch();
+            return;
+        }
+        if (journal.claim(entry)) {
+            //The first run completes the future returned by upload,the later ones have their own.
+            final UploadFuture future = entry.future;
+            entry.future = null;
+            submit(new UploadTask(entry.uploadOptions, future == null ? new UploadFuture() : future), null, false);
+        }
+    }
+
+    /**
+     * Options of a durable task of the last process,whose result goes to the {@link RecoveredUploadCallback}.
+     */
+    private UploadOptions restoreUploadOptions(@NonNull UploadJournal.Entry entry) {
+        final File file = new File(entry.path);
+        final RecoveredUploadCallback recoveredCallback = mRecoveredCallback;
+        FileUploadResultCallback callback = recoveredCallback == null ? null : new FileUploadResultCallback() {
+            @Override
+            public void onSuccess(String url, boolean isCache) {
+                recoveredCallback.onSuccess(file, url, isCache);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                recoveredCallback.onFailure(file, e);
+            }
+        };
+        return new UploadOptions.Builder(mJournalContext, entry.uid, entry.apiKey, file)
+                .setAccessVerify(entry.accessVerify)
+                .setMode(entry.mode)
+                .setChunkSize(Math.max(0, entry.chunkSize))
+                .setChunkConcurrency(Math.max(1, entry.chunkConcurrency))
+                .setPriority(entry.priority)
+                .setDurable(true)
+                .setConstraints(entry.constraints)
+                .setFileUploadResultCallback(new JournaledCallback(entry, callback))
+                .build();
+    }
+
+    @Nullable
+    private static UploadJournal.Entry journalEntryOf(@Nullable FileUploadResultCallback callback) {
+        return callback instanceof JournaledCallback ? ((JournaledCallback) callback).entry : null;
     }
 
     /**
@@ -387,4 +1138,40 @@ public class FilePortal {
             mSP = context.getSharedPreferences(Constants.SHARED_PREFS_NAME, Context.MODE_PRIVATE);
         return mSP;
     }
+
+    /**
+     * The callback of a durable task,marking the task in the journal.
+     */
+    private static class JournaledCallback implements FileUploadResultCallback {
+        final UploadJournal.Entry entry;
+        final FileUploadResultCallback delegate;
+
+        JournaledCallback(UploadJournal.Entry entry, @Nullable FileUploadResultCallback delegate) {
+            this.entry = entry;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onSuccess(String url, boolean isCache) {
+            if (delegate != null) delegate.onSuccess(url, isCache);
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            if (delegate != null) delegate.onFailure(e);
+        }
+    }
+
+    /**
+     * A file of a batch which has been hashed.
+     */
+    static class HashedFile {
+        final UploadTask task;
+        final String fileMD5;
+
+        HashedFile(UploadTask task, String fileMD5) {
+            this.task = task;
+            this.fileMD5 = fileMD5;
+        }
+    }
 }
@@ -0,0 +1,121 @@
+package com.dcz.fileportal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uploads in flight keyed by their content,so that a task uploading the same content as a running one waits for it
+ * and shares its url,instead of checking and uploading the same bytes again.
+ * <p>
+ * The first task of a key leads,the later ones wait behind it.When the leader succeeds the waiting tasks are
+ * completed with its url,and when the backend server refuses its content they fail the same way.When it fails
+ * otherwise,e.g. it was paused or cancelled,the next task leads instead.A waiting task may leave,e.g. when it is
+ * cancelled.
+ *
+ * @param <T> The task.
+ */
+class InFlightUploads<T> {
+
+    //The leader of each key comes first.
+    private final Map<String, List<T>> mTasks = new HashMap<>();
+    private final Map<T, String> mKeys = new HashMap<>();
+
+    /**
+     * @return The key of the content,which the url of a file depends on.
+     */
+    @NonNull
+    static String keyOf(@NonNull String md5, @Nullable String accessVerify, @Nullable String mode) {
+        return md5 + '/' + accessVerify + '/' + mode;
+    }
+
+    /**
+     * Add the task to the uploads of its content.
+     *
+     * @param key  The key of the content of the task.
+     * @param task The task.
+     * @return Whether the task leads,i.e. it should upload now,false if it waits for the leader.
+     */
+    synchronized boolean join(@NonNull String key, @NonNull T task) {
+        List<T> tasks = mTasks.get(key);
+        if (tasks == null) {
+            tasks = new ArrayList<>(1);
+            mTasks.put(key, tasks);
+        } else if (tasks.get(0).equals(task)) {
+            //Handed over to it.
+            return true;
+        }
+        if (!tasks.contains(task)) {
+            tasks.add(task);
+            mKeys.put(task, key);
+        }
+        return tasks.get(0).equals(task);
+    }
+
+    /**
+     * The task is done,the tasks waiting for it are done with its result,its url or the refusal of its content.
+     *
+     * @return The tasks which waited for it,empty unless it led.
+     */
+    @NonNull
+    synchronized List<T> complete(@NonNull T task) {
+        String key = mKeys.remove(task);
+        if (key == null) return Collections.emptyList();
+        List<T> tasks = mTasks.get(key);
+        if (!tasks.get(0).equals(task)) {
+            tasks.remove(task);
+            return Collections.emptyList();
+        }
+        mTasks.remove(key);
+        for (int i = 1; i < tasks.size(); i++) {
+            mKeys.remove(tasks.get(i));
+        }
+        return tasks.subList(1, tasks.size());
+    }
+
+    /**
+     * The task failed,the next task waiting for it leads instead.
+     *
+     * @return The task leading now,which should upload,null if the task didn't lead or none waited for it.
+     */
+    @Nullable
+    synchronized T handOver(@NonNull T task) {
+        String key = mKeys.remove(task);
+        if (key == null) return null;
+        List<T> tasks = mTasks.get(key);
+        boolean led = tasks.get(0).equals(task);
+        tasks.remove(task);
+        if (tasks.isEmpty()) {
+            mTasks.remove(key);
+            return null;
+        }
+        return led ? tasks.get(0) : null;
+    }
+
+    /**
+     * The task stops waiting,e.g. it was cancelled.
+     *
+     * @return Whether it left,false if it leads or it is done with the leader already.
+     */
+    synchronized boolean leave(@NonNull T task) {
+        String key = mKeys.get(task);
+        if (key == null) return false;
+        List<T> tasks = mTasks.get(key);
+        if (tasks.get(0).equals(task)) return false;
+        mKeys.remove(task);
+        tasks.remove(task);
+        return true;
+    }
+
+    /**
+     * @return Tasks in flight,leading or waiting.
+     */
+    synchronized int size() {
+        return mKeys.size();
+    }
+}
@@ -0,0 +1,142 @@
+package com.dcz.fileportal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dcz.fileportal.metrics.MetricsListener;
+import com.dcz.fileportal.metrics.MetricsSnapshot;
+import com.dcz.fileportal.metrics.UploadMetrics;
+import com.dcz.fileportal.scheduler.UploadScheduler;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.EventListener;
+
+/**
+ * Keep the {@link TaskRecorder} of each upload task in flight,and report the tasks as they finish.
+ * <p>
+ * The work of a task is bound to its recorder on the thread running it,see {@link #bind(TaskRecorder)}.
+ * OkHttp asks for the {@link EventListener} of a call on the thread creating the call,so the calls of the task
+ * are recorded,including the chunks of a chunked upload which are sent on the threads of the dispatcher.
+ */
+class MetricsCollector implements EventListener.Factory {
+
+    private final Map<UploadTask, TaskRecorder> mRecorders = new ConcurrentHashMap<>();
+    private final ThreadLocal<TaskRecorder> mBound = new ThreadLocal<>();
+    private final AtomicLong mSucceeded = new AtomicLong();
+    private final AtomicLong mFailed = new AtomicLong();
+    private final AtomicLong mBytesSent = new AtomicLong();
+    private volatile MetricsListener mListener;
+
+    void setListener(@Nullable MetricsListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Get the recorder of the task,which starts recording on first use,i.e. when the task is submitted.
+     *
+     * @return The recorder of the task.
+     */
+    @NonNull
+    TaskRecorder recorderOf(@NonNull UploadTask task) {
+        TaskRecorder recorder = mRecorders.get(task);
+        if (recorder != null) return recorder;
+        recorder = new TaskRecorder(task.uploadOptions.getFile());
+        TaskRecorder existing = mRecorders.putIfAbsent(task, recorder);
+        return existing == null ? recorder : existing;
+    }
+
+    /**
+     * Record the calls made on the current thread for the task,until {@link #unbind(TaskRecorder)}.
+     *
+     * @param recorder The recorder of the task,null to record nothing.
+     * @return The recorder bound before,to be passed to {@link #unbind(TaskRecorder)}.
+     */
+    @Nullable
+    TaskRecorder bind(@Nullable TaskRecorder recorder) {
+        TaskRecorder previous = mBound.get();
+        mBound.set(recorder);
+        return previous;
+    }
+
+    void unbind(@Nullable TaskRecorder previous) {
+        if (previous == null) {
+            mBound.remove();
+        } else {
+            mBound.set(previous);
+        }
+    }
+
+    @Override
+    public EventListener create(okhttp3.Call call) {
+        TaskRecorder recorder = mBound.get();
+        return recorder == null ? EventListener.NONE : recorder;
+    }
+
+    /**
+     * Record the calls of the tasks made with a client provided by the app,whose own listener is told of them as well.
+     *
+     * @param appFactory The event listener factory of the app's client.
+     * @return The factory to install on the derived client.
+     */
+    @NonNull
+    EventListener.Factory forwardingTo(@NonNull final EventListener.Factory appFactory) {
+        return call -> {
+            EventListener listener = appFactory.create(call);
+            EventListener recorder = create(call);
+            if (recorder == EventListener.NONE) return listener;
+            return listener == EventListener.NONE ? recorder : new PairedEventListener(recorder, listener);
+        };
+    }
+
+    /**
+     * The task is finished,report it to the listener on the current thread.
+     *
+     * @param success   Whether the task succeeded.
+     * @param exception The exception for which the task failed,null if it succeeded.
+     * @param cacheHit  {@link UploadMetrics#CACHE_NONE},{@link UploadMetrics#CACHE_LOCAL},
+     *                  {@link UploadMetrics#CACHE_SERVER} or {@link UploadMetrics#CACHE_SHARED}.
+     */
+    void finish(@NonNull UploadTask task, boolean success, @Nullable Exception exception, int cacheHit) {
+        TaskRecorder recorder = mRecorders.remove(task);
+        (success ? mSucceeded : mFailed).incrementAndGet();
+        if (recorder == null) {
+            //Failed before it was submitted.
+            recorder = new TaskRecorder(task.uploadOptions.getFile());
+        }
+        mBytesSent.addAndGet(recorder.getBytesSent());
+        MetricsListener listener = mListener;
+        if (listener != null) {
+            listener.onTaskFinished(recorder.build(success, exception, cacheHit));
+        }
+    }
+
+    /**
+     * @param scheduler The scheduler running the tasks.
+     * @return The state of the tasks now.
+     */
+    @NonNull
+    MetricsSnapshot snapshot(@NonNull UploadScheduler scheduler) {
+        int uploads = 0;
+        long inFlightBytes = 0;
+        for (TaskRecorder recorder : mRecorders.values()) {
+            if (recorder.isTransferring()) {
+                uploads++;
+                inFlightBytes += recorder.getInFlightBytes();
+            }
+        }
+        return new MetricsSnapshot.Builder()
+                .setHashQueueDepth(scheduler.getHashQueueDepth())
+                .setNetworkQueueDepth(scheduler.getNetworkQueueDepth())
+                .setActiveCount(scheduler.getActiveCount())
+                .setTasksInFlight(mRecorders.size())
+                .setUploadsInFlight(uploads)
+                .setInFlightBytes(inFlightBytes)
+                .setSucceededTasks(mSucceeded.get())
+                .setFailedTasks(mFailed.get())
+                .setBytesSent(mBytesSent.get())
+                .build();
+    }
+}
@@ -0,0 +1,152 @@
+package com.dcz.fileportal;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Tell the events of a call to two listeners,e.g. the recorder of the task and the listener of the app's client.
+ */
+class PairedEventListener extends EventListener {
+
+    private final EventListener mFirst;
+    private final EventListener mSecond;
+
+    PairedEventListener(@NonNull EventListener first, @NonNull EventListener second) {
+        mFirst = first;
+        mSecond = second;
+    }
+
+    @Override
+    public void callStart(Call call) {
+        mFirst.callStart(call);
+        mSecond.callStart(call);
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        mFirst.dnsStart(call, domainName);
+        mSecond.dnsStart(call, domainName);
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        mFirst.dnsEnd(call, domainName, inetAddressList);
+        mSecond.dnsEnd(call, domainName, inetAddressList);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        mFirst.connectStart(call, inetSocketAddress, proxy);
+        mSecond.connectStart(call, inetSocketAddress, proxy);
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        mFirst.secureConnectStart(call);
+        mSecond.secureConnectStart(call);
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        mFirst.secureConnectEnd(call, handshake);
+        mSecond.secureConnectEnd(call, handshake);
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        mFirst.connectEnd(call, inetSocketAddress, proxy, protocol);
+        mSecond.connectEnd(call, inetSocketAddress, proxy, protocol);
+    }
+
+    @Override
+    public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol,
+                              IOException ioe) {
+        mFirst.connectFailed(call, inetSocketAddress, proxy, protocol, ioe);
+        mSecond.connectFailed(call, inetSocketAddress, proxy, protocol, ioe);
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        mFirst.connectionAcquired(call, connection);
+        mSecond.connectionAcquired(call, connection);
+    }
+
+    @Override
+    public void connectionReleased(Call call, Connection connection) {
+        mFirst.connectionReleased(call, connection);
+        mSecond.connectionReleased(call, connection);
+    }
+
+    @Override
+    public void requestHeadersStart(Call call) {
+        mFirst.requestHeadersStart(call);
+        mSecond.requestHeadersStart(call);
+    }
+
+    @Override
+    public void requestHeadersEnd(Call call, Request request) {
+        mFirst.requestHeadersEnd(call, request);
+        mSecond.requestHeadersEnd(call, request);
+    }
+
+    @Override
+    public void requestBodyStart(Call call) {
+        mFirst.requestBodyStart(call);
+        mSecond.requestBodyStart(call);
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        mFirst.requestBodyEnd(call, byteCount);
+        mSecond.requestBodyEnd(call, byteCount);
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        mFirst.responseHeadersStart(call);
+        mSecond.responseHeadersStart(call);
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        mFirst.responseHeadersEnd(call, response);
+        mSecond.responseHeadersEnd(call, response);
+    }
+
+    @Override
+    public void responseBodyStart(Call call) {
+        mFirst.responseBodyStart(call);
+        mSecond.responseBodyStart(call);
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        mFirst.responseBodyEnd(call, byteCount);
+        mSecond.responseBodyEnd(call, byteCount);
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        mFirst.callEnd(call);
+        mSecond.callEnd(call);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        mFirst.callFailed(call, ioe);
+        mSecond.callFailed(call, ioe);
+    }
+}
@@ -0,0 +1,36 @@
+package com.dcz.fileportal;
+
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dcz.fileportal.store.KeyValueStore;
+
+/**
+ * Keep the values of {@link UploadEngine} in shared preference.
+ */
+class SharedPreferencesStore implements KeyValueStore {
+
+    private final SharedPreferences mSP;
+
+    SharedPreferencesStore(@NonNull SharedPreferences sp) {
+        mSP = sp;
+    }
+
+    @Nullable
+    @Override
+    public String getString(@NonNull String key) {
+        return mSP.getString(key, null);
+    }
+
+    @Override
+    public void putString(@NonNull String key, @NonNull String value) {
+        mSP.edit().putString(key, value).apply();
+    }
+
+    @Override
+    public void remove(@NonNull String key) {
+        mSP.edit().remove(key).apply();
+    }
+}
@@ -0,0 +1,297 @@
+package com.dcz.fileportal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dcz.fileportal.metrics.UploadMetrics;
+import com.dcz.fileportal.network.TransferListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+
+/**
+ * Record the phases and the requests of one upload task.
+ * <p>
+ * It is the OkHttp {@link EventListener} of every call made for the task,and the calls of a chunked upload run
+ * concurrently on the threads of the dispatcher,so all of its methods are thread safe.
+ */
+class TaskRecorder extends EventListener implements TransferListener {
+
+    static final int PHASE_HASH_WAIT = 0;
+    static final int PHASE_HASH = 1;
+    static final int PHASE_NETWORK_WAIT = 2;
+    static final int PHASE_TOKEN = 3;
+    static final int PHASE_PRE_UPLOAD = 4;
+    static final int PHASE_TRANSFER = 5;
+    private static final int PHASE_COUNT = 6;
+
+    private final File mFile;
+    private final long mLength;
+    private final long mCreatedAt;
+    private final long[] mPhaseNanos = new long[PHASE_COUNT];
+    private long mQueuedAt;
+    private boolean mHashIndexHit;
+    private boolean mTransferring;
+    private long mTransferredBytes;
+    private long mBytesSent;
+    private int mRetries;
+    private int mRequestCount;
+    private int mConnectionsAcquired;
+    private int mConnectionsOpened;
+    private long mDnsNanos;
+    private long mConnectNanos;
+    private long mTlsNanos;
+    //Start of the DNS lookup,connection and TLS handshake of the calls in progress.
+    private final Map<Call, Long> mDnsStarts = new HashMap<>();
+    private final Map<Call, Long> mConnectStarts = new HashMap<>();
+    private final Map<Call, Long> mTlsStarts = new HashMap<>();
+    //Calls of the task in flight,to be cancelled when it is stopped.
+    private final Set<Call> mCalls = new HashSet<>();
+    private boolean mSharedCalls;
+    private boolean mStopped;
+
+    /**
+     * @param file The file of the task,whose length is taken now.
+     */
+    TaskRecorder(@NonNull File file) {
+        mFile = file;
+        mLength = file.length();
+        mCreatedAt = System.nanoTime();
+        mQueuedAt = mCreatedAt;
+    }
+
+    /**
+     * @return The current time,to be passed to {@link #end(int, long)}.
+     */
+    static long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Add the time since start to the phase.A phase may run more than once,e.g. a batch falling back to single checks.
+     *
+     * @param phase One of the PHASE constants.
+     * @param start Gotten from {@link #now()}.
+     */
+    synchronized void end(int phase, long start) {
+        mPhaseNanos[phase] += System.nanoTime() - start;
+    }
+
+    /**
+     * The task is waiting in a queue of the scheduler from now on.
+     */
+    synchronized void queued() {
+        mQueuedAt = System.nanoTime();
+    }
+
+    /**
+     * The task left the queue,add the time it waited to the phase.
+     *
+     * @param phase {@link #PHASE_HASH_WAIT} or {@link #PHASE_NETWORK_WAIT}.
+     */
+    synchronized void dequeued(int phase) {
+        mPhaseNanos[phase] += System.nanoTime() - mQueuedAt;
+    }
+
+    synchronized void setHashIndexHit(boolean hashIndexHit) {
+        mHashIndexHit = hashIndexHit;
+    }
+
+    synchronized void setTransferring(boolean transferring) {
+        mTransferring = transferring;
+    }
+
+    /**
+     * @param retries Retries made so far by the retrier of the task.
+     */
+    synchronized void setRetries(int retries) {
+        mRetries = Math.max(mRetries, retries);
+    }
+
+    /**
+     * Calls started from now on may be shared with other tasks,e.g. the token request,so they are not cancelled
+     * when this task is stopped.
+     */
+    synchronized void setSharedCalls(boolean sharedCalls) {
+        mSharedCalls = sharedCalls;
+    }
+
+    /**
+     * Cancel the calls of the task in flight and the ones it starts from now on,until it is no longer stopped.
+     * The thread starting a call of a stopped task is interrupted too,so that the retrier of the task stops waiting.
+     *
+     * @param stopped Whether the task is stopped,i.e. paused or cancelled.
+     */
+    synchronized void setStopped(boolean stopped) {
+        mStopped = stopped;
+        if (stopped) {
+            for (Call call : mCalls) {
+                call.cancel();
+            }
+        }
+    }
+
+    /**
+     * @return Bytes of the file not transferred yet,0 unless the file is being transferred.
+     */
+    synchronized long getInFlightBytes() {
+        return mTransferring ? Math.max(0, mLength - mTransferredBytes) : 0;
+    }
+
+    synchronized boolean isTransferring() {
+        return mTransferring;
+    }
+
+    synchronized long getBytesSent() {
+        return mBytesSent;
+    }
+
+    /**
+     * Listen to the transferred bytes along with the listener of the task.
+     *
+     * @param listener The listener of the task,null for none.
+     * @return The listener to pass to the uploader.
+     */
+    @NonNull
+    TransferListener with(@Nullable final TransferListener listener) {
+        if (listener == null) return this;
+        return (transferredBytes, totalBytes) -> {
+            onTransferred(transferredBytes, totalBytes);
+            listener.onTransferred(transferredBytes, totalBytes);
+        };
+    }
+
+    @Override
+    public synchronized void onTransferred(long transferredBytes, long totalBytes) {
+        mTransferredBytes = transferredBytes;
+    }
+
+    /**
+     * @param success   Whether the task succeeded.
+     * @param exception The exception for which the task failed,null if it succeeded.
+     * @param cacheHit  {@link UploadMetrics#CACHE_NONE},{@link UploadMetrics#CACHE_LOCAL},
+     *                  {@link UploadMetrics#CACHE_SERVER} or {@link UploadMetrics#CACHE_SHARED}.
+     * @return The metrics of the finished task.
+     */
+    @NonNull
+    synchronized UploadMetrics build(boolean success, @Nullable Exception exception, int cacheHit) {
+        return new UploadMetrics.Builder(mFile, mLength)
+                .setSuccess(success)
+                .setException(exception)
+                .setCacheHit(cacheHit)
+                .setHashIndexHit(mHashIndexHit)
+                .setHashWaitMs(toMs(mPhaseNanos[PHASE_HASH_WAIT]))
+                .setHashMs(toMs(mPhaseNanos[PHASE_HASH]))
+                .setNetworkWaitMs(toMs(mPhaseNanos[PHASE_NETWORK_WAIT]))
+                .setTokenMs(toMs(mPhaseNanos[PHASE_TOKEN]))
+                .setPreUploadMs(toMs(mPhaseNanos[PHASE_PRE_UPLOAD]))
+                .setTransferMs(toMs(mPhaseNanos[PHASE_TRANSFER]))
+                .setTotalMs(toMs(System.nanoTime() - mCreatedAt))
+                .setBytesSent(mBytesSent)
+                .setRetries(mRetries)
+                .setRequestCount(mRequestCount)
+                .setConnectionsAcquired(mConnectionsAcquired)
+                .setConnectionsOpened(mConnectionsOpened)
+                .setDnsMs(toMs(mDnsNanos))
+                .setConnectMs(toMs(mConnectNanos))
+                .setTlsMs(toMs(mTlsNanos))
+                .build();
+    }
+
+    private static long toMs(long nanos) {
+        return nanos / 1000000;
+    }
+
+    @Override
+    public synchronized void callStart(Call call) {
+        mRequestCount++;
+        if (mSharedCalls) return;
+        mCalls.add(call);
+        if (mStopped) {
+            call.cancel();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public synchronized void dnsStart(Call call, String domainName) {
+        mDnsStarts.put(call, System.nanoTime());
+    }
+
+    @Override
+    public synchronized void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        Long start = mDnsStarts.remove(call);
+        if (start != null) mDnsNanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public synchronized void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        mConnectStarts.put(call, System.nanoTime());
+    }
+
+    @Override
+    public synchronized void secureConnectStart(Call call) {
+        mTlsStarts.put(call, System.nanoTime());
+    }
+
+    @Override
+    public synchronized void secureConnectEnd(Call call, Handshake handshake) {
+        Long start = mTlsStarts.remove(call);
+        if (start != null) mTlsNanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public synchronized void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        Long start = mConnectStarts.remove(call);
+        if (start != null) mConnectNanos += System.nanoTime() - start;
+        mConnectionsOpened++;
+    }
+
+    @Override
+    public synchronized void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol, IOException ioe) {
+        Long start = mConnectStarts.remove(call);
+        if (start != null) mConnectNanos += System.nanoTime() - start;
+        mTlsStarts.remove(call);
+    }
+
+    @Override
+    public synchronized void connectionAcquired(Call call, Connection connection) {
+        mConnectionsAcquired++;
+    }
+
+    @Override
+    public synchronized void requestBodyEnd(Call call, long byteCount) {
+        mBytesSent += byteCount;
+    }
+
+    @Override
+    public synchronized void callEnd(Call call) {
+        forget(call);
+    }
+
+    @Override
+    public synchronized void callFailed(Call call, IOException ioe) {
+        forget(call);
+    }
+
+    private void forget(Call call) {
+        mCalls.remove(call);
+        mDnsStarts.remove(call);
+        mConnectStarts.remove(call);
+        mTlsStarts.remove(call);
+    }
+}
@@ -0,0 +1,246 @@
+package com.dcz.fileportal;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The handle and pending result of an upload task started by {@link FilePortal#upload}.
+ * <p>
+ * It completes on the thread running the task,before the callback of the task is posted,so waiting on it or
+ * listening to it with a direct executor costs no thread hop.Listeners compose uploads,e.g. start the next one
+ * when this one succeeds.
+ * <p>
+ * Cancelling completes it at once,and with {@code mayInterruptIfRunning} the step running is aborted too:
+ * the hashing stops and the requests in flight are cancelled.The callback of the task gets a
+ * {@link CancellationException}.
+ * <p>
+ * Pausing aborts the step running the same way,but keeps the task until it is resumed.A resumed task starts over
+ * from the hash index,so an unchanged file isn't read again,and a chunked upload only sends the chunks which
+ * were not acknowledged yet.A file uploaded whole is sent again from its start.
+ */
+public class UploadFuture implements Future<UploadResult> {
+
+    private UploadResult mResult;
+    private Exception mException;
+    private boolean mCancelled;
+    private boolean mDone;
+    private List<Runnable> mListeners = new ArrayList<>();
+    private boolean mPaused;
+    //Runs the paused task again,null unless it stopped for the pause.
+    private Runnable mParked;
+    //The thread and the recorder of the step running,if any.
+    private Thread mThread;
+    private TaskRecorder mRecorder;
+    private boolean mInterrupted;
+    //The step running was aborted by a pause.
+    private boolean mStepStopped;
+
+    UploadFuture() {
+    }
+
+    /**
+     * Run the listener once the task is done,whether it succeeded,failed or was cancelled.
+     * It is run right away if the task is done already.
+     *
+     * @param listener The listener,call {@link #get()} in it for the result.
+     * @param executor The executor the listener is run on,{@code Runnable::run} to run it on the completing thread.
+     */
+    public void addListener(@NonNull Runnable listener, @NonNull Executor executor) {
+        Runnable task = () -> executor.execute(listener);
+        synchronized (this) {
+            if (!mDone) {
+                mListeners.add(task);
+                return;
+            }
+        }
+        task.run();
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!complete(null, null, true)) return false;
+        Runnable parked;
+        synchronized (this) {
+            if (mayInterruptIfRunning) stopStep();
+            parked = mParked;
+            mParked = null;
+        }
+        //Let a paused task run into its cancellation,so its callback is told.
+        if (parked != null) parked.run();
+        return true;
+    }
+
+    /**
+     * Pause the task,aborting the step running.
+     *
+     * @return Whether the task was paused now,false if it is done or paused already.
+     */
+    public boolean pause() {
+        synchronized (this) {
+            if (mDone || mPaused) return false;
+            mPaused = true;
+            stopStep();
+        }
+        return true;
+    }
+
+    /**
+     * Resume the paused task.
+     *
+     * @return Whether the task was resumed now,false if it is done or not paused.
+     */
+    public boolean resume() {
+        Runnable parked;
+        synchronized (this) {
+            if (mDone || !mPaused) return false;
+            mPaused = false;
+            if (mRecorder != null) mRecorder.setStopped(false);
+            parked = mParked;
+            mParked = null;
+        }
+        if (parked != null) parked.run();
+        return true;
+    }
+
+    public synchronized boolean isPaused() {
+        return mPaused;
+    }
+
+    private void stopStep() {
+        if (mRecorder != null) mRecorder.setStopped(true);
+        if (mThread != null) {
+            mInterrupted = true;
+            mThread.interrupt();
+        }
+        mStepStopped = true;
+    }
+
+    /**
+     * A step of the task is starting on the current thread,which is interrupted if the task is paused or cancelled
+     * until {@link #exit()}.
+     *
+     * @param recorder The recorder of the task,whose calls are cancelled along.
+     * @return Whether the step may run,false if the task is paused or done.
+     */
+    synchronized boolean enter(@NonNull TaskRecorder recorder) {
+        mRecorder = recorder;
+        if (mDone || mPaused) return false;
+        mThread = Thread.currentThread();
+        mInterrupted = false;
+        mStepStopped = false;
+        return true;
+    }
+
+    /**
+     * The step has finished,clear the interrupt it may have left on the thread.
+     */
+    void exit() {
+        boolean interrupted;
+        synchronized (this) {
+            mThread = null;
+            interrupted = mInterrupted;
+            mInterrupted = false;
+        }
+        if (interrupted) Thread.interrupted();
+    }
+
+    /**
+     * The task failed,keep it if it was for a pause.
+     *
+     * @param resume Runs the task again.
+     * @return Whether the task is kept,false if the failure is its own.
+     */
+    boolean park(@NonNull Runnable resume) {
+        synchronized (this) {
+            if (mDone) return false;
+            if (mPaused) {
+                mParked = resume;
+                return true;
+            }
+            if (!mStepStopped) return false;
+        }
+        //Paused and resumed while the step was failing.
+        resume.run();
+        return true;
+    }
+
+    /**
+     * @return Whether the task is cancelled or paused,or the step running was aborted by a pause.
+     */
+    synchronized boolean isStopped() {
+        return mCancelled || mPaused || mStepStopped;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return mCancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return mDone;
+    }
+
+    @Override
+    public synchronized UploadResult get() throws InterruptedException, ExecutionException {
+        while (!mDone) {
+            wait();
+        }
+        return result();
+    }
+
+    @Override
+    public synchronized UploadResult get(long timeout, @NonNull TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!mDone) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) throw new TimeoutException();
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return result();
+    }
+
+    private UploadResult result() throws ExecutionException {
+        if (mCancelled) throw new CancellationException();
+        if (mException != null) throw new ExecutionException(mException);
+        return mResult;
+    }
+
+    /**
+     * @return Whether it completed now,false if it was done already,e.g. cancelled.
+     */
+    boolean succeed(@NonNull UploadResult result) {
+        return complete(result, null, false);
+    }
+
+    boolean fail(@NonNull Exception exception) {
+        return complete(null, exception, false);
+    }
+
+    private boolean complete(UploadResult result, Exception exception, boolean cancelled) {
+        List<Runnable> listeners;
+        synchronized (this) {
+            if (mDone) return false;
+            mResult = result;
+            mException = exception;
+            mCancelled = cancelled;
+            mDone = true;
+            listeners = mListeners;
+            mListeners = null;
+            notifyAll();
+        }
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,216 @@
+package com.dcz.fileportal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dcz.fileportal.options.UploadOptions;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Journal of the durable upload tasks which are not finished yet,persisted so they survive the death of the process.
+ * <p>
+ * Every change is written to disk before the method returns,through a temporary file which is then renamed.
+ * The chunks acknowledged by the backend server are kept by the chunk record of the file's MD5 hash,
+ * so a resumed chunked upload sends only the rest.
+ */
+class UploadJournal {
+
+    static final int STATE_PENDING = 0;
+    static final int STATE_HASHED = 1;
+    static final int STATE_UPLOADING = 2;
+
+    private final File mStoreFile;
+    private final Gson mGson;
+    private LinkedHashMap<String, Entry> mEntries;
+
+    /**
+     * @param storeFile Where the journal is persisted.
+     * @param gson      Gson instance.
+     */
+    UploadJournal(@NonNull File storeFile, @NonNull Gson gson) {
+        mStoreFile = storeFile;
+        mGson = gson;
+    }
+
+    /**
+     * Create the entry of a new task,which is not recorded until {@link #add(Entry)}.
+     *
+     * @param uploadOptions Options of the task.
+     * @return The entry of the task.
+     */
+    @NonNull
+    static Entry newEntry(@NonNull UploadOptions uploadOptions) {
+        Entry entry = new Entry();
+        entry.id = UUID.randomUUID().toString();
+        entry.path = uploadOptions.getFile().getAbsolutePath();
+        entry.uid = uploadOptions.getUid();
+        entry.apiKey = uploadOptions.getApiKey();
+        entry.accessVerify = uploadOptions.getAccessVerify();
+        entry.mode = uploadOptions.getMode();
+        entry.chunkSize = uploadOptions.getChunkSize();
+        entry.chunkConcurrency = uploadOptions.getChunkConcurrency();
+        entry.priority = uploadOptions.getPriority();
+        entry.constraints = uploadOptions.getConstraints();
+        entry.state = STATE_PENDING;
+        return entry;
+    }
+
+    /**
+     * Record a new task.
+     *
+     * @param entry The entry of the task.
+     */
+    synchronized void add(@NonNull Entry entry) {
+        entries().put(entry.id, entry);
+        save();
+    }
+
+    /**
+     * Record the MD5 hash of the file of the task,with the attributes of the file read before it was hashed.
+     */
+    synchronized void setMd5(@NonNull Entry entry, long length, long lastModified, @NonNull String md5) {
+        if (!entries().containsKey(entry.id)
+                || (md5.equals(entry.md5) && entry.length == length && entry.lastModified == lastModified)) return;
+        entry.length = length;
+        entry.lastModified = lastModified;
+        entry.md5 = md5;
+        entry.state = STATE_HASHED;
+        save();
+    }
+
+    /**
+     * @return The MD5 hash recorded for the file,or null if there is none or the file has changed since.
+     */
+    @Nullable
+    synchronized String getMd5(@NonNull Entry entry, @NonNull File file) {
+        if (entry.md5 == null || entry.length != file.length() || entry.lastModified != file.lastModified()) return null;
+        return entry.md5;
+    }
+
+    /**
+     * @param state {@link #STATE_PENDING},{@link #STATE_HASHED} or {@link #STATE_UPLOADING}.
+     */
+    synchronized void setState(@NonNull Entry entry, int state) {
+        if (entry.state == state || !entries().containsKey(entry.id)) return;
+        entry.state = state;
+        save();
+    }
+
+    /**
+     * Mark the task as running,unless it is running already or finished.
+     *
+     * @return Whether the caller should run the task.
+     */
+    synchronized boolean claim(@NonNull Entry entry) {
+        if (entry.running || !entries().containsKey(entry.id)) return false;
+        entry.running = true;
+        return true;
+    }
+
+    /**
+     * The task stopped without finishing,keep it to be run again later.
+     */
+    synchronized void release(@NonNull Entry entry) {
+        entry.running = false;
+    }
+
+    /**
+     * The task is finished,whether it succeeded or failed for good.
+     */
+    synchronized void remove(@NonNull Entry entry) {
+        if (entries().remove(entry.id) != null) {
+            save();
+        }
+    }
+
+    /**
+     * @return The unfinished tasks,in the order they were recorded.
+     */
+    @NonNull
+    synchronized List<Entry> getEntries() {
+        return new ArrayList<>(entries().values());
+    }
+
+    private void save() {
+        File tmp = new File(mStoreFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            Writer writer = new OutputStreamWriter(out, "UTF-8");
+            mGson.toJson(new ArrayList<>(mEntries.values()), writer);
+            writer.flush();
+            //The journal is only worth anything if it reaches the disk.
+            out.getFD().sync();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        if (!tmp.renameTo(mStoreFile)) {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Load the journal from disk on first use.
+     */
+    private LinkedHashMap<String, Entry> entries() {
+        if (mEntries != null) return mEntries;
+        mEntries = new LinkedHashMap<>();
+        if (mStoreFile.exists()) {
+            try (Reader reader = new InputStreamReader(new FileInputStream(mStoreFile), "UTF-8")) {
+                List<Entry> entries = mGson.fromJson(reader, new TypeToken<List<Entry>>() {
+                }.getType());
+                if (entries != null) {
+                    for (Entry entry : entries) {
+                        if (entry != null && entry.id != null && entry.path != null) {
+                            mEntries.put(entry.id, entry);
+                        }
+                    }
+                }
+            } catch (IOException | JsonParseException e) {
+                //Broken journal,the tasks in it are lost.
+                e.printStackTrace();
+                mEntries.clear();
+            }
+        }
+        return mEntries;
+    }
+
+    /**
+     * A durable task.The transient fields live only as long as the process.
+     */
+    static class Entry {
+        String id;
+        String path;
+        String uid;
+        String apiKey;
+        String accessVerify;
+        String mode;
+        long chunkSize;
+        int chunkConcurrency;
+        int priority;
+        int constraints;
+        long length;
+        long lastModified;
+        String md5;
+        int state;
+        transient boolean running;
+        //Options the task runs with in this process,null until it is restored from disk.
+        transient UploadOptions uploadOptions;
+        //Future returned by FilePortal#upload until the task first runs,null for a task restored from disk.
+        transient UploadFuture future;
+    }
+}
@@ -0,0 +1,47 @@
+package com.dcz.fileportal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dcz.fileportal.options.UploadOptions;
+
+/**
+ * One run of an upload,passed through the stages from its submission to its callback.
+ * <p>
+ * The same options may be passed to several uploads,e.g. to upload a file again,so a task is told apart by itself
+ * rather than by its options.
+ */
+class UploadTask {
+
+    final UploadOptions uploadOptions;
+    //Completed when the task is done,and the handle pausing or cancelling it.
+    final UploadFuture future;
+    //Groups the file with the others of its batch for the pre upload check,null unless it is a file of a batch.
+    @Nullable
+    final PreUploadBatcher<FilePortal.HashedFile> batcher;
+
+    /**
+     * A task whose future isn't handed out.
+     */
+    UploadTask(@NonNull UploadOptions uploadOptions) {
+        this(uploadOptions, new UploadFuture(), null);
+    }
+
+    UploadTask(@NonNull UploadOptions uploadOptions, @NonNull UploadFuture future) {
+        this(uploadOptions, future, null);
+    }
+
+    /**
+     * A file of a batch.
+     */
+    UploadTask(@NonNull UploadOptions uploadOptions, @NonNull PreUploadBatcher<FilePortal.HashedFile> batcher) {
+        this(uploadOptions, new UploadFuture(), batcher);
+    }
+
+    private UploadTask(@NonNull UploadOptions uploadOptions, @NonNull UploadFuture future,
+                       @Nullable PreUploadBatcher<FilePortal.HashedFile> batcher) {
+        this.uploadOptions = uploadOptions;
+        this.future = future;
+        this.batcher = batcher;
+    }
+}
@@ -0,0 +1,15 @@
+package com.dcz.fileportal.metrics;
+
+/**
+ * Listener of the metrics of upload tasks,see {@link com.dcz.fileportal.FilePortal#setMetricsListener(MetricsListener)}.
+ */
+public interface MetricsListener {
+
+    /**
+     * An upload task has finished,whether it succeeded or failed.
+     * Called on the worker thread which finished the task,so hand heavy work over to another thread.
+     *
+     * @param metrics Metrics of the task.
+     */
+    void onTaskFinished(UploadMetrics metrics);
+}
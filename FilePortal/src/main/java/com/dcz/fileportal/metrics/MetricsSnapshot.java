@@ -0,0 +1,162 @@
+package com.dcz.fileportal.metrics;
+
+/**
+ * State of all upload tasks at one moment,see {@link com.dcz.fileportal.FilePortal#getMetricsSnapshot()}.
+ */
+public class MetricsSnapshot {
+
+    private final int hashQueueDepth;
+    private final int networkQueueDepth;
+    private final int activeCount;
+    private final int tasksInFlight;
+    private final int uploadsInFlight;
+    private final long inFlightBytes;
+    private final long succeededTasks;
+    private final long failedTasks;
+    private final long bytesSent;
+
+    private MetricsSnapshot(Builder builder) {
+        this.hashQueueDepth = builder.hashQueueDepth;
+        this.networkQueueDepth = builder.networkQueueDepth;
+        this.activeCount = builder.activeCount;
+        this.tasksInFlight = builder.tasksInFlight;
+        this.uploadsInFlight = builder.uploadsInFlight;
+        this.inFlightBytes = builder.inFlightBytes;
+        this.succeededTasks = builder.succeededTasks;
+        this.failedTasks = builder.failedTasks;
+        this.bytesSent = builder.bytesSent;
+    }
+
+    /**
+     * @return Tasks waiting to be hashed.
+     */
+    public int getHashQueueDepth() {
+        return hashQueueDepth;
+    }
+
+    /**
+     * @return Tasks hashed and waiting to talk to the backend server.
+     */
+    public int getNetworkQueueDepth() {
+        return networkQueueDepth;
+    }
+
+    /**
+     * @return Tasks running in either stage of the scheduler.
+     */
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    /**
+     * @return Tasks submitted and not finished yet,in any phase.
+     */
+    public int getTasksInFlight() {
+        return tasksInFlight;
+    }
+
+    /**
+     * @return Tasks transferring their file.
+     */
+    public int getUploadsInFlight() {
+        return uploadsInFlight;
+    }
+
+    /**
+     * @return Bytes of the files being transferred which are not sent yet.
+     */
+    public long getInFlightBytes() {
+        return inFlightBytes;
+    }
+
+    /**
+     * @return Tasks succeeded since the process started.
+     */
+    public long getSucceededTasks() {
+        return succeededTasks;
+    }
+
+    /**
+     * @return Tasks failed since the process started.
+     */
+    public long getFailedTasks() {
+        return failedTasks;
+    }
+
+    /**
+     * @return Bytes of request bodies sent for the tasks finished since the process started.
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    @Override
+    public String toString() {
+        return "MetricsSnapshot{hashQueueDepth=" + hashQueueDepth + ", networkQueueDepth=" + networkQueueDepth
+                + ", activeCount=" + activeCount + ", tasksInFlight=" + tasksInFlight + ", uploadsInFlight=" + uploadsInFlight
+                + ", inFlightBytes=" + inFlightBytes + ", succeededTasks=" + succeededTasks + ", failedTasks=" + failedTasks
+                + ", bytesSent=" + bytesSent + "}";
+    }
+
+    public static class Builder {
+
+        private int hashQueueDepth;
+        private int networkQueueDepth;
+        private int activeCount;
+        private int tasksInFlight;
+        private int uploadsInFlight;
+        private long inFlightBytes;
+        private long succeededTasks;
+        private long failedTasks;
+        private long bytesSent;
+
+        public Builder setHashQueueDepth(int hashQueueDepth) {
+            this.hashQueueDepth = hashQueueDepth;
+            return this;
+        }
+
+        public Builder setNetworkQueueDepth(int networkQueueDepth) {
+            this.networkQueueDepth = networkQueueDepth;
+            return this;
+        }
+
+        public Builder setActiveCount(int activeCount) {
+            this.activeCount = activeCount;
+            return this;
+        }
+
+        public Builder setTasksInFlight(int tasksInFlight) {
+            this.tasksInFlight = tasksInFlight;
+            return this;
+        }
+
+        public Builder setUploadsInFlight(int uploadsInFlight) {
+            this.uploadsInFlight = uploadsInFlight;
+            return this;
+        }
+
+        public Builder setInFlightBytes(long inFlightBytes) {
+            this.inFlightBytes = inFlightBytes;
+            return this;
+        }
+
+        public Builder setSucceededTasks(long succeededTasks) {
+            this.succeededTasks = succeededTasks;
+            return this;
+        }
+
+        public Builder setFailedTasks(long failedTasks) {
+            this.failedTasks = failedTasks;
+            return this;
+        }
+
+        public Builder setBytesSent(long bytesSent) {
+            this.bytesSent = bytesSent;
+            return this;
+        }
+
+        public MetricsSnapshot build() {
+            return new MetricsSnapshot(this);
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.dcz.fileportal.metrics;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+
+/**
+ * Metrics of a finished upload task.
+ * <p>
+ * Phases in the order they happen,each 0 if the task never reached it:
+ * <ul>
+ * <li>hash wait:from submission until the hash stage picks the task up.</li>
+ * <li>hash:hashing the file,or looking its hash up.</li>
+ * <li>network wait:from hashed until the network stage picks the task up.</li>
+ * <li>token:getting the token,usually from memory.</li>
+ * <li>pre upload:asking the backend server if it has the file already,alone or with a batch.</li>
+ * <li>transfer:uploading the file,retries included.</li>
+ * </ul>
+ * Connection figures come from the OkHttp {@code EventListener} of the requests made for the task.
+ */
+public class UploadMetrics {
+
+    //Uploaded just now.
+    public static final int CACHE_NONE = 0;
+    //Found in the local cache of uploaded files,no request at all.
+    public static final int CACHE_LOCAL = 1;
+    //The backend server had the file already.
+    public static final int CACHE_SERVER = 2;
+    //Uploaded by another task with the same content at the same time,whose url it shares.
+    public static final int CACHE_SHARED = 3;
+
+    private final File file;
+    private final long fileLength;
+    private final boolean success;
+    private final Exception exception;
+    private final int cacheHit;
+    private final boolean hashIndexHit;
+    private final long hashWaitMs;
+    private final long hashMs;
+    private final long networkWaitMs;
+    private final long tokenMs;
+    private final long preUploadMs;
+    private final long transferMs;
+    private final long totalMs;
+    private final long bytesSent;
+    private final int retries;
+    private final int requestCount;
+    private final int connectionsAcquired;
+    private final int connectionsOpened;
+    private final long dnsMs;
+    private final long connectMs;
+    private final long tlsMs;
+
+    private UploadMetrics(Builder builder) {
+        this.file = builder.file;
+        this.fileLength = builder.fileLength;
+        this.success = builder.success;
+        this.exception = builder.exception;
+        this.cacheHit = builder.cacheHit;
+        this.hashIndexHit = builder.hashIndexHit;
+        this.hashWaitMs = builder.hashWaitMs;
+        this.hashMs = builder.hashMs;
+        this.networkWaitMs = builder.networkWaitMs;
+        this.tokenMs = builder.tokenMs;
+        this.preUploadMs = builder.preUploadMs;
+        this.transferMs = builder.transferMs;
+        this.totalMs = builder.totalMs;
+        this.bytesSent = builder.bytesSent;
+        this.retries = builder.retries;
+        this.requestCount = builder.requestCount;
+        this.connectionsAcquired = builder.connectionsAcquired;
+        this.connectionsOpened = builder.connectionsOpened;
+        this.dnsMs = builder.dnsMs;
+        this.connectMs = builder.connectMs;
+        this.tlsMs = builder.tlsMs;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getFileLength() {
+        return fileLength;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * @return The exception for which the task failed,null if it succeeded.
+     */
+    @Nullable
+    public Exception getException() {
+        return exception;
+    }
+
+    /**
+     * @return {@link #CACHE_NONE},{@link #CACHE_LOCAL},{@link #CACHE_SERVER} or {@link #CACHE_SHARED}.
+     */
+    public int getCacheHit() {
+        return cacheHit;
+    }
+
+    /**
+     * @return Whether the hash of the file was known,so the file wasn't read.
+     */
+    public boolean isHashIndexHit() {
+        return hashIndexHit;
+    }
+
+    public long getHashWaitMs() {
+        return hashWaitMs;
+    }
+
+    public long getHashMs() {
+        return hashMs;
+    }
+
+    public long getNetworkWaitMs() {
+        return networkWaitMs;
+    }
+
+    public long getTokenMs() {
+        return tokenMs;
+    }
+
+    public long getPreUploadMs() {
+        return preUploadMs;
+    }
+
+    public long getTransferMs() {
+        return transferMs;
+    }
+
+    public long getTotalMs() {
+        return totalMs;
+    }
+
+    /**
+     * @return Bytes of the request bodies sent for the task,resent ones included.
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * @return Bytes sent per second during the transfer phase,0 if the file wasn't transferred.
+     */
+    public long getBytesPerSecond() {
+        return transferMs <= 0 ? 0 : bytesSent * 1000 / transferMs;
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    public int getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @return Connections the requests were sent over,counted once per request.
+     */
+    public int getConnectionsAcquired() {
+        return connectionsAcquired;
+    }
+
+    /**
+     * @return Connections opened for the requests,the others were reused from the pool.
+     */
+    public int getConnectionsOpened() {
+        return connectionsOpened;
+    }
+
+    public int getConnectionsReused() {
+        return Math.max(0, connectionsAcquired - connectionsOpened);
+    }
+
+    public long getDnsMs() {
+        return dnsMs;
+    }
+
+    public long getConnectMs() {
+        return connectMs;
+    }
+
+    public long getTlsMs() {
+        return tlsMs;
+    }
+
+    @Override
+    public String toString() {
+        return "UploadMetrics{file=" + file.getName() + ", length=" + fileLength + ", success=" + success
+                + ", cacheHit=" + cacheHit + ", hashIndexHit=" + hashIndexHit
+                + ", hashWaitMs=" + hashWaitMs + ", hashMs=" + hashMs + ", networkWaitMs=" + networkWaitMs
+                + ", tokenMs=" + tokenMs + ", preUploadMs=" + preUploadMs + ", transferMs=" + transferMs
+                + ", totalMs=" + totalMs + ", bytesSent=" + bytesSent + ", bytesPerSecond=" + getBytesPerSecond()
+                + ", retries=" + retries + ", requests=" + requestCount + ", connectionsReused=" + getConnectionsReused()
+                + "/" + connectionsAcquired + ", exception=" + exception + "}";
+    }
+
+    public static class Builder {
+
+        private final File file;
+        private final long fileLength;
+        private boolean success;
+        private Exception exception;
+        private int cacheHit = CACHE_NONE;
+        private boolean hashIndexHit;
+        private long hashWaitMs;
+        private long hashMs;
+        private long networkWaitMs;
+        private long tokenMs;
+        private long preUploadMs;
+        private long transferMs;
+        private long totalMs;
+        private long bytesSent;
+        private int retries;
+        private int requestCount;
+        private int connectionsAcquired;
+        private int connectionsOpened;
+        private long dnsMs;
+        private long connectMs;
+        private long tlsMs;
+
+        public Builder(File file, long fileLength) {
+            this.file = file;
+            this.fileLength = fileLength;
+        }
+
+        public Builder setSuccess(boolean success) {
+            this.success = success;
+            return this;
+        }
+
+        public Builder setException(@Nullable Exception exception) {
+            this.exception = exception;
+            return this;
+        }
+
+        public Builder setCacheHit(int cacheHit) {
+            this.cacheHit = cacheHit;
+            return this;
+        }
+
+        public Builder setHashIndexHit(boolean hashIndexHit) {
+            this.hashIndexHit = hashIndexHit;
+            return this;
+        }
+
+        public Builder setHashWaitMs(long hashWaitMs) {
+            this.hashWaitMs = hashWaitMs;
+            return this;
+        }
+
+        public Builder setHashMs(long hashMs) {
+            this.hashMs = hashMs;
+            return this;
+        }
+
+        public Builder setNetworkWaitMs(long networkWaitMs) {
+            this.networkWaitMs = networkWaitMs;
+            return this;
+        }
+
+        public Builder setTokenMs(long tokenMs) {
+            this.tokenMs = tokenMs;
+            return this;
+        }
+
+        public Builder setPreUploadMs(long preUploadMs) {
+            this.preUploadMs = preUploadMs;
+            return this;
+        }
+
+        public Builder setTransferMs(long transferMs) {
+            this.transferMs = transferMs;
+            return this;
+        }
+
+        public Builder setTotalMs(long totalMs) {
+            this.totalMs = totalMs;
+            return this;
+        }
+
+        public Builder setBytesSent(long bytesSent) {
+            this.bytesSent = bytesSent;
+            return this;
+        }
+
+        public Builder setRetries(int retries) {
+            this.retries = retries;
+            return this;
+        }
+
+        public Builder setRequestCount(int requestCount) {
+            this.requestCount = requestCount;
+            return this;
+        }
+
+        public Builder setConnectionsAcquired(int connectionsAcquired) {
+            this.connectionsAcquired = connectionsAcquired;
+            return this;
+        }
+
+        public Builder setConnectionsOpened(int connectionsOpened) {
+            this.connectionsOpened = connectionsOpened;
+            return this;
+        }
+
+        public Builder setDnsMs(long dnsMs) {
+            this.dnsMs = dnsMs;
+            return this;
+        }
+
+        public Builder setConnectMs(long connectMs) {
+            this.connectMs = connectMs;
+            return this;
+        }
+
+        public Builder setTlsMs(long tlsMs) {
+            this.tlsMs = tlsMs;
+            return this;
+        }
+
+        public UploadMetrics build() {
+            return new UploadMetrics(this);
+        }
+    }
+}
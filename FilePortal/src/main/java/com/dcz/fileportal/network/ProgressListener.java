@@ -1,5 +0,0 @@
-package com.dcz.fileportal.network;
-
-public interface ProgressListener {
-    void transferred(int percent);
-}
@@ -0,0 +1,42 @@
+package com.dcz.fileportal.network.callbacks;
+
+import java.io.File;
+
+/**
+ * Results of a batch upload,all methods are called on the callback executor,the main thread by default.
+ * They are called one at a time,even if the executor runs them on several threads.
+ */
+public interface BatchUploadCallback {
+
+    /**
+     * Succeed to upload one of the files.
+     *
+     * @param index   Index of the file in the batch.
+     * @param file    The file.
+     * @param url     The url of the file.
+     * @param isCache Whether is the file uploaded just now or cached by the backend server.
+     */
+    void onSuccess(int index, File file, String url, boolean isCache);
+
+    /**
+     * Failed to upload one of the files.
+     *
+     * @param index Index of the file in the batch.
+     * @param file  The file.
+     * @param e     The exception for which file uploaded failed.
+     */
+    void onFailure(int index, File file, Exception e);
+
+    /**
+     * @param percent Transferred percent of the whole batch,weighted by file size.
+     */
+    void onProgress(int percent);
+
+    /**
+     * Every file of the batch has either succeeded or failed.
+     *
+     * @param succeeded Count of succeeded files.
+     * @param failed    Count of failed files.
+     */
+    void onComplete(int succeeded, int failed);
+}
@@ -0,0 +1,27 @@
+package com.dcz.fileportal.network.callbacks;
+
+import java.io.File;
+
+/**
+ * Results of the durable upload tasks resumed after the process was restarted,
+ * whose own callbacks are gone with the old process.All methods are called on the callback executor.
+ */
+public interface RecoveredUploadCallback {
+
+    /**
+     * Succeed to upload the file.
+     *
+     * @param file    The file.
+     * @param url     The url of the file.
+     * @param isCache Whether is the file uploaded just now or cached by the backend server.
+     */
+    void onSuccess(File file, String url, boolean isCache);
+
+    /**
+     * Failed to upload the file.
+     *
+     * @param file The file.
+     * @param e    The exception for which file uploaded failed.
+     */
+    void onFailure(File file, Exception e);
+}
@@ -0,0 +1,238 @@
+package com.dcz.fileportal.options;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.dcz.fileportal.network.BandwidthLimiter;
+import com.dcz.fileportal.network.callbacks.BatchUploadCallback;
+
+import java.io.File;
+
+public class BatchUploadOptions {
+
+    private final Context context;
+    private final String uid;
+    private final String apiKey;
+    private final BatchUploadCallback batchUploadCallback;
+    private final String accessVerify;
+    private final String mode;
+    private final long chunkSize;
+    private final int chunkConcurrency;
+    private final int priority;
+    private final RetryPolicy retryPolicy;
+    private final BandwidthLimiter bandwidthLimiter;
+
+    private BatchUploadOptions(Builder builder) {
+        this.context = builder.getContext();
+        this.uid = builder.getUid();
+        this.apiKey = builder.getApiKey();
+        this.batchUploadCallback = builder.getBatchUploadCallback();
+        this.accessVerify = builder.getAccessVerify();
+        this.mode = builder.getMode();
+        this.chunkSize = builder.getChunkSize();
+        this.chunkConcurrency = builder.getChunkConcurrency();
+        this.priority = builder.getPriority();
+        this.retryPolicy = builder.getRetryPolicy();
+        this.bandwidthLimiter = builder.getBandwidthLimiter();
+    }
+
+    public Context getContext() {
+        return context;
+    }
+
+    public String getUid() {
+        return uid;
+    }
+
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    public BatchUploadCallback getBatchUploadCallback() {
+        return batchUploadCallback;
+    }
+
+    public String getAccessVerify() {
+        return accessVerify;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getChunkConcurrency() {
+        return chunkConcurrency;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public BandwidthLimiter getBandwidthLimiter() {
+        return bandwidthLimiter;
+    }
+
+    /**
+     * Options of a single file of the batch.
+     *
+     * @param file The file to upload.
+     * @return A builder with the shared options of the batch applied.
+     */
+    public UploadOptions.Builder newUploadOptionsBuilder(@NonNull File file) {
+        return new UploadOptions.Builder(context, uid, apiKey, file)
+                .setAccessVerify(accessVerify)
+                .setMode(mode)
+                .setChunkSize(chunkSize)
+                .setChunkConcurrency(chunkConcurrency)
+                .setPriority(priority)
+                .setRetryPolicy(retryPolicy)
+                .setBandwidthLimiter(bandwidthLimiter);
+    }
+
+
+    public static class Builder {
+
+        private final Context context;
+        private final String uid;
+        private final String apiKey;
+        private String accessVerify = AccessOption.ACCESS_VERIFY;
+        private String mode = ModeOption.MODE_STAY;
+        private BatchUploadCallback batchUploadCallback = null;
+        private long chunkSize = 0;
+        private int chunkConcurrency = 1;
+        private int priority = PriorityOption.PRIORITY_USER_VISIBLE;
+        private RetryPolicy retryPolicy = new RetryPolicy.Builder().build();
+        private BandwidthLimiter bandwidthLimiter = null;
+
+        /**
+         * @param context current context.
+         * @param uid     Unique uid of the user who is to access the files.
+         * @param apiKey  Registered api key for Marvel File System.
+         */
+        public Builder(@NonNull final Context context, @NonNull String uid, @NonNull String apiKey) {
+            this.context = context;
+            this.uid = uid;
+            this.apiKey = apiKey;
+        }
+
+        public Context getContext() {
+            return context;
+        }
+
+        public String getUid() {
+            return uid;
+        }
+
+        public String getApiKey() {
+            return apiKey;
+        }
+
+        public String getAccessVerify() {
+            return accessVerify;
+        }
+
+        public Builder setAccessVerify(String accessVerify) {
+            this.accessVerify = accessVerify;
+            return this;
+        }
+
+        public String getMode() {
+            return mode;
+        }
+
+        public Builder setMode(String mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        public BatchUploadCallback getBatchUploadCallback() {
+            return batchUploadCallback;
+        }
+
+        public Builder setBatchUploadCallback(BatchUploadCallback batchUploadCallback) {
+            this.batchUploadCallback = batchUploadCallback;
+            return this;
+        }
+
+        public long getChunkSize() {
+            return chunkSize;
+        }
+
+        /**
+         * @see UploadOptions.Builder#setChunkSize(long)
+         */
+        public Builder setChunkSize(long chunkSize) {
+            if (chunkSize < 0) {
+                throw new IllegalArgumentException("chunkSize < 0");
+            }
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        public int getChunkConcurrency() {
+            return chunkConcurrency;
+        }
+
+        /**
+         * @see UploadOptions.Builder#setChunkConcurrency(int)
+         */
+        public Builder setChunkConcurrency(int chunkConcurrency) {
+            if (chunkConcurrency < 1) {
+                throw new IllegalArgumentException("chunkConcurrency < 1");
+            }
+            this.chunkConcurrency = chunkConcurrency;
+            return this;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        /**
+         * @param priority {@link PriorityOption},the default value is {@link PriorityOption#PRIORITY_USER_VISIBLE}.
+         */
+        public Builder setPriority(int priority) {
+            this.priority = priority;
+            return this;
+        }
+
+        public RetryPolicy getRetryPolicy() {
+            return retryPolicy;
+        }
+
+        /**
+         * @see UploadOptions.Builder#setRetryPolicy(RetryPolicy)
+         */
+        public Builder setRetryPolicy(@NonNull RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        public BandwidthLimiter getBandwidthLimiter() {
+            return bandwidthLimiter;
+        }
+
+        /**
+         * @param bandwidthLimiter Cap of the whole batch in addition to the global one,null for none.
+         * @see UploadOptions.Builder#setBandwidthLimiter(BandwidthLimiter)
+         */
+        public Builder setBandwidthLimiter(@Nullable BandwidthLimiter bandwidthLimiter) {
+            this.bandwidthLimiter = bandwidthLimiter;
+            return this;
+        }
+
+        public BatchUploadOptions build() {
+            return new BatchUploadOptions(this);
+        }
+    }
+}
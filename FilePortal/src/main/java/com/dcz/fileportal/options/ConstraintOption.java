@@ -0,0 +1,12 @@
+package com.dcz.fileportal.options;
+
+/**
+ * Conditions a durable upload task waits for,combined with '|'.
+ */
+public class ConstraintOption {
+    public static final int CONSTRAINT_NONE = 0;
+    //Only over a network which is not metered,e.g. Wi-Fi.
+    public static final int CONSTRAINT_UNMETERED = 1;
+    //Only while the device is plugged in.
+    public static final int CONSTRAINT_CHARGING = 1 << 1;
+}
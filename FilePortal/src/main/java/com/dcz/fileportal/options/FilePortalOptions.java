@@ -0,0 +1,152 @@
+package com.dcz.fileportal.options;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.dcz.fileportal.network.callbacks.RecoveredUploadCallback;
+import com.dcz.fileportal.scheduler.UploadScheduler;
+import com.google.gson.Gson;
+
+import java.util.concurrent.Executor;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Global options of {@link com.dcz.fileportal.FilePortal},see {@link com.dcz.fileportal.FilePortal#init(FilePortalOptions)}.
+ * Whatever is not provided is created lazily on the first upload,off the main thread.
+ */
+public class FilePortalOptions {
+
+    private final OkHttpClient okHttpClient;
+    private final Gson gson;
+    private final UploadScheduler scheduler;
+    private final Executor callbackExecutor;
+    private final Context context;
+    private final RecoveredUploadCallback recoveredUploadCallback;
+
+    private FilePortalOptions(Builder builder) {
+        this.okHttpClient = builder.getOkHttpClient();
+        this.gson = builder.getGson();
+        this.scheduler = builder.getScheduler();
+        this.callbackExecutor = builder.getCallbackExecutor();
+        this.context = builder.getContext();
+        this.recoveredUploadCallback = builder.getRecoveredUploadCallback();
+    }
+
+    public OkHttpClient getOkHttpClient() {
+        return okHttpClient;
+    }
+
+    public Gson getGson() {
+        return gson;
+    }
+
+    public UploadScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public Executor getCallbackExecutor() {
+        return callbackExecutor;
+    }
+
+    public Context getContext() {
+        return context;
+    }
+
+    public RecoveredUploadCallback getRecoveredUploadCallback() {
+        return recoveredUploadCallback;
+    }
+
+    public static class Builder {
+
+        private OkHttpClient okHttpClient = null;
+        private Gson gson = null;
+        private UploadScheduler scheduler = null;
+        private Executor callbackExecutor = null;
+        private Context context = null;
+        private RecoveredUploadCallback recoveredUploadCallback = null;
+
+        public OkHttpClient getOkHttpClient() {
+            return okHttpClient;
+        }
+
+        /**
+         * Share the connection pool and dispatcher of the app's own client instead of running a second one.
+         * The client is derived with {@link OkHttpClient#newBuilder()},so the app's client itself is not changed.
+         * The limits of the shared dispatcher,and the TLS settings,resolver and protocols of the client are left as the app
+         * set them,so the uploads reuse the connections of the app.
+         *
+         * @param okHttpClient The app's client.
+         */
+        public Builder setOkHttpClient(@NonNull OkHttpClient okHttpClient) {
+            this.okHttpClient = okHttpClient;
+            return this;
+        }
+
+        public Gson getGson() {
+            return gson;
+        }
+
+        public Builder setGson(@NonNull Gson gson) {
+            this.gson = gson;
+            return this;
+        }
+
+        public UploadScheduler getScheduler() {
+            return scheduler;
+        }
+
+        /**
+         * @param scheduler The scheduler running the upload tasks,e.g. one whose threads come from the app's
+         *                  {@link java.util.concurrent.ThreadFactory}.
+         */
+        public Builder setScheduler(@NonNull UploadScheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public Executor getCallbackExecutor() {
+            return callbackExecutor;
+        }
+
+        /**
+         * @param callbackExecutor The executor the callbacks and listeners are run on,the main thread by default.
+         */
+        public Builder setCallbackExecutor(@NonNull Executor callbackExecutor) {
+            this.callbackExecutor = callbackExecutor;
+            return this;
+        }
+
+        public Context getContext() {
+            return context;
+        }
+
+        /**
+         * Resume the unfinished durable upload tasks of the last process as soon as the singleton instance is created.
+         *
+         * @param context current context,only its application context is kept.
+         * @see UploadOptions.Builder#setDurable(boolean)
+         */
+        public Builder setContext(@NonNull Context context) {
+            this.context = context.getApplicationContext();
+            return this;
+        }
+
+        public RecoveredUploadCallback getRecoveredUploadCallback() {
+            return recoveredUploadCallback;
+        }
+
+        /**
+         * @param recoveredUploadCallback The callback of the durable upload tasks resumed from the last process.
+         */
+        public Builder setRecoveredUploadCallback(@NonNull RecoveredUploadCallback recoveredUploadCallback) {
+            this.recoveredUploadCallback = recoveredUploadCallback;
+            return this;
+        }
+
+        public FilePortalOptions build() {
+            return new FilePortalOptions(this);
+        }
+    }
+}
@@ -3,11 +3,14 @@ package com.dcz.fileportal.options;
 import android.content.Context;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import com.dcz.fileportal.network.BandwidthLimiter;
 import com.dcz.fileportal.network.ProgressListener;
 import com.dcz.fileportal.network.callbacks.FileUploadResultCallback;
 
 import java.io.File;
+import java.util.concurrent.Executor;
 
 public class UploadOptions {
 
@@ -17,8 +20,16 @@ public class UploadOptions {
     private final File file;
     private final FileUploadResultCallback fileUploadResultCallback;
     private final ProgressListener progressListener;
+    private final Executor callbackExecutor;
     private final String accessVerify;
     private final String mode;
+    private final long chunkSize;
+    private final int chunkConcurrency;
+    private final int priority;
+    private final RetryPolicy retryPolicy;
+    private final BandwidthLimiter bandwidthLimiter;
+    private final boolean durable;
+    private final int constraints;
 
     private UploadOptions(Builder builder) {
         this.context = builder.getContext();
@@ -27,8 +38,16 @@ public class UploadOptions {
         this.file = builder.getFile();
         this.fileUploadResultCallback = builder.getFileUploadResultCallback();
         this.progressListener = builder.getProgressListener();
+        this.callbackExecutor = builder.getCallbackExecutor();
         this.accessVerify = builder.getAccessVerify();
         this.mode = builder.getMode();
+        this.chunkSize = builder.getChunkSize();
+        this.chunkConcurrency = builder.getChunkConcurrency();
+        this.priority = builder.getPriority();
+        this.retryPolicy = builder.getRetryPolicy();
+        this.bandwidthLimiter = builder.getBandwidthLimiter();
+        this.durable = builder.isDurable();
+        this.constraints = builder.getConstraints();
     }
 
     public Context getContext() {
@@ -55,6 +74,10 @@ public class UploadOptions {
         return progressListener;
     }
 
+    public Executor getCallbackExecutor() {
+        return callbackExecutor;
+    }
+
     public String getAccessVerify() {
         return accessVerify;
     }
@@ -63,6 +86,52 @@ public class UploadOptions {
         return mode;
     }
 
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getChunkConcurrency() {
+        return chunkConcurrency;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public BandwidthLimiter getBandwidthLimiter() {
+        return bandwidthLimiter;
+    }
+
+    public boolean isDurable() {
+        return durable;
+    }
+
+    public int getConstraints() {
+        return constraints;
+    }
+
+    /**
+     * @return A builder with all options of this task applied.
+     */
+    public Builder newBuilder() {
+        return new Builder(context, uid, apiKey, file)
+                .setFileUploadResultCallback(fileUploadResultCallback)
+                .setProgressListener(progressListener)
+                .setCallbackExecutor(callbackExecutor)
+                .setAccessVerify(accessVerify)
+                .setMode(mode)
+                .setChunkSize(chunkSize)
+                .setChunkConcurrency(chunkConcurrency)
+                .setPriority(priority)
+                .setRetryPolicy(retryPolicy)
+                .setBandwidthLimiter(bandwidthLimiter)
+                .setDurable(durable)
+                .setConstraints(constraints);
+    }
 
     public static class Builder {
 
@@ -74,6 +143,14 @@ public class UploadOptions {
         private String mode = ModeOption.MODE_STAY;
         private FileUploadResultCallback fileUploadResultCallback = null;
         private ProgressListener progressListener = null;
+        private Executor callbackExecutor = null;
+        private long chunkSize = 0;
+        private int chunkConcurrency = 1;
+        private int priority = PriorityOption.PRIORITY_USER_VISIBLE;
+        private RetryPolicy retryPolicy = new RetryPolicy.Builder().build();
+        private BandwidthLimiter bandwidthLimiter = null;
+        private boolean durable = false;
+        private int constraints = ConstraintOption.CONSTRAINT_NONE;
 
         /**
          * @param context current context.
@@ -140,6 +217,132 @@ public class UploadOptions {
             return this;
         }
 
+        public Executor getCallbackExecutor() {
+            return callbackExecutor;
+        }
+
+        /**
+         * Run the callback and the progress listener of this task on the given executor rather than the one of
+         * {@link FilePortalOptions.Builder#setCallbackExecutor(Executor)},e.g. {@code Runnable::run} to run them right
+         * on the upload thread when the task is started from a background worker.
+         *
+         * @param callbackExecutor The executor,null for the global one(default).
+         */
+        public Builder setCallbackExecutor(@Nullable Executor callbackExecutor) {
+            this.callbackExecutor = callbackExecutor;
+            return this;
+        }
+
+        public long getChunkSize() {
+            return chunkSize;
+        }
+
+        /**
+         * Upload the file in chunks of the given size,an interrupted upload will resume from the last acknowledged chunk.
+         * Files not larger than one chunk are uploaded with a single request.
+         *
+         * @param chunkSize Size of each chunk in bytes,0 to disable chunked upload(default).
+         */
+        public Builder setChunkSize(long chunkSize) {
+            if (chunkSize < 0) {
+                throw new IllegalArgumentException("chunkSize < 0");
+            }
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        public int getChunkConcurrency() {
+            return chunkConcurrency;
+        }
+
+        /**
+         * Upload several chunks of the file at once over separate connections,which speeds up large files on links
+         * where a single stream is bound by the round-trip time.Only takes effect with {@link #setChunkSize(long)}.
+         *
+         * @param chunkConcurrency Max chunks in flight at once(default 1),capped by the max requests per host.
+         */
+        public Builder setChunkConcurrency(int chunkConcurrency) {
+            if (chunkConcurrency < 1) {
+                throw new IllegalArgumentException("chunkConcurrency < 1");
+            }
+            this.chunkConcurrency = chunkConcurrency;
+            return this;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        /**
+         * @param priority {@link PriorityOption},the default value is {@link PriorityOption#PRIORITY_USER_VISIBLE}.
+         */
+        public Builder setPriority(int priority) {
+            this.priority = priority;
+            return this;
+        }
+
+        public RetryPolicy getRetryPolicy() {
+            return retryPolicy;
+        }
+
+        /**
+         * @param retryPolicy Timeouts of the requests and how failed ones are retried,see {@link RetryPolicy.Builder}
+         *                    for the default values.
+         */
+        public Builder setRetryPolicy(@NonNull RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        public BandwidthLimiter getBandwidthLimiter() {
+            return bandwidthLimiter;
+        }
+
+        /**
+         * Cap the upload rate of this task,in addition to the global cap of
+         * {@link com.dcz.fileportal.FilePortal#getBandwidthLimiter()}.Keep the limiter to change the cap while uploading,
+         * or share it among several tasks to cap them together.
+         *
+         * @param bandwidthLimiter The limiter,null for none(default).
+         */
+        public Builder setBandwidthLimiter(@Nullable BandwidthLimiter bandwidthLimiter) {
+            this.bandwidthLimiter = bandwidthLimiter;
+            return this;
+        }
+
+        public boolean isDurable() {
+            return durable;
+        }
+
+        /**
+         * Record the task in a journal on disk,so it survives the death of the process.Unfinished durable tasks are
+         * resumed by {@link com.dcz.fileportal.FilePortal#getInstance()} if a context is given to
+         * {@link FilePortalOptions.Builder#setContext(Context)},otherwise by the next durable upload.
+         * Their results are then reported to {@link FilePortalOptions.Builder#setRecoveredUploadCallback}.
+         * A task which failed for a network error is kept and tried again when the network or the power state changes,
+         * or after a backoff from 30s doubled up to 15min if neither does.
+         *
+         * @param durable Whether the task is durable,the default value is false.
+         */
+        public Builder setDurable(boolean durable) {
+            this.durable = durable;
+            return this;
+        }
+
+        public int getConstraints() {
+            return constraints;
+        }
+
+        /**
+         * Only takes effect with {@link #setDurable(boolean)},the task waits in the journal until the conditions are met.
+         *
+         * @param constraints {@link ConstraintOption},the default value is {@link ConstraintOption#CONSTRAINT_NONE}.
+         */
+        public Builder setConstraints(int constraints) {
+            this.constraints = constraints;
+            return this;
+        }
+
         public UploadOptions build() {
             return new UploadOptions(this);
         }
@@ -166,6 +166,7 @@ public final class ContentType {
 
     /**
      * Given a filename, look at the extension and try and determine the mime type.
+     * The common extensions are looked up in the table of {@link MimeTypes}, the others in {@link MimeTypeMap}.
      *
      * @param fileName           a filename to determine the type from, such as img1231.jpg
      * @param contentTypeDefault type to use when the content type can't be determined from the file
@@ -174,9 +175,13 @@ public final class ContentType {
      */
     public static String getContentTypeFromExtension(final String fileName,
                                                      final String contentTypeDefault) {
+        String contentType = MimeTypes.getInstance().getMimeType(fileName);
+        if (contentType != null) {
+            return contentType;
+        }
         final MimeTypeMap mimeTypeMap = MimeTypeMap.getSingleton();
         final String extension = MimeTypeMap.getFileExtensionFromUrl(fileName);
-        String contentType = mimeTypeMap.getMimeTypeFromExtension(extension);
+        contentType = mimeTypeMap.getMimeTypeFromExtension(extension);
         if (contentType == null) {
             contentType = contentTypeDefault;
         }
@@ -0,0 +1,74 @@
+package com.dcz.fileportal;
+
+import com.dcz.fileportal.network.callbacks.BatchUploadCallback;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Collect the results of a batch with {@link BatchTracker} on a pooled callback executor.
+ */
+public class BatchTrackerTest {
+
+    @Test
+    public void completesOnceWhenResultsArriveOnManyThreads() throws Exception {
+        final int count = 1000;
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            files.add(new File("missing-" + i));
+        }
+        final AtomicInteger completions = new AtomicInteger();
+        final AtomicInteger succeeded = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final BatchTracker tracker = new BatchTracker(files, new BatchUploadCallback() {
+            @Override
+            public void onSuccess(int index, File file, String url, boolean isCache) {
+            }
+
+            @Override
+            public void onFailure(int index, File file, Exception e) {
+            }
+
+            @Override
+            public void onProgress(int percent) {
+            }
+
+            @Override
+            public void onComplete(int s, int f) {
+                completions.incrementAndGet();
+                succeeded.set(s);
+                failed.set(f);
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            executor.execute(() -> {
+                if (index % 3 == 0) {
+                    tracker.resultCallbackOf(index).onFailure(new Exception());
+                } else {
+                    tracker.resultCallbackOf(index).onSuccess("https://fs/" + index, false);
+                }
+                //A late second result of the same file isn't counted.
+                tracker.resultCallbackOf(index).onSuccess("https://fs/" + index, false);
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1, completions.get());
+        assertEquals(666, succeeded.get());
+        assertEquals(334, failed.get());
+    }
+}
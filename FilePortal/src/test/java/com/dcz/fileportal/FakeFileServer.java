@@ -0,0 +1,156 @@
+package com.dcz.fileportal;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.ByteString;
+
+/**
+ * The file server behind a MockWebServer,serving {@code /token},{@code /preUpload} and {@code /upload}
+ * with configurable latency,bandwidth and error rate.
+ * <p>
+ * The bandwidth is one link shared by all connections:each request body takes its turn on it,
+ * as the uplink of a phone does.Files are kept by their MD5 hash only,so {@code /preUpload} finds the ones
+ * uploaded before or {@link #preload(String) preloaded}.
+ *
+ * @see okhttp3.mockwebserver.MockWebServer#setDispatcher(Dispatcher)
+ */
+class FakeFileServer extends Dispatcher {
+
+    private static final String TOKEN_RESPONSE = "{\"ret\":200,\"msg\":\"ok\",\"data\":"
+            + "{\"token\":\"load-test-token\",\"date_expired\":\"2099-12-31 11:59:59\"}}";
+
+    private final long mLatencyMs;
+    private final long mBytesPerSecond;
+    private final double mErrorRate;
+    private final Random mRandom;
+    private final Set<String> mFiles = ConcurrentHashMap.newKeySet();
+    //When the shared link is free again,in nanoseconds.
+    private long mLinkFreeAt;
+    final AtomicInteger tokenRequests = new AtomicInteger();
+    final AtomicInteger preUploadRequests = new AtomicInteger();
+    final AtomicInteger uploadRequests = new AtomicInteger();
+    final AtomicInteger errors = new AtomicInteger();
+    final AtomicLong receivedBytes = new AtomicLong();
+
+    /**
+     * @param latencyMs      Added to every response.
+     * @param bytesPerSecond Bandwidth of the link receiving the request bodies,0 for unlimited.
+     * @param errorRate      Chance of a request failing with 503,from 0 to 1.
+     * @param seed           Seed of the errors,so runs are repeatable.
+     */
+    FakeFileServer(long latencyMs, long bytesPerSecond, double errorRate, long seed) {
+        mLatencyMs = latencyMs;
+        mBytesPerSecond = bytesPerSecond;
+        mErrorRate = errorRate;
+        mRandom = new Random(seed);
+    }
+
+    /**
+     * The server has the file already,its pre upload check succeeds.
+     */
+    void preload(String md5) {
+        mFiles.add(md5);
+    }
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        long bodySize = request.getBodySize();
+        receivedBytes.addAndGet(bodySize);
+        transmit(bodySize);
+        if (mLatencyMs > 0) {
+            Thread.sleep(mLatencyMs);
+        }
+        String path = request.getPath();
+        if (path.endsWith("/token")) {
+            tokenRequests.incrementAndGet();
+            return failed() ? unavailable() : new MockResponse().setBody(TOKEN_RESPONSE);
+        }
+        if (path.endsWith("/preUpload")) {
+            preUploadRequests.incrementAndGet();
+            if (failed()) return unavailable();
+            String md5 = parseForm(request.getBody().readUtf8()).get(Constants.NET_KEY_MD5);
+            return mFiles.contains(md5) ? new MockResponse().setBody(success(md5))
+                    : new MockResponse().setBody("{\"ret\":404,\"msg\":\"not found\"}");
+        }
+        if (path.endsWith("/upload")) {
+            uploadRequests.incrementAndGet();
+            if (failed()) return unavailable();
+            String md5 = parseMultipart(request).get(Constants.NET_KEY_MD_UPPER).utf8();
+            mFiles.add(md5);
+            return new MockResponse().setBody(success(md5));
+        }
+        return new MockResponse().setResponseCode(404);
+    }
+
+    /**
+     * Hold the request until its body has gone through the shared link.
+     */
+    private void transmit(long bodySize) throws InterruptedException {
+        if (mBytesPerSecond <= 0 || bodySize <= 0) return;
+        long doneAt;
+        synchronized (this) {
+            long start = Math.max(System.nanoTime(), mLinkFreeAt);
+            doneAt = start + bodySize * 1_000_000_000L / mBytesPerSecond;
+            mLinkFreeAt = doneAt;
+        }
+        long waitNanos = doneAt - System.nanoTime();
+        if (waitNanos > 0) {
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        }
+    }
+
+    private boolean failed() {
+        boolean failed;
+        synchronized (mRandom) {
+            failed = mErrorRate > 0 && mRandom.nextDouble() < mErrorRate;
+        }
+        if (failed) errors.incrementAndGet();
+        return failed;
+    }
+
+    private static MockResponse unavailable() {
+        return new MockResponse().setResponseCode(503);
+    }
+
+    private static String success(String md5) {
+        return "{\"ret\":200,\"msg\":\"ok\",\"data\":{\"url\":\"https://fs.example.com/files/" + md5 + "\"}}";
+    }
+
+    private static Map<String, String> parseForm(String body) {
+        Map<String, String> fields = new HashMap<>();
+        for (String pair : body.split("&")) {
+            String[] kv = pair.split("=", 2);
+            if (kv.length == 2) fields.put(kv[0], kv[1]);
+        }
+        return fields;
+    }
+
+    private static Map<String, ByteString> parseMultipart(RecordedRequest request) {
+        String contentType = request.getHeader("Content-Type");
+        ByteString boundary = ByteString.encodeUtf8("--" + contentType.substring(contentType.indexOf("boundary=") + 9));
+        ByteString body = request.getBody().readByteString();
+        Map<String, ByteString> parts = new HashMap<>();
+        int start = body.indexOf(boundary);
+        while (true) {
+            int next = body.indexOf(boundary, start + boundary.size());
+            if (next == -1) break;
+            ByteString part = body.substring(start + boundary.size() + 2, next - 2);
+            int headerEnd = part.indexOf(ByteString.encodeUtf8("\r\n\r\n"));
+            String headers = part.substring(0, headerEnd).utf8();
+            int nameStart = headers.indexOf("name=\"") + 6;
+            String name = headers.substring(nameStart, headers.indexOf('"', nameStart));
+            parts.put(name, part.substring(headerEnd + 4));
+            start = next;
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,40 @@
+package com.dcz.fileportal;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Run {@link LoadGenerator} under Robolectric and print its report.
+ * The default scenario is small enough for every build,size it up with the {@code fileportal.load.*} system properties:
+ * <pre>
+ * ./gradlew :FilePortal:testDebugUnitTest --tests '*FilePortalLoadTest' -Dfileportal.load.tasks=2000 -Dfileportal.load.concurrency=32
+ * </pre>
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class FilePortalLoadTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void uploadsUnderLoad() throws Exception {
+        LoadGenerator.Scenario scenario = LoadGenerator.Scenario.fromSystemProperties();
+
+        LoadGenerator.Report report = new LoadGenerator(ApplicationProvider.getApplicationContext(), folder.getRoot())
+                .run(scenario);
+        System.out.println(report);
+
+        assertTrue(report.completed);
+        assertEquals(scenario.tasks, report.succeeded + report.failed);
+    }
+}
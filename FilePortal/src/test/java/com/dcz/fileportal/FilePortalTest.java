@@ -0,0 +1,166 @@
+package com.dcz.fileportal;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.dcz.fileportal.exceptions.MalformedResponseException;
+import com.dcz.fileportal.options.FilePortalOptions;
+import com.dcz.fileportal.options.RetryPolicy;
+import com.dcz.fileportal.options.UploadOptions;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Run {@link FilePortal} under Robolectric against a local server whose answers each test picks.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class FilePortalTest {
+
+    private static final String TOKEN_RESPONSE = "{\"ret\":200,\"msg\":\"ok\",\"data\":"
+            + "{\"token\":\"portal-token\",\"date_expired\":\"2099-12-31 11:59:59\"}}";
+    private static final String NOT_FOUND_RESPONSE = "{\"ret\":404,\"msg\":\"not found\"}";
+    private static final String UPLOADED_RESPONSE = "{\"ret\":200,\"msg\":\"ok\",\"data\":{\"url\":\"https://fs/photo\"}}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Server fileServer = new Server();
+    private MockWebServer server;
+    private OkHttpClient client;
+    private FilePortal portal;
+    private Context context;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(fileServer);
+        server.start();
+        final HttpUrl base = server.url("/");
+        //The endpoints are constants,send them to the local server.
+        client = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    Request request = chain.request();
+                    HttpUrl url = request.url().newBuilder().scheme("http").host(base.host()).port(base.port()).build();
+                    return chain.proceed(request.newBuilder().url(url).build());
+                })
+                .build();
+        portal = new FilePortal(new FilePortalOptions.Builder()
+                .setOkHttpClient(client)
+                .setCallbackExecutor(Runnable::run)
+                .build());
+        context = ApplicationProvider.getApplicationContext();
+        file = folder.newFile("photo.jpg");
+        byte[] content = new byte[20_000];
+        new Random(1).nextBytes(content);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content);
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        portal.shutDownAllTasksNow();
+        client.dispatcher().executorService().shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void garbageBodyFailsTheTask() throws Exception {
+        fileServer.uploadBody = "<html><body>Sign in to the Wi-Fi</body></html>";
+
+        UploadFuture future = portal.upload(newOptions().setRetryPolicy(new RetryPolicy.Builder().setMaxAttempts(1).build())
+                .build());
+
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof MalformedResponseException);
+        }
+        assertEquals(0, portal.getMetricsSnapshot().getTasksInFlight());
+    }
+
+    @Test
+    public void taskWaitingForALeaderWhichThrowsUploadsItself() throws Exception {
+        final CountDownLatch followerSubmitted = new CountDownLatch(1);
+        UploadFuture leader = portal.upload(newOptions()
+                .setProgressListener(percent -> {
+                    try {
+                        followerSubmitted.await();
+                        //Long enough for the follower to be hashed and wait behind the leader.
+                        Thread.sleep(300);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new IllegalStateException("listener");
+                })
+                .build());
+        UploadFuture follower = portal.upload(newOptions().build());
+        followerSubmitted.countDown();
+
+        try {
+            leader.get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals("https://fs/photo", follower.get(10, TimeUnit.SECONDS).getUrl());
+        assertEquals(0, portal.getMetricsSnapshot().getTasksInFlight());
+    }
+
+    private UploadOptions.Builder newOptions() {
+        return new UploadOptions.Builder(context, "uid", "apiKey", file);
+    }
+
+    /**
+     * Grant tokens,have no file before and answer uploads with {@link #uploadBody}.
+     */
+    private static class Server extends Dispatcher {
+        volatile String uploadBody = UPLOADED_RESPONSE;
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            String path = request.getPath();
+            if (path.endsWith("/token")) {
+                return new MockResponse().setBody(TOKEN_RESPONSE);
+            }
+            if (path.endsWith("/preUpload")) {
+                return new MockResponse().setBody(NOT_FOUND_RESPONSE);
+            }
+            if (path.endsWith("/upload")) {
+                return new MockResponse().setBody(uploadBody);
+            }
+            return new MockResponse().setResponseCode(404);
+        }
+    }
+}
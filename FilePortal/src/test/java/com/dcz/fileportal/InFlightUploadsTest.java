@@ -0,0 +1,75 @@
+package com.dcz.fileportal;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Lead,wait and hand over uploads of the same content with {@link InFlightUploads}.
+ */
+public class InFlightUploadsTest {
+
+    private final InFlightUploads<String> uploads = new InFlightUploads<>();
+    private final String key = InFlightUploads.keyOf("md5", "0", "1");
+
+    @Test
+    public void laterTasksWaitForTheLeader() {
+        assertTrue(uploads.join(key, "a"));
+        assertFalse(uploads.join(key, "b"));
+        assertFalse(uploads.join(key, "c"));
+        //Other content,or the same content kept another way,isn't shared.
+        assertTrue(uploads.join(InFlightUploads.keyOf("md5", "1", "1"), "d"));
+        assertEquals(4, uploads.size());
+
+        assertEquals(Arrays.asList("b", "c"), uploads.complete("a"));
+        assertEquals(1, uploads.size());
+        assertEquals(Collections.emptyList(), uploads.complete("b"));
+        assertTrue(uploads.join(key, "e"));
+    }
+
+    @Test
+    public void nextTaskLeadsWhenTheLeaderFails() {
+        uploads.join(key, "a");
+        uploads.join(key, "b");
+        uploads.join(key, "c");
+
+        //A waiting task failing hands over nothing.
+        assertNull(uploads.handOver("c"));
+        assertEquals("b", uploads.handOver("a"));
+        //Submitted again,it leads.
+        assertTrue(uploads.join(key, "b"));
+        assertFalse(uploads.join(key, "a"));
+
+        assertEquals(Collections.singletonList("a"), uploads.complete("b"));
+        assertEquals(0, uploads.size());
+    }
+
+    @Test
+    public void waitingTaskLeaves() {
+        uploads.join(key, "a");
+        uploads.join(key, "b");
+        uploads.join(key, "c");
+
+        //The leader can't leave,it fails or hands over instead.
+        assertFalse(uploads.leave("a"));
+        assertTrue(uploads.leave("b"));
+        assertFalse(uploads.leave("b"));
+        assertEquals(Collections.singletonList("c"), uploads.complete("a"));
+        assertFalse(uploads.leave("c"));
+    }
+
+    @Test
+    public void lastTaskFailingEndsTheKey() {
+        uploads.join(key, "a");
+        assertNull(uploads.handOver("a"));
+        assertNull(uploads.handOver("a"));
+        assertEquals(0, uploads.size());
+        assertTrue(uploads.join(key, "b"));
+    }
+}
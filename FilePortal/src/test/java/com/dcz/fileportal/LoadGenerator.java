@@ -0,0 +1,339 @@
+package com.dcz.fileportal;
+
+import android.content.Context;
+
+import com.dcz.fileportal.metrics.UploadMetrics;
+import com.dcz.fileportal.network.callbacks.FileUploadResultCallback;
+import com.dcz.fileportal.options.FilePortalOptions;
+import com.dcz.fileportal.options.UploadOptions;
+import com.dcz.fileportal.utils.Utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.mockwebserver.MockWebServer;
+
+/**
+ * Drive concurrent uploads of {@link FilePortal} against a {@link FakeFileServer} and report how they went.
+ * <p>
+ * The library talks to the fake server through the app provided client,whose interceptor sends the requests
+ * for the backend server to the local one,so nothing else differs from production.The local server speaks
+ * plain HTTP/1.1,the TLS handshake and HTTP/2 multiplexing are left out.
+ */
+class LoadGenerator {
+
+    private static final long AWAIT_MINUTES = 10;
+    private static final long SAMPLE_INTERVAL_MS = 20;
+
+    private final Context mContext;
+    private final File mDir;
+
+    /**
+     * @param context Context of the tasks,e.g. the application of Robolectric.
+     * @param dir     Where the files to upload are written.
+     */
+    LoadGenerator(Context context, File dir) {
+        mContext = context;
+        mDir = dir;
+    }
+
+    Report run(Scenario scenario) throws IOException, InterruptedException {
+        final FakeFileServer fileServer = new FakeFileServer(scenario.latencyMs, scenario.bytesPerSecond,
+                scenario.errorRate, scenario.seed);
+        final MockWebServer server = new MockWebServer();
+        server.setDispatcher(fileServer);
+        server.start();
+        try {
+            final List<File> files = createFiles(scenario, fileServer);
+            final HttpUrl target = server.url("/");
+            OkHttpClient client = new OkHttpClient.Builder()
+                    .addInterceptor(chain -> {
+                        Request request = chain.request();
+                        HttpUrl url = request.url().newBuilder()
+                                .scheme(target.scheme()).host(target.host()).port(target.port())
+                                .build();
+                        return chain.proceed(request.newBuilder().url(url).build());
+                    })
+                    .build();
+            FilePortal portal = new FilePortal(new FilePortalOptions.Builder()
+                    .setOkHttpClient(client)
+                    .setCallbackExecutor(Runnable::run)
+                    .build());
+            try {
+                return drive(portal, scenario, files, fileServer);
+            } finally {
+                portal.shutDownAllTasksNow();
+                client.dispatcher().executorService().shutdown();
+                client.connectionPool().evictAll();
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private Report drive(FilePortal portal, Scenario scenario, List<File> files, FakeFileServer fileServer)
+            throws InterruptedException {
+        final List<UploadMetrics> metrics = Collections.synchronizedList(new ArrayList<>());
+        portal.setMetricsListener(metrics::add);
+        final long[] latencies = new long[files.size()];
+        final AtomicInteger succeeded = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicLong uploadedBytes = new AtomicLong();
+        final Semaphore slots = new Semaphore(scenario.concurrency);
+        final CountDownLatch done = new CountDownLatch(files.size());
+        final Sampler sampler = new Sampler();
+
+        sampler.start();
+        final long start = System.nanoTime();
+        for (int i = 0; i < files.size(); i++) {
+            slots.acquire();
+            final int index = i;
+            final File file = files.get(i);
+            final long submittedAt = System.nanoTime();
+            portal.upload(new UploadOptions.Builder(mContext, "load-test", "apiKey", file)
+                    .setFileUploadResultCallback(new FileUploadResultCallback() {
+                        @Override
+                        public void onSuccess(String url, boolean isCache) {
+                            succeeded.incrementAndGet();
+                            uploadedBytes.addAndGet(file.length());
+                            finish();
+                        }
+
+                        @Override
+                        public void onFailure(Exception e) {
+                            failed.incrementAndGet();
+                            finish();
+                        }
+
+                        private void finish() {
+                            latencies[index] = System.nanoTime() - submittedAt;
+                            slots.release();
+                            done.countDown();
+                        }
+                    })
+                    .build());
+        }
+        boolean completed = done.await(AWAIT_MINUTES, TimeUnit.MINUTES);
+        final long elapsed = System.nanoTime() - start;
+        sampler.stop();
+
+        Report report = new Report();
+        report.tasks = files.size();
+        report.completed = completed;
+        report.succeeded = succeeded.get();
+        report.failed = failed.get();
+        report.elapsedMs = elapsed / 1_000_000;
+        long[] sorted = Arrays.copyOf(latencies, latencies.length);
+        Arrays.sort(sorted);
+        report.p50Ms = percentile(sorted, 50) / 1_000_000;
+        report.p99Ms = percentile(sorted, 99) / 1_000_000;
+        report.maxMs = sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1_000_000;
+        report.uploadedBytesPerSecond = uploadedBytes.get() * 1_000_000_000L / Math.max(1, elapsed);
+        report.sentBytesPerSecond = fileServer.receivedBytes.get() * 1_000_000_000L / Math.max(1, elapsed);
+        report.peakThreads = sampler.peakThreads;
+        report.allocatedBytesPerSecond = sampler.allocatedBytes < 0 ? -1
+                : sampler.allocatedBytes * 1_000_000_000L / Math.max(1, elapsed);
+        synchronized (metrics) {
+            for (UploadMetrics taskMetrics : metrics) {
+                if (taskMetrics.getCacheHit() == UploadMetrics.CACHE_SERVER) report.serverCacheHits++;
+                report.retries += taskMetrics.getRetries();
+            }
+        }
+        report.tokenRequests = fileServer.tokenRequests.get();
+        report.preUploadRequests = fileServer.preUploadRequests.get();
+        report.uploadRequests = fileServer.uploadRequests.get();
+        report.serverErrors = fileServer.errors.get();
+        return report;
+    }
+
+    /**
+     * Write the files of the scenario,and preload the server with the ones it should have already.
+     */
+    private List<File> createFiles(Scenario scenario, FakeFileServer fileServer) throws IOException {
+        Random random = new Random(scenario.seed);
+        int totalWeight = 0;
+        for (int weight : scenario.weights) {
+            totalWeight += weight;
+        }
+        List<File> files = new ArrayList<>(scenario.tasks);
+        for (int i = 0; i < scenario.tasks; i++) {
+            int pick = random.nextInt(totalWeight);
+            int sizeIndex = 0;
+            while (pick >= scenario.weights[sizeIndex]) {
+                pick -= scenario.weights[sizeIndex];
+                sizeIndex++;
+            }
+            byte[] bytes = new byte[scenario.sizes[sizeIndex]];
+            random.nextBytes(bytes);
+            File file = new File(mDir, "load_" + i + ".jpg");
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(bytes);
+            }
+            if (random.nextDouble() < scenario.dedupRatio) {
+                fileServer.preload(Utils.md5(file));
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * Sample the live threads while the load runs:the peak count,and the bytes they allocated where the JVM tells.
+     */
+    private static class Sampler implements Runnable {
+        private final ThreadMXBean mThreads = ManagementFactory.getThreadMXBean();
+        //Allocated bytes of each thread seen,as threads may finish before the end.
+        private final Map<Long, Long> mAllocated = new HashMap<>();
+        private final Map<Long, Long> mAllocatedAtStart = new HashMap<>();
+        private volatile boolean mRunning;
+        private Thread mThread;
+        int peakThreads;
+        long allocatedBytes = -1;
+
+        void start() {
+            mThreads.resetPeakThreadCount();
+            sample(mAllocatedAtStart);
+            mRunning = true;
+            mThread = new Thread(this, "LoadGenerator-sampler");
+            mThread.setDaemon(true);
+            mThread.start();
+        }
+
+        @Override
+        public void run() {
+            while (mRunning) {
+                sample(mAllocated);
+                try {
+                    Thread.sleep(SAMPLE_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        void stop() throws InterruptedException {
+            mRunning = false;
+            mThread.interrupt();
+            mThread.join();
+            sample(mAllocated);
+            peakThreads = mThreads.getPeakThreadCount();
+            if (!(mThreads instanceof com.sun.management.ThreadMXBean)) return;
+            long total = 0;
+            for (Map.Entry<Long, Long> entry : mAllocated.entrySet()) {
+                Long atStart = mAllocatedAtStart.get(entry.getKey());
+                total += entry.getValue() - (atStart == null ? 0 : atStart);
+            }
+            allocatedBytes = total;
+        }
+
+        private void sample(Map<Long, Long> into) {
+            if (!(mThreads instanceof com.sun.management.ThreadMXBean)) return;
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) mThreads;
+            long[] ids = threads.getAllThreadIds();
+            long[] allocated = threads.getThreadAllocatedBytes(ids);
+            for (int i = 0; i < ids.length; i++) {
+                if (allocated[i] >= 0) into.put(ids[i], allocated[i]);
+            }
+        }
+    }
+
+    /**
+     * What to run.The defaults are a quick run,set the {@code fileportal.load.*} system properties for a real one.
+     */
+    static class Scenario {
+        int tasks = 60;
+        int concurrency = 8;
+        //Thumbnails,photos and short videos.
+        int[] sizes = {16 * 1024, 512 * 1024, 4 * 1024 * 1024};
+        int[] weights = {50, 35, 15};
+        //Share of the files the server has already.
+        double dedupRatio = 0.2;
+        long latencyMs = 20;
+        //0 for unlimited.
+        long bytesPerSecond = 0;
+        double errorRate = 0.01;
+        long seed = 20210315L;
+
+        static Scenario fromSystemProperties() {
+            Scenario scenario = new Scenario();
+            scenario.tasks = Integer.getInteger("fileportal.load.tasks", scenario.tasks);
+            scenario.concurrency = Integer.getInteger("fileportal.load.concurrency", scenario.concurrency);
+            scenario.dedupRatio = doubleProperty("fileportal.load.dedupRatio", scenario.dedupRatio);
+            scenario.latencyMs = Long.getLong("fileportal.load.latencyMs", scenario.latencyMs);
+            scenario.bytesPerSecond = Long.getLong("fileportal.load.bytesPerSecond", scenario.bytesPerSecond);
+            scenario.errorRate = doubleProperty("fileportal.load.errorRate", scenario.errorRate);
+            scenario.seed = Long.getLong("fileportal.load.seed", scenario.seed);
+            return scenario;
+        }
+
+        private static double doubleProperty(String key, double defaultValue) {
+            String value = System.getProperty(key);
+            return value == null ? defaultValue : Double.parseDouble(value);
+        }
+    }
+
+    /**
+     * Result of a run.Latency is end to end,from {@link FilePortal#upload(UploadOptions)} to the result callback.
+     */
+    static class Report {
+        int tasks;
+        boolean completed;
+        int succeeded;
+        int failed;
+        long elapsedMs;
+        long p50Ms;
+        long p99Ms;
+        long maxMs;
+        //Bytes of the files uploaded or found on the server,per second.
+        long uploadedBytesPerSecond;
+        //Bytes of all request bodies the server received,per second.
+        long sentBytesPerSecond;
+        int peakThreads;
+        //-1 if the JVM doesn't tell.
+        long allocatedBytesPerSecond;
+        int serverCacheHits;
+        int retries;
+        int tokenRequests;
+        int preUploadRequests;
+        int uploadRequests;
+        int serverErrors;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "tasks=%d completed=%b succeeded=%d failed=%d elapsed=%dms%n"
+                            + "latency p50=%dms p99=%dms max=%dms%n"
+                            + "throughput files=%.2fMB/s sent=%.2fMB/s%n"
+                            + "peakThreads=%d allocation=%.2fMB/s%n"
+                            + "serverCacheHits=%d retries=%d requests token=%d preUpload=%d upload=%d serverErrors=%d",
+                    tasks, completed, succeeded, failed, elapsedMs, p50Ms, p99Ms, maxMs,
+                    uploadedBytesPerSecond / 1048576.0, sentBytesPerSecond / 1048576.0,
+                    peakThreads, allocatedBytesPerSecond / 1048576.0,
+                    serverCacheHits, retries, tokenRequests, preUploadRequests, uploadRequests, serverErrors);
+        }
+    }
+}
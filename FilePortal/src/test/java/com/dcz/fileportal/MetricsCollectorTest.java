@@ -0,0 +1,160 @@
+package com.dcz.fileportal;
+
+import com.dcz.fileportal.metrics.MetricsSnapshot;
+import com.dcz.fileportal.metrics.UploadMetrics;
+import com.dcz.fileportal.options.UploadOptions;
+import com.dcz.fileportal.scheduler.UploadScheduler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Record tasks with {@link MetricsCollector} against a local server.
+ */
+public class MetricsCollectorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private MetricsCollector collector;
+    private OkHttpClient client;
+    private UploadTask task;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        collector = new MetricsCollector();
+        client = new OkHttpClient.Builder().eventListenerFactory(collector).build();
+        File file = folder.newFile("photo.jpg");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[1000]);
+        }
+        task = new UploadTask(new UploadOptions.Builder(null, "uid", "apiKey", file).build());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void recordsTheCallsOfTheBoundTask() throws Exception {
+        final List<UploadMetrics> finished = new ArrayList<>();
+        collector.setListener(finished::add);
+        TaskRecorder recorder = collector.recorderOf(task);
+        TaskRecorder previous = collector.bind(recorder);
+        try {
+            post(300);
+            post(200);
+        } finally {
+            collector.unbind(previous);
+        }
+        //Not bound to the task any more.
+        post(100);
+        collector.finish(task, true, null, UploadMetrics.CACHE_NONE);
+
+        assertEquals(1, finished.size());
+        UploadMetrics metrics = finished.get(0);
+        assertTrue(metrics.isSuccess());
+        assertNull(metrics.getException());
+        assertEquals(2, metrics.getRequestCount());
+        assertEquals(500, metrics.getBytesSent());
+        assertEquals(2, metrics.getConnectionsAcquired());
+        assertEquals(1, metrics.getConnectionsOpened());
+        assertEquals(1, metrics.getConnectionsReused());
+        assertEquals(1000, metrics.getFileLength());
+    }
+
+    @Test
+    public void appListenerIsStillTold() throws Exception {
+        final List<String> appEvents = new ArrayList<>();
+        OkHttpClient appClient = new OkHttpClient.Builder()
+                .eventListener(new EventListener() {
+                    @Override
+                    public void callEnd(Call call) {
+                        appEvents.add(call.request().url().encodedPath());
+                    }
+                })
+                .build();
+        client = appClient.newBuilder().eventListenerFactory(collector.forwardingTo(appClient.eventListenerFactory())).build();
+        TaskRecorder recorder = collector.recorderOf(task);
+        TaskRecorder previous = collector.bind(recorder);
+        try {
+            post(300);
+        } finally {
+            collector.unbind(previous);
+        }
+        post(100);
+
+        assertEquals(2, appEvents.size());
+        final List<UploadMetrics> finished = new ArrayList<>();
+        collector.setListener(finished::add);
+        collector.finish(task, true, null, UploadMetrics.CACHE_NONE);
+        assertEquals(1, finished.get(0).getRequestCount());
+        assertEquals(300, finished.get(0).getBytesSent());
+    }
+
+    @Test
+    public void tasksOfTheSameOptionsAreRecordedApart() {
+        UploadTask again = new UploadTask(task.uploadOptions);
+        assertNotSame(collector.recorderOf(task), collector.recorderOf(again));
+        assertEquals(2, collector.snapshot(new UploadScheduler()).getTasksInFlight());
+    }
+
+    @Test
+    public void snapshotCountsTheBytesLeftToTransfer() {
+        TaskRecorder recorder = collector.recorderOf(task);
+        recorder.setTransferring(true);
+        recorder.onTransferred(400, 1000);
+
+        MetricsSnapshot snapshot = collector.snapshot(new UploadScheduler());
+        assertEquals(1, snapshot.getTasksInFlight());
+        assertEquals(1, snapshot.getUploadsInFlight());
+        assertEquals(600, snapshot.getInFlightBytes());
+
+        recorder.setTransferring(false);
+        collector.finish(task, false, new IOException(), UploadMetrics.CACHE_NONE);
+        snapshot = collector.snapshot(new UploadScheduler());
+        assertEquals(0, snapshot.getTasksInFlight());
+        assertEquals(0, snapshot.getInFlightBytes());
+        assertEquals(1, snapshot.getFailedTasks());
+        assertFalse(collector.recorderOf(task).isTransferring());
+    }
+
+    private void post(int bytes) throws IOException {
+        server.enqueue(new MockResponse().setBody("{}"));
+        Request request = new Request.Builder()
+                .url(server.url("/api/v1/upload"))
+                .post(RequestBody.create(MediaType.parse("application/octet-stream"), new byte[bytes]))
+                .build();
+        try (okhttp3.Response response = client.newCall(request).execute()) {
+            response.body().string();
+        }
+    }
+}
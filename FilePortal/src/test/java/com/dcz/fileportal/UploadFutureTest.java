@@ -0,0 +1,138 @@
+package com.dcz.fileportal;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Complete,cancel,pause and listen to {@link UploadFuture}.
+ */
+public class UploadFutureTest {
+
+    @Test
+    public void listenersRunOnceWhenDone() throws Exception {
+        UploadFuture future = new UploadFuture();
+        final List<String> calls = new ArrayList<>();
+        future.addListener(() -> calls.add("before"), Runnable::run);
+        assertTrue(calls.isEmpty());
+
+        assertTrue(future.succeed(new UploadResult("https://fs/a", "md5", true)));
+        future.addListener(() -> calls.add("after"), Runnable::run);
+
+        assertEquals(2, calls.size());
+        assertEquals("https://fs/a", future.get().getUrl());
+        assertTrue(future.get().isCached());
+        assertFalse(future.fail(new IOException()));
+    }
+
+    @Test
+    public void failureIsWrapped() throws Exception {
+        UploadFuture future = new UploadFuture();
+        IOException exception = new IOException();
+        future.fail(exception);
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(exception, e.getCause());
+        }
+    }
+
+    @Test
+    public void cancelWinsOverTheLateResult() throws Exception {
+        UploadFuture future = new UploadFuture();
+        assertTrue(future.cancel(false));
+
+        assertFalse(future.succeed(new UploadResult("https://fs/a", "md5", false)));
+        assertTrue(future.isCancelled());
+        assertTrue(future.isDone());
+        try {
+            future.get();
+            fail();
+        } catch (CancellationException expected) {
+        }
+    }
+
+    @Test
+    public void pauseAbortsTheStepAndResumeRunsTheTaskAgain() throws Exception {
+        final UploadFuture future = new UploadFuture();
+        final TaskRecorder recorder = new TaskRecorder(new File("missing"));
+        final CountDownLatch entered = new CountDownLatch(1);
+        final boolean[] interrupted = new boolean[1];
+        Thread step = new Thread(() -> {
+            assertTrue(future.enter(recorder));
+            try {
+                entered.countDown();
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted[0] = true;
+            } finally {
+                future.exit();
+            }
+        });
+        step.start();
+        entered.await();
+        assertTrue(future.pause());
+        step.join(5_000);
+        assertTrue(interrupted[0]);
+
+        //The step failed for the pause,the task is kept until resumed.
+        final List<String> runs = new ArrayList<>();
+        assertTrue(future.park(() -> runs.add("resumed")));
+        assertTrue(runs.isEmpty());
+        assertFalse(future.enter(recorder));
+        assertTrue(future.isPaused());
+        assertFalse(future.isDone());
+
+        assertTrue(future.resume());
+        assertEquals(1, runs.size());
+        assertTrue(future.enter(recorder));
+        future.exit();
+        assertFalse(future.park(() -> runs.add("again")));
+        assertEquals(1, runs.size());
+    }
+
+    @Test
+    public void resumeDuringTheFailingStepRunsTheTaskAgain() {
+        UploadFuture future = new UploadFuture();
+        assertTrue(future.enter(new TaskRecorder(new File("missing"))));
+        future.pause();
+        future.resume();
+        future.exit();
+        final List<String> runs = new ArrayList<>();
+        assertTrue(future.park(() -> runs.add("resumed")));
+        assertEquals(1, runs.size());
+    }
+
+    @Test
+    public void cancelRunsTheParkedTaskIntoItsCancellation() {
+        UploadFuture future = new UploadFuture();
+        future.pause();
+        final List<String> runs = new ArrayList<>();
+        assertTrue(future.park(() -> runs.add("cancelled")));
+        assertTrue(future.cancel(true));
+        assertEquals(1, runs.size());
+        assertFalse(future.resume());
+        assertFalse(future.enter(new TaskRecorder(new File("missing"))));
+        assertFalse(future.park(() -> runs.add("again")));
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void getTimesOut() throws Exception {
+        new UploadFuture().get(10, TimeUnit.MILLISECONDS);
+    }
+}
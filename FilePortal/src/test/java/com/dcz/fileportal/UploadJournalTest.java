@@ -0,0 +1,115 @@
+package com.dcz.fileportal;
+
+import com.dcz.fileportal.options.ConstraintOption;
+import com.dcz.fileportal.options.UploadOptions;
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reload {@link UploadJournal} from disk as a new process would.
+ */
+public class UploadJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File storeFile;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        storeFile = new File(folder.getRoot(), "journal.json");
+        file = folder.newFile("photo.jpg");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[]{1, 2, 3});
+        }
+    }
+
+    @Test
+    public void unfinishedTasksSurviveReload() {
+        UploadJournal journal = new UploadJournal(storeFile, new Gson());
+        UploadJournal.Entry entry = UploadJournal.newEntry(newOptions());
+        journal.add(entry);
+        assertTrue(journal.claim(entry));
+        journal.setMd5(entry, file.length(), file.lastModified(), "md5");
+        journal.setState(entry, UploadJournal.STATE_UPLOADING);
+
+        List<UploadJournal.Entry> entries = new UploadJournal(storeFile, new Gson()).getEntries();
+
+        assertEquals(1, entries.size());
+        UploadJournal.Entry restored = entries.get(0);
+        assertEquals(file.getAbsolutePath(), restored.path);
+        assertEquals("uid", restored.uid);
+        assertEquals(4096, restored.chunkSize);
+        assertEquals(ConstraintOption.CONSTRAINT_UNMETERED, restored.constraints);
+        assertEquals(UploadJournal.STATE_UPLOADING, restored.state);
+        assertEquals("md5", journal.getMd5(restored, file));
+        //Not running in the new process.
+        assertFalse(restored.running);
+        assertNull(restored.uploadOptions);
+    }
+
+    @Test
+    public void finishedTasksAreDropped() {
+        UploadJournal journal = new UploadJournal(storeFile, new Gson());
+        UploadJournal.Entry entry = UploadJournal.newEntry(newOptions());
+        journal.add(entry);
+        journal.remove(entry);
+
+        assertTrue(new UploadJournal(storeFile, new Gson()).getEntries().isEmpty());
+        assertFalse(journal.claim(entry));
+    }
+
+    @Test
+    public void md5IsDroppedOnceTheFileChanges() throws IOException {
+        UploadJournal journal = new UploadJournal(storeFile, new Gson());
+        UploadJournal.Entry entry = UploadJournal.newEntry(newOptions());
+        journal.add(entry);
+        journal.setMd5(entry, file.length(), file.lastModified(), "md5");
+
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(4);
+        }
+
+        assertNull(journal.getMd5(entry, file));
+    }
+
+    @Test
+    public void md5OfAFileChangedWhileHashedIsDropped() throws IOException {
+        UploadJournal journal = new UploadJournal(storeFile, new Gson());
+        UploadJournal.Entry entry = UploadJournal.newEntry(newOptions());
+        journal.add(entry);
+        long length = file.length();
+        long lastModified = file.lastModified();
+
+        //Appended while the old content was being hashed.
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(4);
+        }
+        journal.setMd5(entry, length, lastModified, "md5");
+
+        assertNull(journal.getMd5(entry, file));
+    }
+
+    private UploadOptions newOptions() {
+        return new UploadOptions.Builder(null, "uid", "apiKey", file)
+                .setChunkSize(4096)
+                .setDurable(true)
+                .setConstraints(ConstraintOption.CONSTRAINT_UNMETERED)
+                .build();
+    }
+}
@@ -0,0 +1,39 @@
+package com.dcz.fileportal.benchmark;
+
+import com.dcz.fileportal.utils.ContentType;
+import com.dcz.fileportal.utils.MimeTypes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolve the MIME type of file names with {@link ContentType#getContentTypeFromExtension(String, String)},
+ * and with the table of {@link MimeTypes} alone.
+ * Names missing from the table fall back to the plain JVM stand-in of MimeTypeMap in this module,
+ * whose cost says nothing about the platform's lookup,which can only be measured on a device.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ContentTypeBenchmark {
+
+    @Param({"IMG_20210315_131428.jpg", "VID_20210315_131428.MP4", "backup.tar.gz", "no_extension", "照片.png"})
+    public String fileName;
+
+    @Benchmark
+    public String contentTypeFromExtension() {
+        return ContentType.getContentTypeFromExtension(fileName, ContentType.IMAGE_PREFIX);
+    }
+
+    @Benchmark
+    public String mimeTypes() {
+        return MimeTypes.getInstance().getMimeType(fileName);
+    }
+}
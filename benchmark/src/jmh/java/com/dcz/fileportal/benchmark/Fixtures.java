@@ -0,0 +1,35 @@
+package com.dcz.fileportal.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Inputs of the benchmarks,generated from a fixed seed so every run hashes and sends the same bytes.
+ */
+final class Fixtures {
+
+    private static final long SEED = 20210315L;
+
+    private Fixtures() {
+    }
+
+    static byte[] bytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(SEED).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return A temporary file of the size,to be deleted by the caller.
+     */
+    static File createFile(String prefix, int size) throws IOException {
+        File file = File.createTempFile("fileportal-" + prefix, ".jpg");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(bytes(size));
+        }
+        return file;
+    }
+}
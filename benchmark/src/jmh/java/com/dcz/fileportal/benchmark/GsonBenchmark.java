@@ -0,0 +1,62 @@
+package com.dcz.fileportal.benchmark;
+
+import com.dcz.fileportal.network.ResponseDecoder;
+import com.dcz.fileportal.network.bean.Response;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+/**
+ * Decode the response body of pre upload and upload,{@code Response<UploadBean>},the way the library did and does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GsonBenchmark {
+
+    private static final String JSON = "{\"ret\":200,\"msg\":\"success\",\"data\":"
+            + "{\"url\":\"https://file.example.com/files/9e107d9d372bb6826bd81d3542a419d6.jpg\"}}";
+    private static final Type UPLOAD_TYPE = new TypeToken<Response<Response.UploadBean>>() {
+    }.getType();
+
+    private static final MediaType MEDIA_TYPE_JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final byte[] BYTES = JSON.getBytes();
+
+    private final Gson gson = new Gson();
+    private final ResponseDecoder decoder = new ResponseDecoder(gson);
+
+    //Read into a String,then decoded with a new TypeToken,as FilePortal#preUpload and FilePortal#doUpload did.
+    @Benchmark
+    public Response<Response.UploadBean> typeTokenPerCall() throws IOException {
+        return gson.fromJson(body().string(), new TypeToken<Response<Response.UploadBean>>() {
+        }.getType());
+    }
+
+    @Benchmark
+    public Response<Response.UploadBean> cachedType() throws IOException {
+        return gson.fromJson(body().string(), UPLOAD_TYPE);
+    }
+
+    //Decoded from the body stream with the adapter resolved once,as UploadEngine does.
+    @Benchmark
+    public Response<Response.UploadBean> streamed() throws IOException {
+        return decoder.decodeUpload(body());
+    }
+
+    private static ResponseBody body() {
+        return ResponseBody.create(MEDIA_TYPE_JSON, BYTES);
+    }
+}
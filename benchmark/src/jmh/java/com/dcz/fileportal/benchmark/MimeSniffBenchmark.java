@@ -0,0 +1,50 @@
+package com.dcz.fileportal.benchmark;
+
+import com.dcz.fileportal.utils.MimeTypes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tell the MIME type of a file without extension from its first bytes with {@link MimeTypes#sniff(File)},
+ * which opens and reads the file,unlike the lookups of {@link ContentTypeBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MimeSniffBenchmark {
+
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("fileportal-sniff", "");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            //The header of a HEIC photo,then random bytes.
+            out.write(new byte[]{0, 0, 0, 0x18, 'f', 't', 'y', 'p', 'h', 'e', 'i', 'c', 0, 0, 0, 0});
+            out.write(Fixtures.bytes(64 * 1024));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public String sniff() {
+        return MimeTypes.sniff(file);
+    }
+}
@@ -0,0 +1,82 @@
+package com.dcz.fileportal.benchmark;
+
+import com.dcz.fileportal.network.CountingFileRequestBody;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Sink;
+import okio.Timeout;
+
+/**
+ * Write a file through {@link CountingFileRequestBody#writeTo(BufferedSink)} into a sink which discards the bytes,
+ * so only the copying and the progress reports are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RequestBodyBenchmark {
+
+    @Param({"65536", "1048576", "16777216"})
+    public int fileSize;
+
+    private File file;
+    private CountingFileRequestBody body;
+    private long reported;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Fixtures.createFile("body", fileSize);
+        body = new CountingFileRequestBody(file, MediaType.parse("image/jpeg"),
+                (transferredBytes, totalBytes) -> reported = transferredBytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public long writeTo() throws IOException {
+        BufferedSink sink = Okio.buffer(new DiscardingSink());
+        body.writeTo(sink);
+        sink.flush();
+        return reported;
+    }
+
+    private static class DiscardingSink implements Sink {
+        @Override
+        public void write(Buffer source, long byteCount) throws IOException {
+            source.skip(byteCount);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.dcz.fileportal.benchmark;
+
+import com.dcz.fileportal.utils.Utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The small helpers of {@link Utils} which run for every task or every progress update.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UtilsBenchmark {
+
+    private static final long FILE_LENGTH = 7_340_032L;
+
+    //A token request signs uid,api key and package name.
+    private String source;
+    private byte[] digest;
+    private long transferred;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = "uid-10086" + "apiKey-5f4dcc3b5aa765d61d8327deb882cf99" + "com.dcz.fileportal.sample";
+        digest = Fixtures.bytes(16);
+    }
+
+    @Benchmark
+    public String md5String() {
+        return Utils.md5(source);
+    }
+
+    @Benchmark
+    public String hexEncoding() {
+        return Utils.byteArrayToHexString(digest);
+    }
+
+    @Benchmark
+    public int transferPercent() {
+        //Walk through the file in 64KB steps as the request body reports it.
+        transferred += 65536;
+        if (transferred > FILE_LENGTH) transferred = 0;
+        return Utils.getTransferPercent(transferred, FILE_LENGTH);
+    }
+}
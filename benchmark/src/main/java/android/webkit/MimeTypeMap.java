@@ -0,0 +1,75 @@
+package android.webkit;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Plain JVM stand-in of the Android class,so {@link com.dcz.fileportal.utils.ContentType} runs in the benchmarks.
+ * It only answers the common types,it is not a model of the platform's lookup or of its cost.
+ */
+public class MimeTypeMap {
+
+    private static final Pattern FILE_NAME = Pattern.compile("[a-zA-Z_0-9.\\-()%]+");
+    private static final MimeTypeMap INSTANCE = new MimeTypeMap();
+
+    private final Map<String, String> mMimeTypes = new HashMap<>();
+    private final Map<String, String> mExtensions = new HashMap<>();
+
+    private MimeTypeMap() {
+        add("jpg", "image/jpeg");
+        add("jpeg", "image/jpeg");
+        add("png", "image/png");
+        add("gif", "image/gif");
+        add("webp", "image/webp");
+        add("bmp", "image/bmp");
+        add("heic", "image/heic");
+        add("mp4", "video/mp4");
+        add("3gp", "video/3gpp");
+        add("webm", "video/webm");
+        add("mkv", "video/x-matroska");
+        add("mp3", "audio/mpeg");
+        add("m4a", "audio/mp4");
+        add("amr", "audio/amr");
+        add("ogg", "audio/ogg");
+        add("txt", "text/plain");
+        add("html", "text/html");
+        add("vcf", "text/x-vcard");
+        add("pdf", "application/pdf");
+        add("zip", "application/zip");
+        add("apk", "application/vnd.android.package-archive");
+    }
+
+    private void add(String extension, String mimeType) {
+        mMimeTypes.put(extension, mimeType);
+        if (!mExtensions.containsKey(mimeType)) {
+            mExtensions.put(mimeType, extension);
+        }
+    }
+
+    public static MimeTypeMap getSingleton() {
+        return INSTANCE;
+    }
+
+    public static String getFileExtensionFromUrl(String url) {
+        if (url == null || url.isEmpty()) return "";
+        int fragment = url.lastIndexOf('#');
+        if (fragment > 0) url = url.substring(0, fragment);
+        int query = url.lastIndexOf('?');
+        if (query > 0) url = url.substring(0, query);
+        int slash = url.lastIndexOf('/');
+        String fileName = slash >= 0 ? url.substring(slash + 1) : url;
+        if (fileName.isEmpty() || !FILE_NAME.matcher(fileName).matches()) return "";
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 ? fileName.substring(dot + 1) : "";
+    }
+
+    public String getMimeTypeFromExtension(String extension) {
+        return extension == null || extension.isEmpty() ? null : mMimeTypes.get(extension.toLowerCase(Locale.ROOT));
+    }
+
+    public String getExtensionFromMimeType(String mimeType) {
+        return mimeType == null || mimeType.isEmpty() ? null : mExtensions.get(mimeType);
+    }
+}